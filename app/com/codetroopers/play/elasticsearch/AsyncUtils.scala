@@ -2,10 +2,11 @@ package com.codetroopers.play.elasticsearch
 
 import concurrent.{Future, Promise}
 import org.elasticsearch.action.{ActionResponse, ActionRequest, ActionListener, ActionRequestBuilder}
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException
 import play.libs.F
 import io.searchbox.client.{JestResultHandler, JestResult, JestClient}
 import io.searchbox.Action
-import com.codetroopers.play.elasticsearch.jest.JestRichResult
+import com.codetroopers.play.elasticsearch.jest.{JestRequestLimiter, JestRichResult, SmileTransport}
 
 /**
  * Utils for managing Asynchronous tasks
@@ -18,20 +19,44 @@ object AsyncUtils {
   def createPromise[T](): Promise[T] = Promise[T]()
 
   /**
-   * Allows to execute asynchronously a request to the elasticsearch server
+   * Allows to execute asynchronously a request to the elasticsearch server.
+   * The number of requests in flight is bounded by the JestRequestLimiter of the class of the request,
+   * the future fails with an EsRejectedExecutionException when the limit is reached and its queue is full.
+   * The request is sent as SMILE when the SmileTransport supports it.
    * @param client
    * @param clientRequest
    * @return
    */
   def executeAsync(client: JestClient, clientRequest: Action): Future[JestRichResult] = {
     val promise = Promise[JestRichResult]()
+    val limiter = JestRequestLimiter.forAction(clientRequest)
 
-    client.executeAsync(clientRequest, new JestResultHandler[JestResult] {
-      override def failed(ex: Exception): Unit = promise.failure(ex)
+    try {
+      limiter.submit(new Runnable {
+        override def run(): Unit = try {
+          SmileTransport.dispatchAsync(client, clientRequest, new JestResultHandler[JestResult] {
+            override def failed(ex: Exception): Unit = {
+              limiter.release()
+              IndexClient.onExecuted(clientRequest)
+              promise.failure(ex)
+            }
+
+            override def completed(result: JestResult): Unit = {
+              limiter.release()
+              IndexClient.onExecuted(clientRequest)
+              promise.success(new JestRichResult(result))
+            }
+          })
+        } catch {
+          case e: Exception =>
+            limiter.release()
+            promise.failure(e)
+        }
+      })
+    } catch {
+      case e: EsRejectedExecutionException => promise.failure(e)
+    }
 
-      override def completed(result: JestResult): Unit = promise.success(new JestRichResult(result))
-    })
-    
     promise.future
   }
 }
@@ -0,0 +1,187 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestClientWrapper;
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+import com.codetroopers.play.elasticsearch.jest.JestSearchRequestBuilder;
+import com.codetroopers.play.elasticsearch.json.JsonCodec;
+import com.codetroopers.play.elasticsearch.json.JsonCodecs;
+import io.searchbox.core.Search;
+import io.searchbox.params.SearchType;
+import org.apache.commons.lang3.Validate;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.index.query.FilterBuilder;
+import play.Logger;
+import play.libs.F;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A query serialized once, run many times with different parameters.
+ * <p/>
+ * The query is built as any {@link IndexQuery}, the values changing from one run to the other being given as
+ * {@link #param(String)} (ex : <code>QueryBuilders.termQuery("name", CompiledQuery.param("name"))</code>).
+ * Compiling it serializes its body and splits it around the parameters : a run only writes the parameters values
+ * between the static parts, without building nor serializing the query again.
+ * <p/>
+ * A parameter replaces a whole JSON value, its value is written as JSON by the {@link JsonCodecs#get() JsonCodec}
+ * of the documents (a String is quoted, a number or a boolean is not, a Collection becomes an array, a Date is written
+ * as in the indexed documents...). A compiled query is immutable and can be shared between threads.
+ *
+ * @param <T> extends Index
+ */
+public final class CompiledQuery<T extends Index> {
+
+    private static final Pattern PARAMETER = Pattern.compile("\"\\{\\{([\\w.-]+)\\}\\}\"");
+
+    private final Class<T> clazz;
+    private final boolean lazy;
+    private final int from;
+    private final int size;
+    private final String indices;
+    private final String types;
+    private final SearchType searchType;
+
+    /**
+     * Static parts of the body, parts[i] being followed by the value of parameters[i]
+     */
+    private final String[] parts;
+    private final String[] parameters;
+    private final int estimatedSize;
+
+    private CompiledQuery(IndexQuery<T> query, JestSearchRequestBuilder request) {
+        this.clazz = query.getClazz();
+        this.lazy = query.isLazy();
+        this.from = query.getFrom();
+        this.size = query.getSize();
+        this.indices = request.getIndices();
+        this.types = request.getTypes();
+        this.searchType = request.getSearchType();
+
+        final String source = request.getSource();
+        final List<String> sourceParts = new ArrayList<>();
+        final List<String> sourceParameters = new ArrayList<>();
+        final Matcher matcher = PARAMETER.matcher(source);
+        int start = 0;
+        while (matcher.find()) {
+            sourceParts.add(source.substring(start, matcher.start()));
+            sourceParameters.add(matcher.group(1));
+            start = matcher.end();
+        }
+        sourceParts.add(source.substring(start));
+        this.parts = sourceParts.toArray(new String[sourceParts.size()]);
+        this.parameters = sourceParameters.toArray(new String[sourceParameters.size()]);
+        this.estimatedSize = source.length() + 16 * parameters.length;
+    }
+
+    /**
+     * @param name
+     * @return the value to give to the query builders in place of the value of this parameter
+     */
+    public static String param(String name) {
+        return "{{" + name + "}}";
+    }
+
+    /**
+     * Compiles the query as it is now, later changes of the query are not seen
+     *
+     * @param query
+     * @param indexQueryPath
+     * @return
+     */
+    public static <T extends Index> CompiledQuery<T> compile(IndexQuery<T> query, IndexQueryPath indexQueryPath) {
+        return compile(query, indexQueryPath, null);
+    }
+
+    /**
+     * Compiles the query with a filter as it is now, later changes of the query are not seen
+     *
+     * @param query
+     * @param indexQueryPath
+     * @param filter
+     * @return
+     */
+    public static <T extends Index> CompiledQuery<T> compile(IndexQuery<T> query, IndexQueryPath indexQueryPath, @Nullable FilterBuilder filter) {
+        return new CompiledQuery<>(query, query.getSearchRequestBuilder(indexQueryPath, filter));
+    }
+
+    /**
+     * @return the names of the parameters of the query
+     */
+    public Set<String> getParameters() {
+        final Set<String> names = new LinkedHashSet<>();
+        Collections.addAll(names, parameters);
+        return names;
+    }
+
+    /**
+     * Writes the body of the query with these parameters values
+     *
+     * @param params values of the parameters, by name
+     * @return
+     */
+    public String render(Map<String, ?> params) {
+        final StringBuilder body = new StringBuilder(estimatedSize);
+        final JsonCodec codec = JsonCodecs.get();
+        for (int i = 0; i < parameters.length; i++) {
+            body.append(parts[i]);
+            Validate.isTrue(params.containsKey(parameters[i]), "missing query parameter %s", parameters[i]);
+            try {
+                codec.write(params.get(parameters[i]), body);
+            } catch (IOException e) {
+                throw new ElasticsearchException("ElasticSearch : unable to write query parameter " + parameters[i], e);
+            }
+        }
+        body.append(parts[parameters.length]);
+        return body.toString();
+    }
+
+    /**
+     * @param params values of the parameters, by name
+     * @return the search action of the query with these parameters values
+     */
+    public Search getAction(Map<String, ?> params) {
+        final String body = render(params);
+        if (IndexClient.config != null && IndexClient.config.showRequest) {
+            Logger.debug("ElasticSearch : Query -> " + body);
+        }
+        return new Search.Builder(body)
+                .addIndex(indices)
+                .addType(types)
+                .setSearchType(searchType)
+                .build();
+    }
+
+    /**
+     * Runs the query
+     *
+     * @param params values of the parameters, by name
+     * @return
+     */
+    public IndexResults<T> fetch(Map<String, ?> params) {
+        return IndexQuery.toSearchResults(clazz, lazy, from, size, JestClientWrapper.execute(getAction(params)));
+    }
+
+    /**
+     * Runs the query asynchronously
+     *
+     * @param params values of the parameters, by name
+     * @return
+     */
+    public F.Promise<IndexResults<T>> fetchAsync(Map<String, ?> params) {
+        return JestClientWrapper.executeAsync(getAction(params)).map(new F.Function<JestRichResult, IndexResults<T>>() {
+            @Override
+            public IndexResults<T> apply(JestRichResult jestResult) throws Throwable {
+                return IndexQuery.toSearchResults(clazz, lazy, from, size, jestResult);
+            }
+        });
+    }
+}
@@ -0,0 +1,214 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+import com.codetroopers.play.elasticsearch.jest.NdjsonBulk;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.gson.JsonObject;
+import io.searchbox.Action;
+import io.searchbox.BulkableAction;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Near cache of the get by id responses, keyed by index, type and id, the documents being hydrated from the cached
+ * response on each get (callers never share an instance).
+ * <p/>
+ * Writes and deletes executed by this library remove the documents they touch. A get running while a document is
+ * written must not put back the previous version : every key belongs to a stripe whose counter is moved by each
+ * write, a response is only kept if the counter of its stripe did not move since the get was sent.
+ * Writes made by other processes are not seen, the max staleness bounds the time a document can be served from
+ * the cache.
+ */
+public class GetCache {
+
+    private static final int STRIPES = 1024;
+
+    private final Cache<String, Entry> cache;
+    private final boolean negative;
+    private final AtomicLongArray writes = new AtomicLongArray(STRIPES);
+
+    /**
+     * @param maxStaleness time (in milliseconds) a document is kept
+     * @param maxSize      approximate size (in bytes) of the kept responses
+     * @param negative     also keep the ids which do not exist
+     */
+    public GetCache(long maxStaleness, long maxSize, boolean negative) {
+        this.negative = negative;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher(new Weigher<String, Entry>() {
+                    @Override
+                    public int weigh(String key, Entry entry) {
+                        return entry.weight;
+                    }
+                })
+                .expireAfterWrite(maxStaleness, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @param index
+     * @param type
+     * @param id
+     * @return the cached response of the get, null if it has to be sent to the cluster
+     */
+    @Nullable
+    public JestRichResult getIfPresent(String index, String type, String id) {
+        final Entry entry = cache.getIfPresent(key(index, type, id));
+        return entry != null ? entry.response : null;
+    }
+
+    /**
+     * To be read before sending the get, then given to {@link #put(String, String, String, long, JestRichResult)}
+     *
+     * @param index
+     * @param type
+     * @param id
+     * @return the number of writes of the stripe of the document
+     */
+    public long writeCount(String index, String type, String id) {
+        return writes.get(stripe(key(index, type, id)));
+    }
+
+    /**
+     * Keeps the response of a get, unless the document was written since the get was sent or the cache already
+     * holds a newer version
+     *
+     * @param index
+     * @param type
+     * @param id
+     * @param writeCount the {@link #writeCount(String, String, String)} read before sending the get
+     * @param response
+     */
+    public void put(String index, String type, String id, long writeCount, @Nullable JestRichResult response) {
+        final Entry entry = Entry.of(response, negative);
+        if (entry == null) {
+            return;
+        }
+        final String key = key(index, type, id);
+        final int stripe = stripe(key);
+        if (writes.get(stripe) != writeCount) {
+            return;
+        }
+        final Entry previous = cache.getIfPresent(key);
+        if (previous != null && previous.version > entry.version) {
+            return;
+        }
+        cache.put(key, entry);
+        // a write completed between the check and the put : it may not have seen this entry
+        if (writes.get(stripe) != writeCount) {
+            cache.asMap().remove(key, entry);
+        }
+    }
+
+    /**
+     * Removes a document, to be called once it is written
+     *
+     * @param index
+     * @param type
+     * @param id
+     */
+    public void invalidate(String index, String type, String id) {
+        final String key = key(index, type, id);
+        writes.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            writes.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    /**
+     * Removes the documents written by the action, called once the action is executed
+     *
+     * @param action
+     */
+    public void onExecuted(Action action) {
+        if (action instanceof BulkableAction) {
+            invalidate((BulkableAction) action);
+        } else if (action instanceof NdjsonBulk && !((NdjsonBulk) action).getActions().isEmpty()) {
+            for (BulkableAction bulkableAction : ((NdjsonBulk) action).getActions()) {
+                invalidate(bulkableAction);
+            }
+        } else if (!isReadOrRefresh(action)) {
+            // delete by query, index deletion, bulk of serialized lines... : the written documents are unknown
+            invalidateAll();
+        }
+    }
+
+    private void invalidate(BulkableAction action) {
+        if (StringUtils.isBlank(action.getIndex()) || StringUtils.isBlank(action.getType()) || StringUtils.isBlank(action.getId())) {
+            invalidateAll();
+        } else {
+            invalidate(action.getIndex(), action.getType(), action.getId());
+        }
+    }
+
+    private static boolean isReadOrRefresh(Action action) {
+        final String uri = StringUtils.defaultString(action.getURI());
+        return SearchCache.isRead(action)
+                || uri.contains("_refresh") || uri.contains("_flush") || uri.contains("_optimize");
+    }
+
+    /**
+     * @return hit, miss and eviction counts
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private static String key(String index, String type, String id) {
+        return index + "/" + type + "/" + id;
+    }
+
+    private static int stripe(String key) {
+        return key.hashCode() & (STRIPES - 1);
+    }
+
+    private static class Entry {
+        private final JestRichResult response;
+        private final long version;
+        private final int weight;
+
+        private Entry(JestRichResult response, long version, int weight) {
+            this.response = response;
+            this.version = version;
+            this.weight = weight;
+        }
+
+        /**
+         * @return the entry of a found document, or of a missing one when negative entries are kept, null otherwise
+         */
+        @Nullable
+        private static Entry of(@Nullable JestRichResult response, boolean negative) {
+            if (response == null || response.getJsonObject() == null) {
+                return null;
+            }
+            final JsonObject jsonObject = response.getJsonObject();
+            final boolean found = response.isSucceeded() && !jsonObject.has("error")
+                    && (!jsonObject.has("found") || jsonObject.get("found").getAsBoolean());
+            final boolean missing = !response.isSucceeded() && jsonObject.has("found") && !jsonObject.get("found").getAsBoolean();
+            if (!found && !(missing && negative)) {
+                return null;
+            }
+            final long version = jsonObject.has("_version") ? jsonObject.get("_version").getAsLong() : -1;
+            final String json = response.getJsonString();
+            final int weight = 2 * (json != null ? json.length() : jsonObject.toString().length());
+            return new Entry(response, version, weight);
+        }
+    }
+}
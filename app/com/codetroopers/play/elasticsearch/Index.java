@@ -3,15 +3,13 @@ package com.codetroopers.play.elasticsearch;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.codetroopers.play.elasticsearch.jest.JestRichResult;
 import io.searchbox.annotations.JestId;
-import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.search.SearchHit;
 
 import play.libs.F;
 
-import com.codetroopers.play.elasticsearch.annotations.IndexName;
-import com.codetroopers.play.elasticsearch.annotations.IndexType;
-
+import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.Map;
 
 import static com.codetroopers.play.elasticsearch.IndexService.*;
@@ -33,20 +31,7 @@ public abstract class Index implements Indexable {
      * @return
      */
     public IndexQueryPath getIndexPath() {
-
-        IndexType indexTypeAnnotation = this.getClass().getAnnotation(IndexType.class);
-        if(indexTypeAnnotation == null) {
-            throw new ElasticsearchException("ElasticSearch : Class " + this.getClass().getCanonicalName() + " no contain @IndexType(name) annotation ");
-        }
-        String indexType = indexTypeAnnotation.name();
-
-        String indexName = INDEX_DEFAULT;
-        IndexName indexNameAnnotation = this.getClass().getAnnotation(IndexName.class);
-        if(indexNameAnnotation != null) {
-            indexName = indexNameAnnotation.name();
-        }
-
-        return new IndexQueryPath(indexName, indexType);
+        return IndexMetadata.of(this.getClass()).getAnnotatedIndexPath();
     }
 
     /**
@@ -96,6 +81,27 @@ public abstract class Index implements Indexable {
         return IndexService.indexAsync(getIndexPath(indexName), id, this);
     }
 
+    /**
+     * Index this Document with the next bulk sent by the bulk processor
+     */
+    public void indexBuffered() {
+        IndexService.indexBuffered(getIndexPath(), id, this);
+    }
+
+    /**
+     * Index this Document on this indexName with the next bulk sent by the bulk processor
+     */
+    public void indexBuffered(String indexName) {
+        IndexService.indexBuffered(getIndexPath(indexName), id, this);
+    }
+
+    /**
+     * Index this Document through the outbox journal, surviving an unreachable cluster or a restart
+     */
+    public void indexDurable() {
+        IndexService.indexDurable(getIndexPath(), id, this);
+    }
+
     public JestRichResult update(Map<String, Object> updateFieldValues, String updateScript){
         return IndexService.update(getIndexPath(), id, updateFieldValues, updateScript);
     }
@@ -130,6 +136,20 @@ public abstract class Index implements Indexable {
         return IndexService.delete(getIndexPath(indexName), id);
     }
 
+    /**
+     * Delete this Document with the next bulk sent by the bulk processor
+     */
+    public void deleteBuffered() {
+        IndexService.deleteBuffered(getIndexPath(), id);
+    }
+
+    /**
+     * Delete this Document through the outbox journal, surviving an unreachable cluster or a restart
+     */
+    public void deleteDurable() {
+        IndexService.deleteDurable(getIndexPath(), id);
+    }
+
     /**
      * Delete this Document asynchronously
      * @return
@@ -155,6 +175,7 @@ public abstract class Index implements Indexable {
 
         private final Class<T> type;
         private final IndexQueryPath queryPath;
+        private SearchCache searchCache;
 
         /**
          * Creates a finder for document of type <code>T</code>
@@ -162,8 +183,7 @@ public abstract class Index implements Indexable {
          */
         public Finder(Class<T> type) {
             this.type = type;
-            T t = IndexUtils.getInstanceIndex(type);
-            this.queryPath = t.getIndexPath();
+            this.queryPath = IndexMetadata.of(type).getIndexPath();
         }
 
         /**
@@ -172,16 +192,33 @@ public abstract class Index implements Indexable {
          */
         public Finder(Class<T> type, String indexName) {
             this.type = type;
-            T t = IndexUtils.getInstanceIndex(type);
-            this.queryPath = t.getIndexPath(indexName);
+            this.queryPath = IndexMetadata.of(type).getIndexPath(indexName);
         }
 
         /**
-         * Return a query for request this Index
+         * Serves the queries of this finder from a cache, see {@link SearchCache}
+         * @param searchCache
+         * @return self
+         */
+        public Finder<T> withSearchCache(SearchCache searchCache) {
+            this.searchCache = searchCache;
+            return this;
+        }
+
+        /**
+         * @return the cache of the queries of this finder, null if they are not cached
+         */
+        @Nullable
+        public SearchCache getSearchCache() {
+            return searchCache;
+        }
+
+        /**
+         * Return a query for request this Index, using the cache of this finder
          * @return
          */
         public IndexQuery<T> query() {
-            return new IndexQuery<>(type);
+            return new IndexQuery<>(type).setCache(searchCache);
         }
 
         /**
@@ -193,6 +230,24 @@ public abstract class Index implements Indexable {
             return get(queryPath, type, id);
         }
 
+        /**
+         * Retrieves several entities by ID, in one request
+         * @param ids
+         * @return the entities in the order of the ids, and the ids which were not found
+         */
+        public MultiGetResults<T> byIds(Collection<String> ids) {
+            return IndexService.multiGet(queryPath, type, ids);
+        }
+
+        /**
+         * Retrieves several entities by ID, in one request, asynchronously
+         * @param ids
+         * @return the entities in the order of the ids, and the ids which were not found
+         */
+        public F.Promise<MultiGetResults<T>> byIdsAsync(Collection<String> ids) {
+            return IndexService.multiGetAsync(queryPath, type, ids);
+        }
+
         /**
          * Retrieves all entities of the given type.
          */
@@ -200,6 +255,64 @@ public abstract class Index implements Indexable {
             return search(query());
         }
 
+        /**
+         * Compiles a query of this index, to be run many times with different parameters
+         * @param query
+         * @return
+         */
+        public CompiledQuery<T> compile(IndexQuery<T> query) {
+            return CompiledQuery.compile(query, queryPath);
+        }
+
+        /**
+         * Counts all the entities of the given type
+         * @return
+         */
+        public long count() {
+            return count(query());
+        }
+
+        /**
+         * Counts the entities matching the query, without fetching them
+         * @param query
+         * @return
+         */
+        public long count(IndexQuery<T> query) {
+            return query.count(queryPath);
+        }
+
+        /**
+         * Counts the entities matching the query and the filter, without fetching them
+         * @param query
+         * @param filter
+         * @return
+         */
+        public long count(IndexQuery<T> query, FilterBuilder filter) {
+            return query.count(queryPath, filter);
+        }
+
+        public F.Promise<Long> countAsync() {
+            return countAsync(query());
+        }
+
+        public F.Promise<Long> countAsync(IndexQuery<T> query) {
+            return query.countAsync(queryPath);
+        }
+
+        public F.Promise<Long> countAsync(IndexQuery<T> query, FilterBuilder filter) {
+            return query.countAsync(queryPath, filter);
+        }
+
+        /**
+         * Iterates over all the entities of the given type, <code>batchSize</code> at a time
+         * @param batchSize
+         * @param keepAlive time the scroll is kept alive between two batches (ex : 1m)
+         * @return
+         */
+        public IndexScroll<T> scroll(int batchSize, String keepAlive) {
+            return query().scroll(queryPath, batchSize, keepAlive);
+        }
+
         /**
          * Find method
          * @param query
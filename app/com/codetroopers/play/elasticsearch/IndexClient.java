@@ -1,12 +1,24 @@
 package com.codetroopers.play.elasticsearch;
 
+import com.codetroopers.play.elasticsearch.jest.BulkRetryPolicy;
+import com.codetroopers.play.elasticsearch.jest.JestBulkProcessor;
 import com.codetroopers.play.elasticsearch.jest.JestClientWrapper;
+import com.codetroopers.play.elasticsearch.jest.JestGetBatcher;
+import com.codetroopers.play.elasticsearch.jest.JestOutbox;
+import com.codetroopers.play.elasticsearch.jest.JestRequestLimiter;
+import com.codetroopers.play.elasticsearch.jest.JestWriteCoalescer;
+import com.codetroopers.play.elasticsearch.jest.OutboxJournal;
+import com.codetroopers.play.elasticsearch.jest.SmileTransport;
+import com.codetroopers.play.elasticsearch.json.JsonCodecs;
+import io.searchbox.Action;
 import io.searchbox.client.JestClient;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.node.NodeBuilder;
 import play.Application;
 import play.Logger;
 
+import java.io.File;
+
 import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
 
 public class IndexClient {
@@ -17,6 +29,28 @@ public class IndexClient {
 
     public static IndexConfig config;
 
+    public static JestBulkProcessor bulkProcessor = null;
+
+    /**
+     * Only set when elasticsearch.index.coalesce_window is defined
+     */
+    public static volatile JestWriteCoalescer writeCoalescer = null;
+
+    /**
+     * Only set when elasticsearch.get.batch_window is defined
+     */
+    public static volatile JestGetBatcher getBatcher = null;
+
+    /**
+     * Only set when elasticsearch.get.cache.max_staleness is defined
+     */
+    public static GetCache getCache = null;
+
+    /**
+     * Only set when elasticsearch.outbox.path is defined
+     */
+    public static JestOutbox outbox = null;
+
     public IndexClient(Application application) {
         config = new IndexConfig(application);
     }
@@ -37,10 +71,103 @@ public class IndexClient {
         if (client == null) {
             throw new Exception("ElasticSearch Client cannot be null - please check the configuration provided and the health of your ElasticSearch instances.");
         }
+
+        JestRequestLimiter.configure(config);
+        JsonCodecs.set(JsonCodecs.forName(config.jsonCodec, config.application.classloader()));
+
+        bulkProcessor = JestBulkProcessor.builder()
+                .setBulkActions(config.bulkActions)
+                .setBulkSize(config.bulkSize)
+                .setFlushInterval(config.bulkFlushInterval)
+                .setConcurrentRequests(config.bulkConcurrentRequests)
+                .build();
+
+        if (config.coalesceWindow > 0) {
+            writeCoalescer = new JestWriteCoalescer(config.coalesceWindow, config.bulkActions);
+        }
+
+        if (config.getBatchWindow > 0) {
+            getBatcher = new JestGetBatcher(config.getBatchWindow, config.getBatchSize);
+        }
+
+        if (config.getCacheMaxStaleness > 0) {
+            getCache = new GetCache(config.getCacheMaxStaleness, config.getCacheMaxSize, config.getCacheNegative);
+        }
+
+        if (config.outboxPath != null) {
+            final OutboxJournal journal = new OutboxJournal(new File(config.outboxPath), (int) config.outboxSegmentSize, config.outboxForceOnAppend);
+            final OutboxJournal deadLetters = new OutboxJournal(new File(config.outboxPath, "dead-letter"), (int) config.outboxSegmentSize, config.outboxForceOnAppend);
+            final BulkRetryPolicy retryPolicy = new BulkRetryPolicy(config.outboxMaxRetries, 50, 5000);
+            outbox = new JestOutbox(journal, deadLetters, config.bulkActions, config.outboxPollInterval, retryPolicy, JestOutbox.CLIENT_SENDER);
+            if (outbox.hasDeadLetters()) {
+                Logger.warn("ElasticSearch : Outbox has dead letters in " + config.outboxPath + "/dead-letter, see JestOutbox.replayDeadLetters()");
+            }
+            Logger.info("ElasticSearch : Outbox journal opened in " + config.outboxPath);
+        }
     }
 
 
+    /**
+     * Sends the actions still buffered in the bulk processor and waits for them to complete
+     */
+    public static void closeBulkProcessor() {
+        if (bulkProcessor != null) {
+            bulkProcessor.close();
+            bulkProcessor = null;
+        }
+    }
+
+    /**
+     * Sends the writes waiting in the coalescing window
+     */
+    public static void closeWriteCoalescer() {
+        if (writeCoalescer != null) {
+            writeCoalescer.close();
+            writeCoalescer = null;
+        }
+    }
+
+    /**
+     * Sends the gets waiting in the batching window
+     */
+    public static void closeGetBatcher() {
+        if (getBatcher != null) {
+            getBatcher.close();
+            getBatcher = null;
+        }
+    }
+
+    /**
+     * Invalidates the cached responses depending on the documents written by the action, called once any action is
+     * executed
+     *
+     * @param action
+     */
+    public static void onExecuted(Action action) {
+        SearchCache.onExecuted(action);
+        final GetCache cache = getCache;
+        if (cache != null) {
+            cache.onExecuted(action);
+        }
+    }
+
+    /**
+     * Stops draining the outbox, the operations not sent yet stay in the journal for next start
+     */
+    public static void closeOutbox() {
+        if (outbox != null) {
+            outbox.close();
+            outbox = null;
+        }
+    }
+
     public static void stop() throws Exception {
+        closeOutbox();
+        closeWriteCoalescer();
+        closeGetBatcher();
+        closeBulkProcessor();
+        getCache = null;
+        SmileTransport.set(null);
         if (client != null) {
             client.shutdownClient();
         }
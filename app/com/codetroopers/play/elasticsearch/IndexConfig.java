@@ -1,8 +1,9 @@
 package com.codetroopers.play.elasticsearch;
 
-import com.codetroopers.play.elasticsearch.annotations.IndexMapping;
 import com.codetroopers.play.elasticsearch.annotations.IndexName;
 import com.codetroopers.play.elasticsearch.annotations.IndexType;
+import com.codetroopers.play.elasticsearch.jest.JestRequestLimiter;
+import com.codetroopers.play.elasticsearch.json.JsonCodecs;
 import org.apache.commons.lang3.StringUtils;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.SettingsException;
@@ -89,6 +90,139 @@ public class IndexConfig {
      */
     public boolean dropOnShutdown = false;
 
+    /**
+     * elasticsearch.bulk.actions = number of buffered actions triggering a bulk, -1 to disable
+     */
+    public int bulkActions = 1000;
+
+    /**
+     * elasticsearch.bulk.size = estimated size (in bytes) of buffered actions triggering a bulk, -1 to disable
+     */
+    public long bulkSize = 5 * 1024 * 1024;
+
+    /**
+     * elasticsearch.bulk.flush_interval = max time (in milliseconds) an action stays buffered, -1 to disable
+     */
+    public long bulkFlushInterval = 1000;
+
+    /**
+     * elasticsearch.bulk.concurrent_requests = number of bulks in flight at the same time (0 to send synchronously)
+     */
+    public int bulkConcurrentRequests = 1;
+
+    /**
+     * elasticsearch.bulk.parallelism = number of chunks sent at the same time by IndexService.indexBulkParallel
+     */
+    public int bulkParallelism = 4;
+
+    /**
+     * elasticsearch.index.coalesce_window = time (in milliseconds) asynchronous writes of a same document are
+     * coalesced before being sent as a bulk (0 to disable)
+     */
+    public long coalesceWindow = 0;
+
+    /**
+     * elasticsearch.get.batch_window = time (in milliseconds) asynchronous gets by id are collected before being
+     * sent as one multi get per index (0 to disable)
+     */
+    public long getBatchWindow = 0;
+
+    /**
+     * elasticsearch.get.batch_size = number of distinct documents after which collected gets are sent without
+     * waiting for the window
+     */
+    public int getBatchSize = 100;
+
+    /**
+     * elasticsearch.get.cache.max_staleness = time (in milliseconds) a document read by id is kept in the near cache
+     * of the gets, see GetCache (0 to disable)
+     */
+    public long getCacheMaxStaleness = 0;
+
+    /**
+     * elasticsearch.get.cache.max_size = approximate size (in bytes) of the documents kept in the near cache of the gets
+     */
+    public long getCacheMaxSize = 10 * 1024 * 1024;
+
+    /**
+     * elasticsearch.get.cache.negative = also keep the ids which do not exist in the near cache of the gets
+     */
+    public boolean getCacheNegative = false;
+
+    /**
+     * elasticsearch.search.cache.refresh_interval = time (in milliseconds) after a write during which the searches
+     * on the written index are not kept by a SearchCache, unless the index is refreshed (refresh interval of the indices)
+     */
+    public long searchCacheRefreshInterval = SearchCache.DEFAULT_REFRESH_INTERVAL;
+
+    /**
+     * elasticsearch.scroll.request_timeout = time (in milliseconds) an IndexScroll waits for a prefetched batch
+     */
+    public long scrollRequestTimeout = IndexScroll.DEFAULT_REQUEST_TIMEOUT;
+
+    /**
+     * elasticsearch.json.codec = JSON stack writing the request bodies : gson (default), jackson or the name of a
+     * class implementing JsonCodec
+     */
+    public String jsonCodec = JsonCodecs.GSON;
+
+    /**
+     * elasticsearch.http.compression.enabled = gzip the request bodies and ask for gzipped responses
+     */
+    public boolean httpCompression = false;
+
+    /**
+     * elasticsearch.http.compression.threshold = request bodies smaller than this size (in bytes) are not gzipped
+     */
+    public long httpCompressionThreshold = 1024;
+
+    /**
+     * elasticsearch.http.smile = comma separated request types (bulk, index, search) sent and answered in SMILE
+     * instead of JSON, ex : bulk,search
+     */
+    public String smileRequests = null;
+
+    /**
+     * elasticsearch.outbox.path = directory of the journal of durable writes (IndexService.*Durable), the outbox
+     * is disabled when not defined
+     */
+    public String outboxPath = null;
+
+    /**
+     * elasticsearch.outbox.segment_size = size (in bytes) of a journal segment file
+     */
+    public long outboxSegmentSize = 16 * 1024 * 1024;
+
+    /**
+     * elasticsearch.outbox.poll_interval = time (in milliseconds) between two looks at the journal once drained
+     */
+    public long outboxPollInterval = 500;
+
+    /**
+     * elasticsearch.outbox.max_retries = number of times the operations of the outbox rejected as overloaded are sent
+     * again before being moved to the dead letters ( directory dead-letter of the outbox ), bulks failing as a whole
+     * are sent again until they go through
+     */
+    public int outboxMaxRetries = 60;
+
+    /**
+     * elasticsearch.outbox.force_on_append = force the journal to the disk after each write, so that the operations
+     * survive a crash of the whole system ( and not only of the process )
+     */
+    public boolean outboxForceOnAppend = true;
+
+    /**
+     * elasticsearch.async.[read|write|bulk|other].max_in_flight = max number of asynchronous requests in flight
+     * for a class of operations (0 for no limit)
+     */
+    public Map<String, Integer> asyncMaxInFlight = new HashMap<>();
+
+    /**
+     * elasticsearch.async.[read|write|bulk|other].max_queued = number of asynchronous requests waiting for a slot
+     * before new ones are rejected (0 to reject as soon as the limit is reached)
+     */
+    public Map<String, Integer> asyncMaxQueued = new HashMap<>();
+
     /**
      * Play application
      */
@@ -107,6 +241,35 @@ public class IndexConfig {
         this.dropOnShutdown = app.configuration().getBoolean("elasticsearch.index.dropOnShutdown", false);
         this.indexClazzs = app.configuration().getString("elasticsearch.index.clazzs");
 
+        this.bulkActions = app.configuration().getInt("elasticsearch.bulk.actions", bulkActions);
+        this.bulkSize = app.configuration().getBytes("elasticsearch.bulk.size", bulkSize);
+        this.bulkFlushInterval = app.configuration().getMilliseconds("elasticsearch.bulk.flush_interval", bulkFlushInterval);
+        this.bulkConcurrentRequests = app.configuration().getInt("elasticsearch.bulk.concurrent_requests", bulkConcurrentRequests);
+        this.bulkParallelism = app.configuration().getInt("elasticsearch.bulk.parallelism", bulkParallelism);
+        this.coalesceWindow = app.configuration().getMilliseconds("elasticsearch.index.coalesce_window", coalesceWindow);
+        this.getBatchWindow = app.configuration().getMilliseconds("elasticsearch.get.batch_window", getBatchWindow);
+        this.getBatchSize = app.configuration().getInt("elasticsearch.get.batch_size", getBatchSize);
+        this.getCacheMaxStaleness = app.configuration().getMilliseconds("elasticsearch.get.cache.max_staleness", getCacheMaxStaleness);
+        this.getCacheMaxSize = app.configuration().getBytes("elasticsearch.get.cache.max_size", getCacheMaxSize);
+        this.getCacheNegative = app.configuration().getBoolean("elasticsearch.get.cache.negative", getCacheNegative);
+        this.searchCacheRefreshInterval = app.configuration().getMilliseconds("elasticsearch.search.cache.refresh_interval", searchCacheRefreshInterval);
+        this.scrollRequestTimeout = app.configuration().getMilliseconds("elasticsearch.scroll.request_timeout", scrollRequestTimeout);
+        this.jsonCodec = app.configuration().getString("elasticsearch.json.codec", jsonCodec);
+        this.httpCompression = app.configuration().getBoolean("elasticsearch.http.compression.enabled", httpCompression);
+        this.httpCompressionThreshold = app.configuration().getBytes("elasticsearch.http.compression.threshold", httpCompressionThreshold);
+        this.smileRequests = app.configuration().getString("elasticsearch.http.smile");
+        this.outboxPath = app.configuration().getString("elasticsearch.outbox.path");
+        this.outboxSegmentSize = app.configuration().getBytes("elasticsearch.outbox.segment_size", outboxSegmentSize);
+        this.outboxPollInterval = app.configuration().getMilliseconds("elasticsearch.outbox.poll_interval", outboxPollInterval);
+        this.outboxMaxRetries = app.configuration().getInt("elasticsearch.outbox.max_retries", outboxMaxRetries);
+        this.outboxForceOnAppend = app.configuration().getBoolean("elasticsearch.outbox.force_on_append", outboxForceOnAppend);
+
+        for (JestRequestLimiter.OperationClass operationClass : JestRequestLimiter.OperationClass.values()) {
+            final String prefix = "elasticsearch.async." + operationClass.configName();
+            asyncMaxInFlight.put(operationClass.configName(), app.configuration().getInt(prefix + ".max_in_flight", 0));
+            asyncMaxQueued.put(operationClass.configName(), app.configuration().getInt(prefix + ".max_queued", 0));
+        }
+
         String indexNameConf = app.configuration().getString("elasticsearch.index.name");
         if(indexNameConf != null) {
             LinkedList<String> indexNamesL = new LinkedList<>();
@@ -152,15 +315,17 @@ public class IndexConfig {
                 Logger.debug("ElasticSearch : Registering class " + aClass);
 
                 klass = Class.forName(aClass, true, application.classloader());
-                Object o = klass.newInstance();
+                IndexMetadata<?> metadata = IndexMetadata.of(klass);
 
-                String indexType = getIndexType(o);
-                String indexMapping = getIndexMapping(o);
-                String indexName = getIndexName(o, indexNames);
+                String indexType = metadata.getIndexType();
+                String indexName = metadata.getIndexName();
+                if (indexName == null && indexNames.length > 0) {
+                    indexName = indexNames[0];
+                }
 
                 if (indexType != null) {
                     IndexQueryPath path = new IndexQueryPath(indexName, indexType);
-                    indexMappings.put(path, indexMapping);
+                    indexMappings.put(path, metadata.getIndexMapping());
                 }
             } catch (Throwable e) {
                 Logger.error(e.getMessage());
@@ -191,33 +356,6 @@ public class IndexConfig {
         }
     }
 
-    private static String getIndexName(Object instance, String[] indexNames) {
-        IndexName indexNameAnnotation = instance.getClass().getAnnotation(IndexName.class);
-        if (indexNameAnnotation == null) {
-            if(indexNames.length>0) {
-                return indexNames[0];
-            }
-            return null;
-        }
-        return indexNameAnnotation.name();
-    }
-
-    private static String getIndexType(Object instance) {
-        IndexType indexTypeAnnotation = instance.getClass().getAnnotation(IndexType.class);
-        if (indexTypeAnnotation == null) {
-            return null;
-        }
-        return indexTypeAnnotation.name();
-    }
-
-    private static String getIndexMapping(Object instance) {
-        IndexMapping indexMapping = instance.getClass().getAnnotation(IndexMapping.class);
-        if (indexMapping == null) {
-            return null;
-        }
-        return indexMapping.value();
-    }
-
     private Set<String> getClazzs() {
 
         Set<String> classes = new HashSet<>();
@@ -255,6 +393,30 @@ public class IndexConfig {
                 ", indexClazzs='" + indexClazzs + '\'' +
                 ", indexMappings=" + indexMappings +
                 ", dropOnShutdown=" + dropOnShutdown +
+                ", bulkActions=" + bulkActions +
+                ", bulkSize=" + bulkSize +
+                ", bulkFlushInterval=" + bulkFlushInterval +
+                ", bulkConcurrentRequests=" + bulkConcurrentRequests +
+                ", bulkParallelism=" + bulkParallelism +
+                ", coalesceWindow=" + coalesceWindow +
+                ", getBatchWindow=" + getBatchWindow +
+                ", getBatchSize=" + getBatchSize +
+                ", getCacheMaxStaleness=" + getCacheMaxStaleness +
+                ", getCacheMaxSize=" + getCacheMaxSize +
+                ", getCacheNegative=" + getCacheNegative +
+                ", searchCacheRefreshInterval=" + searchCacheRefreshInterval +
+                ", scrollRequestTimeout=" + scrollRequestTimeout +
+                ", jsonCodec='" + jsonCodec + '\'' +
+                ", httpCompression=" + httpCompression +
+                ", httpCompressionThreshold=" + httpCompressionThreshold +
+                ", smileRequests='" + smileRequests + '\'' +
+                ", outboxPath='" + outboxPath + '\'' +
+                ", outboxSegmentSize=" + outboxSegmentSize +
+                ", outboxPollInterval=" + outboxPollInterval +
+                ", outboxMaxRetries=" + outboxMaxRetries +
+                ", outboxForceOnAppend=" + outboxForceOnAppend +
+                ", asyncMaxInFlight=" + asyncMaxInFlight +
+                ", asyncMaxQueued=" + asyncMaxQueued +
                 '}';
     }
 
@@ -0,0 +1,198 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.annotations.IndexMapping;
+import com.codetroopers.play.elasticsearch.annotations.IndexName;
+import com.codetroopers.play.elasticsearch.annotations.IndexType;
+import org.elasticsearch.ElasticsearchException;
+import play.Logger;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Annotations and constructor of an Indexable class, resolved once per class and kept in a registry
+ * (filled at plugin start for the classes of elasticsearch.index.clazzs, on first use for the others).
+ *
+ * @param <T>
+ */
+public class IndexMetadata<T> {
+
+    private static final ConcurrentMap<Class<?>, IndexMetadata<?>> registry = new ConcurrentHashMap<>();
+
+    private final Class<T> clazz;
+    private final String indexName;
+    private final String indexType;
+    private final String indexMapping;
+    private final Constructor<T> constructor;
+    // true when the class overrides Index#getIndexPath, the path is then asked to an instance
+    private final boolean indexPathOverridden;
+
+    private IndexMetadata(Class<T> clazz) {
+        this.clazz = clazz;
+        final IndexName indexNameAnnotation = clazz.getAnnotation(IndexName.class);
+        this.indexName = indexNameAnnotation == null ? null : indexNameAnnotation.name();
+        final IndexType indexTypeAnnotation = clazz.getAnnotation(IndexType.class);
+        this.indexType = indexTypeAnnotation == null ? null : indexTypeAnnotation.name();
+        final IndexMapping indexMappingAnnotation = clazz.getAnnotation(IndexMapping.class);
+        this.indexMapping = indexMappingAnnotation == null ? null : indexMappingAnnotation.value();
+        this.constructor = findConstructor(clazz);
+        this.indexPathOverridden = overridesIndexPath(clazz);
+    }
+
+    /**
+     * Get the metadata of a class, resolving them on first call
+     *
+     * @param clazz
+     * @param <T>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> IndexMetadata<T> of(Class<T> clazz) {
+        IndexMetadata<?> metadata = registry.get(clazz);
+        if (metadata == null) {
+            metadata = new IndexMetadata<>(clazz);
+            final IndexMetadata<?> previous = registry.putIfAbsent(clazz, metadata);
+            if (previous != null) {
+                metadata = previous;
+            }
+        }
+        return (IndexMetadata<T>) metadata;
+    }
+
+    /**
+     * Forgets the resolved classes (the application classes are reloaded in dev mode)
+     */
+    public static void clear() {
+        registry.clear();
+    }
+
+    public Class<T> getIndexClass() {
+        return clazz;
+    }
+
+    /**
+     * @return the name of @IndexName, null when the class uses the default index
+     */
+    @Nullable
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * @return the name of @IndexType, null when the class is not annotated
+     */
+    @Nullable
+    public String getIndexType() {
+        return indexType;
+    }
+
+    /**
+     * @return the value of @IndexMapping, null when the class is not annotated
+     */
+    @Nullable
+    public String getIndexMapping() {
+        return indexMapping;
+    }
+
+    /**
+     * Return indexName and indexType of the class, a new IndexQueryPath is returned on each call.
+     * A class overriding {@link Index#getIndexPath()} gets the path of a new instance, the annotations otherwise.
+     *
+     * @return
+     */
+    public IndexQueryPath getIndexPath() {
+        if (indexPathOverridden) {
+            return overriddenInstance().getIndexPath();
+        }
+        return getAnnotatedIndexPath();
+    }
+
+    /**
+     * Return the path of the class for a specific indexName, a new IndexQueryPath is returned on each call.
+     * A class overriding {@link Index#getIndexPath()} gets the path of a new instance, the annotations otherwise.
+     *
+     * @param indexName
+     * @return
+     */
+    public IndexQueryPath getIndexPath(String indexName) {
+        if (indexPathOverridden) {
+            return overriddenInstance().getIndexPath(indexName);
+        }
+        final IndexQueryPath queryPath = getAnnotatedIndexPath();
+        queryPath.index = indexName;
+        return queryPath;
+    }
+
+    /**
+     * Return indexName and indexType read from the annotations of the class, a new IndexQueryPath is returned on each call
+     *
+     * @return
+     */
+    public IndexQueryPath getAnnotatedIndexPath() {
+        if (indexType == null) {
+            throw new ElasticsearchException("ElasticSearch : Class " + clazz.getCanonicalName() + " no contain @IndexType(name) annotation ");
+        }
+        return new IndexQueryPath(indexName != null ? indexName : IndexService.INDEX_DEFAULT, indexType);
+    }
+
+    private Index overriddenInstance() {
+        final T instance = newInstance();
+        if (instance == null) {
+            throw new ElasticsearchException("ElasticSearch : Class " + clazz.getCanonicalName()
+                    + " overrides getIndexPath() but can not be instantiated to call it");
+        }
+        return (Index) instance;
+    }
+
+    /**
+     * Creates a new instance through the no-arg constructor
+     *
+     * @return the instance, null if it can not be created
+     */
+    public T newInstance() {
+        if (constructor == null) {
+            Logger.error("ElasticSearch : Class " + clazz.getCanonicalName() + " has no no-arg constructor");
+            return null;
+        }
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            Logger.error("ElasticSearch : unable to create an instance of " + clazz.getCanonicalName(), e);
+            return null;
+        }
+    }
+
+    private static boolean overridesIndexPath(Class<?> clazz) {
+        if (!Index.class.isAssignableFrom(clazz)) {
+            return false;
+        }
+        try {
+            return clazz.getMethod("getIndexPath").getDeclaringClass() != Index.class
+                    || clazz.getMethod("getIndexPath", String.class).getDeclaringClass() != Index.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static <T> Constructor<T> findConstructor(Class<T> clazz) {
+        if (Modifier.isAbstract(clazz.getModifiers()) || clazz.isInterface()) {
+            return null;
+        }
+        try {
+            final Constructor<T> constructor = clazz.getDeclaredConstructor();
+            // skipping the access checks of each call
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IndexMetadata{" + clazz.getName() + ", " + indexName + "/" + indexType + "}";
+    }
+}
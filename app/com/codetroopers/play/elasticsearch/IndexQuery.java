@@ -3,10 +3,10 @@ package com.codetroopers.play.elasticsearch;
 import com.codetroopers.play.elasticsearch.jest.JestRichResult;
 import com.codetroopers.play.elasticsearch.jest.JestSearchRequestBuilder;
 import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
 import io.searchbox.core.search.facet.Facet;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -48,12 +48,34 @@ public class IndexQuery<T extends Index> {
     private int size = -1;
     private boolean explain = false;
     private boolean noField = false;
+    private boolean lazy = false;
+    private String[] sourceIncludes = null;
+    private String[] sourceExcludes = null;
+    private List<String> fields = new ArrayList<>();
+    private List<String> fieldDataFields = new ArrayList<>();
+    private SearchCache cache = null;
 
     public IndexQuery(Class<T> clazz) {
         Validate.notNull(clazz, "clazz cannot be null");
         this.clazz = clazz;
     }
 
+    Class<T> getClazz() {
+        return clazz;
+    }
+
+    boolean isLazy() {
+        return lazy;
+    }
+
+    int getFrom() {
+        return from;
+    }
+
+    int getSize() {
+        return size;
+    }
+
     public IndexQuery<T> setBuilder(QueryBuilder builder) {
         this.builder = builder;
 
@@ -68,6 +90,90 @@ public class IndexQuery<T extends Index> {
         this.noField = noField;
     }
 
+    /**
+     * Lazy : the hits are converted to <code>T</code> when they are accessed in the results, their id, score and
+     * source being readable without conversion (see {@link LazyHitList}). Otherwise (default) all the hits are
+     * converted while the response is read, in one pass over the response.
+     *
+     * @param lazy
+     * @return self
+     */
+    public IndexQuery<T> setLazy(boolean lazy) {
+        this.lazy = lazy;
+
+        return this;
+    }
+
+    /**
+     * Serves the query from this cache when the same query was run since the last write on its indices,
+     * see {@link SearchCache}
+     *
+     * @param cache null to always run the query
+     * @return self
+     */
+    public IndexQuery<T> setCache(@Nullable SearchCache cache) {
+        this.cache = cache;
+
+        return this;
+    }
+
+    @Nullable
+    public SearchCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Only returns the parts of the documents sources matching these patterns (ex: "name", "address.*"),
+     * the hits are hydrated from these parts only
+     *
+     * @param includes
+     * @return self
+     */
+    public IndexQuery<T> setSourceIncludes(String... includes) {
+        this.sourceIncludes = includes;
+
+        return this;
+    }
+
+    /**
+     * Drops the parts of the documents sources matching these patterns (ex: "content", "*.raw")
+     *
+     * @param excludes
+     * @return self
+     */
+    public IndexQuery<T> setSourceExcludes(String... excludes) {
+        this.sourceExcludes = excludes;
+
+        return this;
+    }
+
+    /**
+     * Adds a stored field to return, the hits are hydrated from the fields when the source is not returned
+     * (which is the case once a field is requested, unless source includes / excludes are set)
+     *
+     * @param field
+     * @return self
+     */
+    public IndexQuery<T> addField(String field) {
+        Validate.notEmpty(field, "field cannot be null");
+        fields.add(field);
+
+        return this;
+    }
+
+    /**
+     * Adds a field to load from the field data cache, returned with the stored fields
+     *
+     * @param field
+     * @return self
+     */
+    public IndexQuery<T> addFieldDataField(String field) {
+        Validate.notEmpty(field, "field cannot be null");
+        fieldDataFields.add(field);
+
+        return this;
+    }
+
     /**
      * Sets from
      *
@@ -181,7 +287,8 @@ public class IndexQuery<T extends Index> {
      * @return
      */
     public F.Promise<IndexResults<T>> fetchAsync(final IndexQueryPath indexQueryPath, final FilterBuilder filter) {
-        final F.Promise<JestRichResult> jestResultPromise = getSearchRequestBuilder(indexQueryPath, filter).executeAsync();
+        final JestSearchRequestBuilder request = getSearchRequestBuilder(indexQueryPath, filter);
+        final F.Promise<JestRichResult> jestResultPromise = cache != null ? cache.executeAsync(request) : request.executeAsync();
         return jestResultPromise.map(new F.Function<JestRichResult, IndexResults<T>>() {
             @Override
             public IndexResults<T> apply(JestRichResult jestResult) throws Throwable {
@@ -190,9 +297,132 @@ public class IndexQuery<T extends Index> {
         });
     }
 
+    /**
+     * Counts the hits of the query, without fetching them (search_type=count)
+     *
+     * @param indexQueryPath
+     * @return
+     */
+    public long count(IndexQueryPath indexQueryPath) {
+        return count(indexQueryPath, null);
+    }
+
+    /**
+     * Counts the hits of the query with a filter, without fetching them (search_type=count)
+     *
+     * @param indexQueryPath
+     * @param filter
+     * @return
+     */
+    public long count(IndexQueryPath indexQueryPath, FilterBuilder filter) {
+        final JestSearchRequestBuilder request = getCountRequestBuilder(indexQueryPath, filter);
+        return toCount(cache != null ? cache.execute(request) : request.execute());
+    }
+
+    /**
+     * Counts the hits of the query asynchronously, without fetching them (search_type=count)
+     *
+     * @param indexQueryPath
+     * @return
+     */
+    public F.Promise<Long> countAsync(IndexQueryPath indexQueryPath) {
+        return countAsync(indexQueryPath, null);
+    }
+
+    /**
+     * Counts the hits of the query with a filter asynchronously, without fetching them (search_type=count)
+     *
+     * @param indexQueryPath
+     * @param filter
+     * @return
+     */
+    public F.Promise<Long> countAsync(IndexQueryPath indexQueryPath, FilterBuilder filter) {
+        final JestSearchRequestBuilder request = getCountRequestBuilder(indexQueryPath, filter);
+        final F.Promise<JestRichResult> jestResultPromise = cache != null ? cache.executeAsync(request) : request.executeAsync();
+        return jestResultPromise.map(new F.Function<JestRichResult, Long>() {
+            @Override
+            public Long apply(JestRichResult jestResult) throws Throwable {
+                return toCount(jestResult);
+            }
+        });
+    }
+
+    /**
+     * Request of the query only : sorts, paging, fields and facets do not change the count
+     */
+    private JestSearchRequestBuilder getCountRequestBuilder(@Nullable IndexQueryPath indexQueryPath, FilterBuilder filter) {
+        final JestSearchRequestBuilder request = new JestSearchRequestBuilder();
+        if (indexQueryPath != null) {
+            request.setIndices(indexQueryPath.index)
+                    .setTypes(indexQueryPath.type);
+        }
+        request.setSearchType(io.searchbox.params.SearchType.COUNT)
+                .setFilter(filter);
+        if (StringUtils.isNotBlank(query)) {
+            request.setQuery(query);
+        } else {
+            request.setQuery(builder);
+        }
+        return request;
+    }
+
+    /**
+     * A failed count is not a count of 0 : it throws, failing the promise of an asynchronous count
+     */
+    private static long toCount(JestRichResult jestResult) {
+        if (!jestResult.isSucceeded()) {
+            throw new ElasticsearchException("ElasticSearch : count failed : " + jestResult.getErrorMessage());
+        }
+        return jestResult.getTotalHitsAsLong();
+    }
+
+    /**
+     * Iterates over all the hits of the query, <code>batchSize</code> hits at a time. A scan search is used when
+     * the query has no sort (hits are then returned in no particular order, <code>batchSize</code> per shard).
+     * The iteration should be closed when it is not read to the end.
+     *
+     * @param indexQueryPath
+     * @param batchSize number of hits per batch
+     * @param keepAlive time the scroll is kept alive between two batches (ex : 1m)
+     * @return
+     */
+    public IndexScroll<T> scroll(IndexQueryPath indexQueryPath, int batchSize, String keepAlive) {
+        final JestSearchRequestBuilder request = getScrollRequestBuilder(indexQueryPath, batchSize, keepAlive);
+        return new IndexScroll<>(clazz, request.execute(), keepAlive, false);
+    }
+
+    /**
+     * Iterates over all the hits of the query as {@link #scroll(IndexQueryPath, int, String)} does, each batch is
+     * requested while the previous one is consumed
+     *
+     * @param indexQueryPath
+     * @param batchSize number of hits per batch
+     * @param keepAlive time the scroll is kept alive between two batches (ex : 1m)
+     * @return
+     */
+    public F.Promise<IndexScroll<T>> scrollAsync(IndexQueryPath indexQueryPath, int batchSize, final String keepAlive) {
+        final F.Promise<JestRichResult> jestResultPromise = getScrollRequestBuilder(indexQueryPath, batchSize, keepAlive).executeAsync();
+        return jestResultPromise.map(new F.Function<JestRichResult, IndexScroll<T>>() {
+            @Override
+            public IndexScroll<T> apply(JestRichResult jestResult) throws Throwable {
+                return new IndexScroll<>(clazz, jestResult, keepAlive, true);
+            }
+        });
+    }
+
+    private JestSearchRequestBuilder getScrollRequestBuilder(IndexQueryPath indexQueryPath, int batchSize, String keepAlive) {
+        final JestSearchRequestBuilder request = getSearchRequestBuilder(indexQueryPath, null)
+                .setScroll(keepAlive)
+                .setSize(batchSize);
+        if (sorts.isEmpty()) {
+            request.setSearchType(io.searchbox.params.SearchType.SCAN);
+        }
+        return request;
+    }
+
     public IndexResults<T> executeSearchRequest(JestSearchRequestBuilder request) {
 
-        JestRichResult searchResponse = request.execute();
+        JestRichResult searchResponse = cache != null ? cache.execute(request) : request.execute();
 
         if (IndexClient.config.showRequest && searchResponse != null) {
             Logger.debug("ElasticSearch : Response -> " + searchResponse.getJsonString());
@@ -232,6 +462,17 @@ public class IndexQuery<T extends Index> {
             request.setNoFields();
         }
 
+        // Source filtering and fields
+        if (sourceIncludes != null || sourceExcludes != null) {
+            request.setFetchSource(sourceIncludes, sourceExcludes);
+        }
+        for (String field : fields) {
+            request.addField(field);
+        }
+        for (String field : fieldDataFields) {
+            request.addFieldDataField(field);
+        }
+
         // Facets
         for (FacetBuilder facet : facets) {
             request.addFacet(facet);
@@ -255,7 +496,7 @@ public class IndexQuery<T extends Index> {
             request.setExplain(true);
         }
 
-        if (IndexClient.config.showRequest) {
+        if (IndexClient.config != null && IndexClient.config.showRequest) {
             if (StringUtils.isNotBlank(query)) {
                 Logger.debug("ElasticSearch : Query -> " + query);
             } else {
@@ -265,15 +506,31 @@ public class IndexQuery<T extends Index> {
         return request;
     }
 
-    private IndexResults<T> toSearchResults(@NotNull JestRichResult jestRichResult) {
-        List<T> results = Lists.newArrayList();
-        long count = jestRichResult.getTotalHits();
-        List<Facet> facetsResponse = jestRichResult.getFacets();
-        for (JestRichResult.Result h : jestRichResult.getHits()) {
-            results.add(h.getObject(clazz));
-        }
-        if (Logger.isDebugEnabled()) {
-            Logger.debug("ElasticSearch : Results -> " + Joiner.on(",").join(results));
+    IndexResults<T> toSearchResults(@NotNull JestRichResult jestRichResult) {
+        return toSearchResults(clazz, lazy, from, size, jestRichResult);
+    }
+
+    static <T extends Index> IndexResults<T> toSearchResults(Class<T> clazz, boolean lazy, int from, int size,
+                                                            @NotNull JestRichResult jestRichResult) {
+        List<T> results;
+        long count;
+        List<Facet> facetsResponse;
+        if (lazy) {
+            List<JestRichResult.Result> hits = jestRichResult.getHits();
+            results = new LazyHitList<>(hits, clazz);
+            count = jestRichResult.getTotalHitsAsLong();
+            facetsResponse = jestRichResult.getFacets();
+            if (Logger.isDebugEnabled()) {
+                Logger.debug("ElasticSearch : Results -> " + Joiner.on(",").join(hits));
+            }
+        } else {
+            JestRichResult.Hits<T> hits = jestRichResult.readHits(clazz, false);
+            results = hits.getObjects();
+            count = hits.getTotal();
+            facetsResponse = hits.getFacets();
+            if (Logger.isDebugEnabled()) {
+                Logger.debug("ElasticSearch : Results -> " + Joiner.on(",").join(results));
+            }
         }
         long pageSize = 10;
         if (size > -1) {
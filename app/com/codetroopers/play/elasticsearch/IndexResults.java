@@ -1,7 +1,10 @@
 package com.codetroopers.play.elasticsearch;
 
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
 import io.searchbox.core.search.facet.Facet;
 
+import javax.annotation.Nullable;
+
 import java.util.List;
 
 /**
@@ -29,7 +32,7 @@ public class IndexResults<T extends Index> {
      */
     public long pageNb;
 
-    /** The results. */
+    /** The results, a {@link LazyHitList} when the query is lazy */
     public List<T> results;
 
     /** The facets. */
@@ -53,5 +56,18 @@ public class IndexResults<T extends Index> {
         this.facets = facets;
     }
 
+    /**
+     * Hits of the response (ids, scores and sources), readable without converting them
+     *
+     * @return the hits, null when the results were converted eagerly
+     */
+    @Nullable
+    public List<JestRichResult.Result> getHits() {
+        if (results instanceof LazyHitList) {
+            return ((LazyHitList<T>) results).getHits();
+        }
+        return null;
+    }
+
 }
 
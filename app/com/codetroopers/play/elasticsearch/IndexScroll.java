@@ -0,0 +1,187 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestClientWrapper;
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+import com.codetroopers.play.elasticsearch.jest.ScrollAction;
+import org.elasticsearch.ElasticsearchException;
+import play.Logger;
+import play.libs.F;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterates over all the hits of a query, one scroll batch at a time : only the current batch (and the next one when
+ * prefetching) is held in memory. The scroll is cleared once the last batch has been read, or when the iteration is
+ * closed before.
+ * <p/>
+ * When prefetching, the request of the next batch is sent as soon as a batch is received, while the current one is
+ * being consumed. {@link #nextBatchAsync()} reads the batches without blocking, the iterator waits for a batch at
+ * most the request timeout (elasticsearch.scroll.request_timeout).
+ *
+ * @param <T> extends Index
+ */
+public class IndexScroll<T extends Index> implements Iterator<T>, Iterable<T>, Closeable {
+
+    private final Class<T> clazz;
+    // 30s
+    static final long DEFAULT_REQUEST_TIMEOUT = 30000;
+
+    private final String keepAlive;
+    private final long requestTimeout;
+    private final boolean prefetch;
+    private final long total;
+
+    private String scrollId;
+    private List<T> batch = Collections.emptyList();
+    private int position = 0;
+    private F.Promise<JestRichResult> nextBatch;
+    private boolean exhausted = false;
+
+    /**
+     * @param clazz
+     * @param first     response of the search request which opened the scroll
+     * @param keepAlive time the scroll is kept alive between two batches (ex : 1m)
+     * @param prefetch  fetches the next batch while the current one is consumed
+     */
+    public IndexScroll(Class<T> clazz, JestRichResult first, String keepAlive, boolean prefetch) {
+        this(clazz, first, keepAlive, prefetch,
+                IndexClient.config != null ? IndexClient.config.scrollRequestTimeout : DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * @param clazz
+     * @param first          response of the search request which opened the scroll
+     * @param keepAlive      time the scroll is kept alive between two batches (ex : 1m)
+     * @param prefetch       fetches the next batch while the current one is consumed
+     * @param requestTimeout time (in milliseconds) the iterator waits for a prefetched batch
+     */
+    public IndexScroll(Class<T> clazz, JestRichResult first, String keepAlive, boolean prefetch, long requestTimeout) {
+        this.clazz = clazz;
+        this.keepAlive = keepAlive;
+        this.requestTimeout = requestTimeout;
+        this.prefetch = prefetch;
+        checkSucceeded(first);
+        this.total = first.getTotalHitsAsLong();
+        onBatch(first, true);
+    }
+
+    /**
+     * @return total number of hits of the query
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (position >= batch.size() && !exhausted) {
+            final JestRichResult result;
+            if (nextBatch != null) {
+                result = nextBatch.get(requestTimeout, TimeUnit.MILLISECONDS);
+                nextBatch = null;
+            } else {
+                result = JestClientWrapper.execute(ScrollAction.next(scrollId, keepAlive));
+            }
+            checkSucceeded(result);
+            onBatch(result, false);
+        }
+        return position < batch.size();
+    }
+
+    /**
+     * Reads the hits not returned yet by the iterator, up to the end of the next batch, without blocking : the batch
+     * is requested if it is not already prefetched. The next call should wait for the promise to be redeemed.
+     *
+     * @return the hits of the next batch, an empty list once all the hits have been read
+     */
+    public F.Promise<List<T>> nextBatchAsync() {
+        if (position < batch.size() || exhausted) {
+            return F.Promise.pure(takeBatch());
+        }
+        final F.Promise<JestRichResult> result;
+        if (nextBatch != null) {
+            result = nextBatch;
+            nextBatch = null;
+        } else {
+            result = JestClientWrapper.executeAsync(ScrollAction.next(scrollId, keepAlive));
+        }
+        return result.map(new F.Function<JestRichResult, List<T>>() {
+            @Override
+            public List<T> apply(JestRichResult jestResult) {
+                checkSucceeded(jestResult);
+                onBatch(jestResult, false);
+                return takeBatch();
+            }
+        });
+    }
+
+    private List<T> takeBatch() {
+        final List<T> hits = batch.subList(position, batch.size());
+        position = batch.size();
+        return hits;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return batch.get(position++);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    private void onBatch(JestRichResult result, boolean first) {
+        final String id = result.getScrollId();
+        if (id != null) {
+            scrollId = id;
+        }
+        batch = result.readHits(clazz, false).getObjects();
+        position = 0;
+        // the first response of a scan search has no hit, they come with the scroll requests
+        // an empty batch ends the scroll otherwise
+        if (scrollId == null || (batch.isEmpty() && (!first || total == 0))) {
+            close();
+        } else if (prefetch) {
+            nextBatch = JestClientWrapper.executeAsync(ScrollAction.next(scrollId, keepAlive));
+        }
+    }
+
+    private static void checkSucceeded(@Nullable JestRichResult result) {
+        if (result == null || !result.isSucceeded()) {
+            throw new ElasticsearchException("ElasticSearch : scroll request failed : " + (result == null ? null : result.getErrorMessage()));
+        }
+    }
+
+    /**
+     * Clears the scroll on the cluster, the iteration is over
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        // a batch still in flight is dropped with the scroll
+        nextBatch = null;
+        if (scrollId != null) {
+            final String id = scrollId;
+            scrollId = null;
+            final JestRichResult result = JestClientWrapper.execute(ScrollAction.clear(id));
+            if (!result.isSucceeded()) {
+                Logger.warn("ElasticSearch : unable to clear scroll " + id + " : " + result.getErrorMessage());
+            }
+        }
+    }
+}
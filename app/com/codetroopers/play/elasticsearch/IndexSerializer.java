@@ -0,0 +1,38 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads the source of a document directly as JSON tokens, without going through the Map of
+ * {@link Indexable#toIndex()} / {@link Indexable#fromIndex(java.util.Map)}.
+ * <p/>
+ * A serializer is attached to an Index class with {@link com.codetroopers.play.elasticsearch.annotations.IndexSerializedBy}
+ * or {@link IndexSerializers#register(Class, IndexSerializer)}, or generated at compile time for the classes annotated
+ * with {@link com.codetroopers.play.elasticsearch.annotations.GenerateIndexSerializer}. toIndex / fromIndex remain used
+ * for the classes without one.
+ *
+ * @param <T>
+ */
+public interface IndexSerializer<T extends Index> {
+
+    /**
+     * Writes the source of the document, as a JSON object (the id is not part of it)
+     *
+     * @param indexable
+     * @param writer
+     * @throws IOException
+     */
+    void write(T indexable, JsonWriter writer) throws IOException;
+
+    /**
+     * Reads a document from its source, unknown fields should be skipped
+     *
+     * @param reader positioned on the source JSON object
+     * @return a new document
+     * @throws IOException
+     */
+    T read(JsonReader reader) throws IOException;
+}
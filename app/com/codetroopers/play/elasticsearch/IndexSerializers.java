@@ -0,0 +1,186 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.annotations.GenerateIndexSerializer;
+import com.codetroopers.play.elasticsearch.annotations.IndexSerializedBy;
+import com.codetroopers.play.elasticsearch.jest.DeferredSource;
+import com.codetroopers.play.elasticsearch.json.JsonCodecs;
+import com.google.common.base.Optional;
+import com.google.common.io.CharStreams;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.elasticsearch.ElasticsearchException;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the {@link IndexSerializer} of each Index class, looked up once per class
+ */
+public abstract class IndexSerializers {
+
+    // absent for the classes relying on toIndex / fromIndex
+    private static final ConcurrentMap<Class<?>, Optional<IndexSerializer<?>>> serializers = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the serializer of an Index class, replacing the one defined by its annotations (if any)
+     * <p/>
+     * The registry is cleared when the plugin stops : register the serializers when the application starts.
+     *
+     * @param clazz
+     * @param serializer
+     * @param <T>
+     */
+    public static <T extends Index> void register(Class<T> clazz, IndexSerializer<T> serializer) {
+        serializers.put(clazz, Optional.<IndexSerializer<?>>of(serializer));
+    }
+
+    /**
+     * Forgets the serializers, registered ones included (the application classes are reloaded in dev mode)
+     */
+    public static void clear() {
+        serializers.clear();
+    }
+
+    /**
+     * Get the serializer of an Index class
+     *
+     * @param clazz
+     * @param <T>
+     * @return the serializer, null when the class relies on toIndex / fromIndex
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Index> IndexSerializer<T> get(Class<T> clazz) {
+        Optional<IndexSerializer<?>> serializer = serializers.get(clazz);
+        if (serializer == null) {
+            serializer = Optional.<IndexSerializer<?>>fromNullable(fromAnnotations(clazz));
+            final Optional<IndexSerializer<?>> previous = serializers.putIfAbsent(clazz, serializer);
+            if (previous != null) {
+                serializer = previous;
+            }
+        }
+        return (IndexSerializer<T>) serializer.orNull();
+    }
+
+    /**
+     * Source of a document to send to the index, written when the request is written : with the serializer of its
+     * class when it has one, as the Map of toIndex otherwise
+     *
+     * @param indexable
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static DeferredSource toSource(final Index indexable) {
+        final IndexSerializer<Index> serializer = get((Class<Index>) indexable.getClass());
+        if (serializer == null) {
+            return new DeferredSource() {
+                @Override
+                public void writeTo(Appendable out) throws IOException {
+                    JsonCodecs.get().write(indexable.toIndex(), out);
+                }
+
+                @Override
+                public Object getValue() {
+                    return indexable.toIndex();
+                }
+            };
+        }
+        return new DeferredSource() {
+            @Override
+            public void writeTo(Appendable out) throws IOException {
+                writeTo(new JsonWriter(CharStreams.asWriter(out)));
+            }
+
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                try {
+                    serializer.write(indexable, writer);
+                } catch (IOException e) {
+                    throw new ElasticsearchException("ElasticSearch : unable to serialize " + indexable.getClass().getCanonicalName(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads a document from the source of a hit with the serializer of its class
+     *
+     * @param source
+     * @param clazz
+     * @param <T>
+     * @return the document, null when the class has no serializer
+     */
+    public static <T extends Index> T fromSource(JsonObject source, Class<T> clazz) {
+        final IndexSerializer<T> serializer = get(clazz);
+        if (serializer == null) {
+            return null;
+        }
+        try {
+            return new SerializerAdapter<>(serializer).fromJsonTree(source);
+        } catch (JsonIOException e) {
+            throw new ElasticsearchException("ElasticSearch : unable to read a " + clazz.getCanonicalName() + " from " + source, e);
+        }
+    }
+
+    /**
+     * @return the serializer given by {@link IndexSerializedBy}, else the one generated for {@link GenerateIndexSerializer},
+     * null when the class has none of them
+     */
+    private static IndexSerializer<?> fromAnnotations(Class<?> clazz) {
+        final IndexSerializedBy annotation = clazz.getAnnotation(IndexSerializedBy.class);
+        if (annotation != null) {
+            return newSerializer(annotation.value(), clazz);
+        }
+        if (clazz.isAnnotationPresent(GenerateIndexSerializer.class)) {
+            final String generated = generatedName(clazz);
+            try {
+                return newSerializer(Class.forName(generated, true, clazz.getClassLoader()), clazz);
+            } catch (ClassNotFoundException e) {
+                throw new ElasticsearchException("ElasticSearch : no generated serializer " + generated + " for "
+                        + clazz.getCanonicalName() + ", was the annotation processor run ?", e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param clazz
+     * @return the name of the serializer generated for the class, see {@link GenerateIndexSerializer}
+     */
+    static String generatedName(Class<?> clazz) {
+        return clazz.getName().replace('$', '_') + "IndexSerializer";
+    }
+
+    private static IndexSerializer<?> newSerializer(Class<?> serializerClass, Class<?> clazz) {
+        try {
+            return (IndexSerializer<?>) serializerClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException | ClassCastException e) {
+            throw new ElasticsearchException("ElasticSearch : unable to create the serializer " + serializerClass.getCanonicalName()
+                    + " of " + clazz.getCanonicalName(), e);
+        }
+    }
+
+    /**
+     * Exposes a serializer as a Gson TypeAdapter, to read the JSON tree of a hit with it
+     */
+    private static class SerializerAdapter<T extends Index> extends TypeAdapter<T> {
+        private final IndexSerializer<T> serializer;
+
+        private SerializerAdapter(IndexSerializer<T> serializer) {
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            serializer.write(value, out);
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            return serializer.read(in);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import io.searchbox.indices.*;
 import io.searchbox.indices.mapping.GetMapping;
 import io.searchbox.indices.mapping.PutMapping;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.index.query.FilterBuilder;
@@ -13,7 +14,11 @@ import play.Logger;
 import play.libs.F;
 
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -35,7 +40,7 @@ public abstract class IndexService {
         return new JestIndexRequestBuilder(indexPath.index)
                 .setType(indexPath.type)
                 .setId(id)
-                .setSource(indexable.toIndex());
+                .setSource(IndexSerializers.toSource(indexable));
     }
 
     /**
@@ -85,6 +90,10 @@ public abstract class IndexService {
      * @return
      */
     public static F.Promise<JestRichResult> indexAsync(IndexQueryPath indexPath, String id, Index indexable) {
+        final JestWriteCoalescer coalescer = IndexClient.writeCoalescer;
+        if (coalescer != null) {
+            return coalescer.index(getJestIndexRequestBuilder(indexPath, id, indexable));
+        }
         return getJestIndexRequestBuilder(indexPath, id, indexable).executeAsync();
     }
 
@@ -136,7 +145,7 @@ public abstract class IndexService {
     private static JestBulkRequestBuilder getBulkRequestBuilder(IndexQueryPath indexPath, List<? extends Index> indexables) {
         final JestBulkRequestBuilder jestBulkRequestBuilder = new JestBulkRequestBuilder();
         for (Index indexable : indexables) {
-            jestBulkRequestBuilder.add(getJestIndexRequestBuilder(indexPath, indexable.id, indexable).getAction());
+            jestBulkRequestBuilder.add(getJestIndexRequestBuilder(indexPath, indexable.id, indexable));
         }
         return jestBulkRequestBuilder;
     }
@@ -164,6 +173,77 @@ public abstract class IndexService {
         return getBulkRequestBuilder(indexPath, indexables).executeAsync();
     }
 
+    /**
+     * Bulk index a list of indexables, sending again only the items rejected by an overloaded cluster
+     *
+     * @param indexPath
+     * @param indexables
+     * @param retryPolicy
+     * @return
+     */
+    public static JestRichResult indexBulk(IndexQueryPath indexPath, List<? extends Index> indexables, BulkRetryPolicy retryPolicy) {
+        JestRichResult jestResult = getBulkRequestBuilder(indexPath, indexables).executeWithRetry(retryPolicy);
+        log(jestResult, "index bulk");
+        return jestResult;
+    }
+
+    /**
+     * Bulk index a list of indexables asynchronously, sending again only the items rejected by an overloaded cluster
+     *
+     * @param indexPath
+     * @param indexables
+     * @param retryPolicy
+     * @return
+     */
+    public static F.Promise<JestRichResult> indexBulkAsync(IndexQueryPath indexPath, List<? extends Index> indexables, BulkRetryPolicy retryPolicy) {
+        return getBulkRequestBuilder(indexPath, indexables).executeWithRetryAsync(retryPolicy);
+    }
+
+    /**
+     * Bulk index a large list of indexables : the list is split in chunks (elasticsearch.bulk.actions and
+     * elasticsearch.bulk.size) sent concurrently (elasticsearch.bulk.parallelism)
+     *
+     * @param indexPath
+     * @param indexables
+     * @return a result aggregating the items of every chunk
+     */
+    public static JestRichResult indexBulkParallel(IndexQueryPath indexPath, List<? extends Index> indexables) {
+        final IndexConfig config = IndexClient.config;
+        return indexBulkParallel(indexPath, indexables, config.bulkActions, config.bulkSize, config.bulkParallelism);
+    }
+
+    /**
+     * Bulk index a large list of indexables : the list is split in chunks sent concurrently
+     *
+     * @param indexPath
+     * @param indexables
+     * @param chunkActions max number of documents per chunk, -1 for no limit
+     * @param chunkSize    max size (in bytes) of a chunk, -1 for no limit
+     * @param parallelism  max number of chunks in flight
+     * @return a result aggregating the items of every chunk
+     */
+    public static JestRichResult indexBulkParallel(IndexQueryPath indexPath, List<? extends Index> indexables,
+                                                   int chunkActions, long chunkSize, int parallelism) {
+        JestRichResult jestResult = getBulkRequestBuilder(indexPath, indexables).executeParallel(chunkActions, chunkSize, parallelism);
+        log(jestResult, "index bulk");
+        return jestResult;
+    }
+
+    /**
+     * Bulk index a large list of indexables asynchronously : the list is split in chunks sent concurrently
+     *
+     * @param indexPath
+     * @param indexables
+     * @param chunkActions max number of documents per chunk, -1 for no limit
+     * @param chunkSize    max size (in bytes) of a chunk, -1 for no limit
+     * @param parallelism  max number of chunks in flight
+     * @return a result aggregating the items of every chunk
+     */
+    public static F.Promise<JestRichResult> indexBulkParallelAsync(IndexQueryPath indexPath, List<? extends Index> indexables,
+                                                                   int chunkActions, long chunkSize, int parallelism) {
+        return getBulkRequestBuilder(indexPath, indexables).executeParallelAsync(chunkActions, chunkSize, parallelism);
+    }
+
     /**
      * Create a BulkRequestBuilder for a List of json-encoded objects
      *
@@ -215,6 +295,214 @@ public abstract class IndexService {
         return bulkRequestBuilder.execute();
     }
 
+    /**
+     * Create a BulkRequestBuilder deleting a Collection of ids
+     *
+     * @param indexPath
+     * @param ids
+     * @return
+     */
+    public static JestBulkRequestBuilder getDeleteBulkRequestBuilder(IndexQueryPath indexPath, Collection<String> ids) {
+        JestBulkRequestBuilder bulkRequestBuilder = new JestBulkRequestBuilder();
+        for (String id : ids) {
+            bulkRequestBuilder.add(getDeleteRequestBuilder(indexPath, id));
+        }
+        return bulkRequestBuilder;
+    }
+
+    /**
+     * Bulk delete a Collection of ids
+     *
+     * @param indexPath
+     * @param ids
+     * @return
+     */
+    public static JestRichResult deleteBulk(IndexQueryPath indexPath, Collection<String> ids) {
+        JestRichResult jestResult = getDeleteBulkRequestBuilder(indexPath, ids).execute();
+        log(jestResult, "delete bulk");
+        return jestResult;
+    }
+
+    /**
+     * Bulk delete a Collection of ids asynchronously
+     *
+     * @param indexPath
+     * @param ids
+     * @return
+     */
+    public static F.Promise<JestRichResult> deleteBulkAsync(IndexQueryPath indexPath, Collection<String> ids) {
+        return getDeleteBulkRequestBuilder(indexPath, ids).executeAsync();
+    }
+
+    /**
+     * Create a BulkRequestBuilder applying the same update script to several documents.
+     * The key of the Map is the id of the document, the value holds the script params for this document
+     *
+     * @param indexPath
+     * @param updateFieldValuesById
+     * @param updateScript
+     * @return
+     */
+    public static JestBulkRequestBuilder getUpdateBulkRequestBuilder(IndexQueryPath indexPath,
+                                                                     Map<String, Map<String, Object>> updateFieldValuesById,
+                                                                     String updateScript) {
+        JestBulkRequestBuilder bulkRequestBuilder = new JestBulkRequestBuilder();
+        for (Map.Entry<String, Map<String, Object>> entry : updateFieldValuesById.entrySet()) {
+            bulkRequestBuilder.add(getUpdateRequestBuilder(indexPath, entry.getKey(), entry.getValue(), updateScript));
+        }
+        return bulkRequestBuilder;
+    }
+
+    /**
+     * Bulk update documents with the same script.
+     * The key of the Map is the id of the document, the value holds the script params for this document
+     *
+     * @param indexPath
+     * @param updateFieldValuesById
+     * @param updateScript
+     * @return
+     */
+    public static JestRichResult updateBulk(IndexQueryPath indexPath,
+                                            Map<String, Map<String, Object>> updateFieldValuesById,
+                                            String updateScript) {
+        JestRichResult jestResult = getUpdateBulkRequestBuilder(indexPath, updateFieldValuesById, updateScript).execute();
+        log(jestResult, "update bulk");
+        return jestResult;
+    }
+
+    /**
+     * Bulk update documents with the same script asynchronously
+     *
+     * @param indexPath
+     * @param updateFieldValuesById
+     * @param updateScript
+     * @return
+     */
+    public static F.Promise<JestRichResult> updateBulkAsync(IndexQueryPath indexPath,
+                                                            Map<String, Map<String, Object>> updateFieldValuesById,
+                                                            String updateScript) {
+        return getUpdateBulkRequestBuilder(indexPath, updateFieldValuesById, updateScript).executeAsync();
+    }
+
+    /**
+     * Get the bulk processor buffering the *Buffered operations
+     *
+     * @return
+     */
+    public static JestBulkProcessor getBulkProcessor() {
+        if (IndexClient.bulkProcessor == null) {
+            throw new IllegalStateException("ElasticSearch : bulk processor is not started");
+        }
+        return IndexClient.bulkProcessor;
+    }
+
+    /**
+     * Buffer the indexation of an Indexable object, it will be sent with the next bulk
+     *
+     * @param indexPath
+     * @param id
+     * @param indexable
+     */
+    public static void indexBuffered(IndexQueryPath indexPath, String id, Index indexable) {
+        getBulkProcessor().add(getJestIndexRequestBuilder(indexPath, id, indexable));
+    }
+
+    /**
+     * Buffer the indexation of a json document, it will be sent with the next bulk
+     *
+     * @param indexPath
+     * @param id
+     * @param json
+     */
+    public static void indexBuffered(IndexQueryPath indexPath, String id, String json) {
+        getBulkProcessor().add(getJestIndexRequestBuilder(indexPath, id, json));
+    }
+
+    /**
+     * Buffer the update of a document, it will be sent with the next bulk
+     *
+     * @param indexPath
+     * @param id
+     * @param updateFieldValues The fields and new values for which the update should be done
+     * @param updateScript
+     */
+    public static void updateBuffered(IndexQueryPath indexPath,
+                                      String id,
+                                      Map<String, Object> updateFieldValues,
+                                      String updateScript) {
+        getBulkProcessor().add(getUpdateRequestBuilder(indexPath, id, updateFieldValues, updateScript));
+    }
+
+    /**
+     * Buffer the deletion of a document, it will be sent with the next bulk
+     *
+     * @param indexPath
+     * @param id
+     */
+    public static void deleteBuffered(IndexQueryPath indexPath, String id) {
+        getBulkProcessor().add(getDeleteRequestBuilder(indexPath, id));
+    }
+
+    /**
+     * Get the outbox journaling the *Durable operations
+     *
+     * @return
+     */
+    public static JestOutbox getOutbox() {
+        if (IndexClient.outbox == null) {
+            throw new IllegalStateException("ElasticSearch : outbox is not started, please define elasticsearch.outbox.path");
+        }
+        return IndexClient.outbox;
+    }
+
+    /**
+     * Write the indexation of an Indexable object to the outbox journal, it will be sent even if the cluster
+     * is unreachable now or the application restarts in the meantime
+     *
+     * @param indexPath
+     * @param id
+     * @param indexable
+     */
+    public static void indexDurable(IndexQueryPath indexPath, String id, Index indexable) {
+        getOutbox().index(getJestIndexRequestBuilder(indexPath, id, indexable));
+    }
+
+    /**
+     * Write the indexation of a json document to the outbox journal
+     *
+     * @param indexPath
+     * @param id
+     * @param json
+     */
+    public static void indexDurable(IndexQueryPath indexPath, String id, String json) {
+        getOutbox().index(getJestIndexRequestBuilder(indexPath, id, json));
+    }
+
+    /**
+     * Write the update of a document to the outbox journal
+     *
+     * @param indexPath
+     * @param id
+     * @param updateFieldValues The fields and new values for which the update should be done
+     * @param updateScript
+     */
+    public static void updateDurable(IndexQueryPath indexPath,
+                                     String id,
+                                     Map<String, Object> updateFieldValues,
+                                     String updateScript) {
+        getOutbox().update(getUpdateRequestBuilder(indexPath, id, updateFieldValues, updateScript));
+    }
+
+    /**
+     * Write the deletion of a document to the outbox journal
+     *
+     * @param indexPath
+     * @param id
+     */
+    public static void deleteDurable(IndexQueryPath indexPath, String id) {
+        getOutbox().delete(getDeleteRequestBuilder(indexPath, id));
+    }
+
     /**
      * Create an UpdateRequestBuilder
      *
@@ -289,6 +577,10 @@ public abstract class IndexService {
      * @return
      */
     public static F.Promise<JestRichResult> deleteAsync(IndexQueryPath indexPath, String id) {
+        final JestWriteCoalescer coalescer = IndexClient.writeCoalescer;
+        if (coalescer != null) {
+            return coalescer.delete(getDeleteRequestBuilder(indexPath, id));
+        }
         return getDeleteRequestBuilder(indexPath, id).executeAsync();
     }
 
@@ -341,19 +633,32 @@ public abstract class IndexService {
     }
 
     /**
-     * Get Indexable Object for an Id
+     * Get Indexable Object for an Id, served from the near cache when elasticsearch.get.cache.max_staleness is defined
      *
      * @param indexPath
      * @param clazz
      * @return
      */
     public static <T extends Index> T get(IndexQueryPath indexPath, Class<T> clazz, String id) {
+        final GetCache cache = IndexClient.getCache;
+        if (cache != null) {
+            final JestRichResult cached = cache.getIfPresent(indexPath.index, indexPath.type, id);
+            if (cached != null) {
+                return getTFromGetResponse(clazz, cached);
+            }
+            final long writeCount = cache.writeCount(indexPath.index, indexPath.type, id);
+            final JestRichResult getResponse = getGetRequestBuilder(indexPath, id).execute();
+            cache.put(indexPath.index, indexPath.type, id, writeCount, getResponse);
+            return getTFromGetResponse(clazz, getResponse);
+        }
         JestGetRequestBuilder getRequestBuilder = getGetRequestBuilder(indexPath, id);
         return getTFromGetResponse(clazz, getRequestBuilder.execute());
     }
 
     /**
-     * Get Indexable Object for an Id asynchronously
+     * Get Indexable Object for an Id asynchronously, batched with the other gets of the window when
+     * elasticsearch.get.batch_window is defined, served from the near cache when elasticsearch.get.cache.max_staleness is
+     * defined
      *
      * @param indexPath
      * @param clazz
@@ -362,17 +667,90 @@ public abstract class IndexService {
      * @return
      */
     @NotNull
-    public static <T extends Index> F.Promise<T> getAsync(IndexQueryPath indexPath, final Class<T> clazz, String id) {
-        final F.Promise<JestRichResult> jestResultPromise = getGetRequestBuilder(indexPath, id).executeAsync();
+    public static <T extends Index> F.Promise<T> getAsync(final IndexQueryPath indexPath, final Class<T> clazz, final String id) {
+        final GetCache cache = IndexClient.getCache;
+        if (cache != null) {
+            final JestRichResult cached = cache.getIfPresent(indexPath.index, indexPath.type, id);
+            if (cached != null) {
+                return F.Promise.pure(getTFromGetResponse(clazz, cached));
+            }
+        }
+        final long writeCount = cache != null ? cache.writeCount(indexPath.index, indexPath.type, id) : 0;
+        final F.Promise<JestRichResult> jestResultPromise;
+        final JestGetBatcher batcher = IndexClient.getBatcher;
+        if (batcher != null) {
+            jestResultPromise = batcher.get(indexPath.index, indexPath.type, id);
+        } else {
+            jestResultPromise = getGetRequestBuilder(indexPath, id).executeAsync();
+        }
         return jestResultPromise.map(
                 new F.Function<JestRichResult, T>() {
                     public T apply(JestRichResult getResponse) {
+                        if (cache != null) {
+                            cache.put(indexPath.index, indexPath.type, id, writeCount, getResponse);
+                        }
                         return getTFromGetResponse(clazz, getResponse);
                     }
                 }
         );
     }
 
+    /**
+     * Get Indexable Objects for several ids in one _mget request
+     *
+     * @param indexPath
+     * @param clazz
+     * @param ids
+     * @param <T>
+     * @return the documents in the order of the ids, and the ids which were not found
+     */
+    public static <T extends Index> MultiGetResults<T> multiGet(IndexQueryPath indexPath, Class<T> clazz, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return new MultiGetResults<>(ids, new HashMap<String, T>());
+        }
+        final JestRichResult jestResult = execute(getMultiGetAction(indexPath, ids));
+        log(jestResult, "multi get response");
+        return toMultiGetResults(clazz, ids, jestResult);
+    }
+
+    /**
+     * Get Indexable Objects for several ids in one _mget request, asynchronously
+     *
+     * @param indexPath
+     * @param clazz
+     * @param ids
+     * @param <T>
+     * @return the documents in the order of the ids, and the ids which were not found
+     */
+    public static <T extends Index> F.Promise<MultiGetResults<T>> multiGetAsync(IndexQueryPath indexPath, final Class<T> clazz, final Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return F.Promise.pure(new MultiGetResults<T>(ids, new HashMap<String, T>()));
+        }
+        return JestClientWrapper.executeAsync(getMultiGetAction(indexPath, ids)).map(
+                new F.Function<JestRichResult, MultiGetResults<T>>() {
+                    public MultiGetResults<T> apply(JestRichResult jestResult) {
+                        return toMultiGetResults(clazz, ids, jestResult);
+                    }
+                }
+        );
+    }
+
+    public static MultiGetAction getMultiGetAction(IndexQueryPath indexPath, Collection<String> ids) {
+        final MultiGetAction action = new MultiGetAction();
+        // each document is asked once, even if its id is given several times
+        for (String id : new LinkedHashSet<>(ids)) {
+            action.add(indexPath.index, indexPath.type, id);
+        }
+        return action;
+    }
+
+    private static <T extends Index> MultiGetResults<T> toMultiGetResults(Class<T> clazz, Collection<String> ids, JestRichResult jestResult) {
+        if (!jestResult.isSucceeded()) {
+            Logger.warn("ElasticSearch : multi get failed : " + jestResult.getErrorMessage());
+        }
+        return MultiGetResults.of(clazz, ids, jestResult);
+    }
+
     /**
      * Get a reponse for a simple request
      *
@@ -410,6 +788,68 @@ public abstract class IndexService {
         return indexQuery.fetchAsync(indexPath, filter);
     }
 
+    /**
+     * Runs several queries on the same index path in one _msearch request
+     *
+     * @param indexPath
+     * @param queries
+     * @return the results of each query
+     */
+    public static MultiSearchResults multiSearch(IndexQueryPath indexPath, List<? extends IndexQuery<?>> queries) {
+        return multiSearch(queries, Collections.nCopies(queries.size(), indexPath));
+    }
+
+    /**
+     * Runs several queries in one _msearch request
+     *
+     * @param queries
+     * @param indexPaths index path of each query
+     * @return the results of each query
+     */
+    public static MultiSearchResults multiSearch(List<? extends IndexQuery<?>> queries, List<IndexQueryPath> indexPaths) {
+        final JestRichResult jestResult = execute(getMultiSearchAction(queries, indexPaths));
+        log(jestResult, "multi search response");
+        return new MultiSearchResults(queries, jestResult.getResponses());
+    }
+
+    /**
+     * Runs asynchronously several queries on the same index path in one _msearch request
+     *
+     * @param indexPath
+     * @param queries
+     * @return the results of each query
+     */
+    public static F.Promise<MultiSearchResults> multiSearchAsync(IndexQueryPath indexPath, List<? extends IndexQuery<?>> queries) {
+        return multiSearchAsync(queries, Collections.nCopies(queries.size(), indexPath));
+    }
+
+    /**
+     * Runs asynchronously several queries in one _msearch request
+     *
+     * @param queries
+     * @param indexPaths index path of each query
+     * @return the results of each query
+     */
+    public static F.Promise<MultiSearchResults> multiSearchAsync(final List<? extends IndexQuery<?>> queries, List<IndexQueryPath> indexPaths) {
+        return JestClientWrapper.executeAsync(getMultiSearchAction(queries, indexPaths)).map(
+                new F.Function<JestRichResult, MultiSearchResults>() {
+                    public MultiSearchResults apply(JestRichResult jestResult) {
+                        log(jestResult, "multi search response");
+                        return new MultiSearchResults(queries, jestResult.getResponses());
+                    }
+                }
+        );
+    }
+
+    public static MultiSearchAction getMultiSearchAction(List<? extends IndexQuery<?>> queries, List<IndexQueryPath> indexPaths) {
+        Validate.isTrue(queries.size() == indexPaths.size(), "one index path is expected per query");
+        final List<JestSearchRequestBuilder> requests = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            requests.add(queries.get(i).getSearchRequestBuilder(indexPaths.get(i)));
+        }
+        return new MultiSearchAction(requests);
+    }
+
     /**
      * Test if an indice Exists
      *
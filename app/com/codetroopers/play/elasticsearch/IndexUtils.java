@@ -1,11 +1,15 @@
 package com.codetroopers.play.elasticsearch;
 
 import org.elasticsearch.common.geo.GeoPoint;
+import org.joda.time.LocalDateTime;
+import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
 import play.Logger;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public abstract class IndexUtils {
 
@@ -50,27 +54,17 @@ public abstract class IndexUtils {
 
 
     public static <T extends Index> T getInstanceIndex(Class<T> clazz) {
-        T object = null;
-        try {
-            object = clazz.newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
-            Logger.error("...", e);
-        }
-        return object;
+        return IndexMetadata.of(clazz).newInstance();
     }
 
     public static <T extends Indexable> T getInstanceIndexable(Class<T> clazz) {
-        T object = null;
-        try {
-            object = clazz.newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
-            Logger.error("...", e);
-        }
-        return object;
+        return IndexMetadata.of(clazz).newInstance();
     }
 
     /**
-     * Convert String to Object
+     * Converts a value read from the index to the target type
+     * <p/>
+     * The converter of each (value class, target type) pair is resolved once and cached.
      *
      * @param value
      * @param targetType
@@ -80,61 +74,162 @@ public abstract class IndexUtils {
         if (value == null) {
             return null;
         }
-        if (targetType.equals(value.getClass())) {
+        return converter(value.getClass(), targetType).convert(value);
+    }
+
+    /**
+     * Conversion of a value of a given class to a target type
+     */
+    private interface Converter {
+        Object convert(Object value);
+    }
+
+    private static final Converter IDENTITY = new Converter() {
+        @Override
+        public Object convert(Object value) {
             return value;
         }
+    };
 
-        if (targetType.equals(String.class)) {
-            return value.toString();
-        }
-        else if (targetType.equals(BigDecimal.class)) {
-            return new BigDecimal(value.toString());
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Converter>> converters = new ConcurrentHashMap<>();
+
+    /**
+     * Forgets the cached converters (the application classes are reloaded in dev mode)
+     */
+    public static void clearConverters() {
+        converters.clear();
+    }
+
+    private static Converter converter(Class<?> sourceType, Class<?> targetType) {
+        ConcurrentMap<Class<?>, Converter> bySource = converters.get(targetType);
+        if (bySource == null) {
+            bySource = new ConcurrentHashMap<>();
+            final ConcurrentMap<Class<?>, Converter> previous = converters.putIfAbsent(targetType, bySource);
+            if (previous != null) {
+                bySource = previous;
+            }
         }
-        else if (targetType.equals(Date.class)) {
-            return convertToDate(value);
+        Converter converter = bySource.get(sourceType);
+        if (converter == null) {
+            converter = createConverter(sourceType, targetType);
+            bySource.put(sourceType, converter);
         }
-        else if (targetType.equals(Integer.class)) {
-            if (value instanceof Number) {
-                return ((Number) value).intValue();
-            }
-            else {
-                return Integer.valueOf(value.toString());
-            }
+        return converter;
+    }
+
+    private static Converter createConverter(final Class<?> sourceType, final Class<?> targetType) {
+        if (targetType.equals(sourceType)) {
+            return IDENTITY;
         }
-        else if (targetType.equals(Long.class)) {
-            if (value instanceof Number) {
-                return ((Number) value).longValue();
-            }
-            else {
-                return Long.valueOf(value.toString());
+        final boolean number = Number.class.isAssignableFrom(sourceType);
+        if (targetType.equals(String.class)) {
+            return new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return value.toString();
+                }
+            };
+        } else if (targetType.equals(BigDecimal.class)) {
+            return new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return new BigDecimal(value.toString());
+                }
+            };
+        } else if (targetType.equals(Date.class)) {
+            return new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return convertToDate(value);
+                }
+            };
+        } else if (targetType.equals(Integer.class) || targetType.equals(int.class)) {
+            if (sourceType.equals(Integer.class)) {
+                return IDENTITY;
             }
-        }
-        else if (targetType.equals(Double.class)) {
-            if (value instanceof Number) {
-                return ((Number) value).doubleValue();
+            return number ? new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return ((Number) value).intValue();
+                }
+            } : new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return Integer.valueOf(value.toString());
+                }
+            };
+        } else if (targetType.equals(Long.class) || targetType.equals(long.class)) {
+            if (sourceType.equals(Long.class)) {
+                return IDENTITY;
             }
-            else {
-                return Double.valueOf(value.toString());
+            return number ? new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return ((Number) value).longValue();
+                }
+            } : new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return Long.valueOf(value.toString());
+                }
+            };
+        } else if (targetType.equals(Double.class) || targetType.equals(double.class)) {
+            if (sourceType.equals(Double.class)) {
+                return IDENTITY;
             }
-        }
-        else if (targetType.equals(Float.class)) {
-            if (value instanceof Number) {
-                return ((Number) value).floatValue();
+            return number ? new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return ((Number) value).doubleValue();
+                }
+            } : new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return Double.valueOf(value.toString());
+                }
+            };
+        } else if (targetType.equals(Float.class) || targetType.equals(float.class)) {
+            if (sourceType.equals(Float.class)) {
+                return IDENTITY;
             }
-            else {
-                return Float.valueOf(value.toString());
+            return number ? new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return ((Number) value).floatValue();
+                }
+            } : new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return Float.valueOf(value.toString());
+                }
+            };
+        } else if (targetType.equals(Boolean.class) || targetType.equals(boolean.class)) {
+            if (sourceType.equals(Boolean.class)) {
+                return IDENTITY;
             }
+            return new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return Boolean.valueOf(value.toString());
+                }
+            };
+        } else if (targetType.equals(UUID.class)) {
+            return new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    return UUID.fromString((String) value);
+                }
+            };
+        } else if (targetType.equals(GeoPoint.class)) {
+            return new Converter() {
+                @Override
+                public Object convert(Object value) {
+                    Map geoValuesMap = (Map) value;
+                    return new GeoPoint((Double) geoValuesMap.get("lat"), (Double) geoValuesMap.get("lon"));
+                }
+            };
         }
-        else if (targetType.equals(UUID.class)) {
-            return UUID.fromString((String) value);
-        }
-        else if (targetType.equals(GeoPoint.class)) {
-            Map geoValuesMap = (Map) value;
-            return new GeoPoint((Double)geoValuesMap.get("lat"),(Double)geoValuesMap.get("lon"));
-        }
-        else {
-            return value;
-        }
+        return IDENTITY;
     }
 
     /**
@@ -165,11 +260,115 @@ public abstract class IndexUtils {
     }
 
     private static Date getDate(String val) {
+        final Date date = parseDate(val);
+        if (date != null) {
+            return date;
+        }
         try {
-            return ISODateTimeFormat.dateTimeParser().withZoneUTC().parseLocalDateTime(val).toDate();
-        } catch (Throwable t) {
-            Logger.error(val, t);
+            return ISO_PARSER.parseLocalDateTime(val).toDate();
+        } catch (IllegalArgumentException e) {
+            Logger.error("ElasticSearch : unable to parse date " + val + " : " + e.getMessage());
         }
         return null;
     }
+
+    private static final DateTimeFormatter ISO_PARSER = ISODateTimeFormat.dateTimeParser().withZoneUTC();
+
+    /**
+     * Parses the common ISO 8601 forms (yyyy-MM-dd, yyyy-MM-ddTHH:mm, yyyy-MM-ddTHH:mm:ss[.SSS...], followed by
+     * an optional Z or +/-hh[:mm] offset) without going through a Joda formatter. As with the Joda parser,
+     * the offset is ignored and the date is built in the default time zone.
+     *
+     * @param val
+     * @return the date, null if the value does not have one of these forms
+     */
+    static Date parseDate(String val) {
+        final int length = val.length();
+        if (length < 10 || val.charAt(4) != '-' || val.charAt(7) != '-') {
+            return null;
+        }
+        final int year = digits(val, 0, 4);
+        final int month = digits(val, 5, 7);
+        final int day = digits(val, 8, 10);
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int millis = 0;
+        int position = 10;
+        if (position < length && val.charAt(position) == 'T') {
+            if (length < 16 || val.charAt(13) != ':') {
+                return null;
+            }
+            hour = digits(val, 11, 13);
+            minute = digits(val, 14, 16);
+            position = 16;
+            if (position < length && val.charAt(position) == ':') {
+                if (length < 19) {
+                    return null;
+                }
+                second = digits(val, 17, 19);
+                position = 19;
+                if (position < length && (val.charAt(position) == '.' || val.charAt(position) == ',')) {
+                    position++;
+                    int scale = 100;
+                    final int start = position;
+                    while (position < length && Character.isDigit(val.charAt(position))) {
+                        millis += (val.charAt(position) - '0') * scale;
+                        scale /= 10;
+                        position++;
+                    }
+                    if (position == start) {
+                        return null;
+                    }
+                }
+            }
+        }
+        if (position < length && !isOffset(val, position)) {
+            return null;
+        }
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        try {
+            return new LocalDateTime(year, month, day, hour, minute, second, millis).toDate();
+        } catch (IllegalArgumentException e) {
+            // invalid day of month
+            return null;
+        }
+    }
+
+    private static boolean isOffset(String val, int position) {
+        final int remaining = val.length() - position;
+        final char sign = val.charAt(position);
+        if (sign == 'Z') {
+            return remaining == 1;
+        }
+        if (sign != '+' && sign != '-') {
+            return false;
+        }
+        if (remaining == 3) {
+            return digits(val, position + 1, position + 3) >= 0;
+        }
+        if (remaining == 5) {
+            return digits(val, position + 1, position + 5) >= 0;
+        }
+        return remaining == 6 && val.charAt(position + 3) == ':'
+                && digits(val, position + 1, position + 3) >= 0 && digits(val, position + 4, position + 6) >= 0;
+    }
+
+    /**
+     * @return the number written with the digits between start and end, -1 if one is not a digit
+     */
+    private static int digits(String val, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            final char c = val.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
 }
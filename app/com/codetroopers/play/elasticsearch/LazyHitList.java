@@ -0,0 +1,89 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+import com.google.gson.JsonObject;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * List of the hits of a search response, a hit is converted to <code>T</code> the first time it is accessed (then
+ * cached). The ids, scores and sources of the hits can be read without converting them.
+ * <p/>
+ * The list can be modified : on the first modification every hit is converted and copied to a plain list, which
+ * holds the elements from then on. The hits ({@link #getHits()}, {@link #id(int)}...) keep describing the response.
+ *
+ * @param <T> extends Index
+ */
+public class LazyHitList<T extends Index> extends AbstractList<T> implements RandomAccess {
+
+    private final List<JestRichResult.Result> hits;
+    private final Class<T> clazz;
+    // the converted elements, once the list has been modified
+    private List<T> copy = null;
+
+    public LazyHitList(List<JestRichResult.Result> hits, Class<T> clazz) {
+        this.hits = hits;
+        this.clazz = clazz;
+    }
+
+    @Override
+    public T get(int index) {
+        if (copy != null) {
+            return copy.get(index);
+        }
+        return hits.get(index).getObject(clazz);
+    }
+
+    @Override
+    public int size() {
+        return copy != null ? copy.size() : hits.size();
+    }
+
+    @Override
+    public T set(int index, T element) {
+        return mutable().set(index, element);
+    }
+
+    @Override
+    public void add(int index, T element) {
+        mutable().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public T remove(int index) {
+        final T removed = mutable().remove(index);
+        modCount++;
+        return removed;
+    }
+
+    private List<T> mutable() {
+        if (copy == null) {
+            copy = new ArrayList<>(this);
+        }
+        return copy;
+    }
+
+    /**
+     * @return the hits of the response, in the order of the response (not of the list once modified)
+     */
+    public List<JestRichResult.Result> getHits() {
+        return Collections.unmodifiableList(hits);
+    }
+
+    public String id(int index) {
+        return hits.get(index).id();
+    }
+
+    public Float score(int index) {
+        return hits.get(index).score();
+    }
+
+    public JsonObject source(int index) {
+        return hits.get(index).source();
+    }
+}
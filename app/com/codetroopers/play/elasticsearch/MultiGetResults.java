@@ -0,0 +1,131 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Documents of a multi get, in the order of the requested ids, the ids which were not found and the ids which could
+ * not be read. A multi get which failed as a whole has neither documents nor missing ids, see {@link #isFailed()}.
+ *
+ * @param <T> extends Index
+ */
+public class MultiGetResults<T extends Index> {
+
+    private final List<T> results;
+    private final List<String> missingIds;
+    private final Map<String, T> byId;
+    private final Map<String, String> errors;
+    private final String errorMessage;
+
+    public MultiGetResults(Collection<String> ids, Map<String, T> found) {
+        this(ids, found, Collections.<String, String>emptyMap(), null);
+    }
+
+    /**
+     * @param ids          requested ids
+     * @param found        documents found, by id
+     * @param errors       errors of the documents which could not be read, by id
+     * @param errorMessage error of the whole request, null if it succeeded
+     */
+    public MultiGetResults(Collection<String> ids, Map<String, T> found, Map<String, String> errors, @Nullable String errorMessage) {
+        this.results = new ArrayList<>(found.size());
+        this.missingIds = new ArrayList<>();
+        this.byId = found;
+        this.errors = errors;
+        this.errorMessage = errorMessage;
+        if (errorMessage != null) {
+            // nothing is known of the documents
+            return;
+        }
+        for (String id : ids) {
+            final T object = found.get(id);
+            if (object != null) {
+                results.add(object);
+            } else if (!errors.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+    }
+
+    /**
+     * Reads the documents of a multi get response
+     *
+     * @param clazz
+     * @param ids      requested ids
+     * @param response
+     * @return
+     */
+    public static <T extends Index> MultiGetResults<T> of(Class<T> clazz, Collection<String> ids, JestRichResult response) {
+        final Map<String, T> found = new LinkedHashMap<>();
+        final Map<String, String> errors = new LinkedHashMap<>();
+        if (!response.isSucceeded()) {
+            final String errorMessage = response.getErrorMessage();
+            return new MultiGetResults<>(ids, found, errors, errorMessage != null ? errorMessage : "multi get failed");
+        }
+        for (JestRichResult.Result doc : response.getDocs()) {
+            final String error = doc.error();
+            if (error != null) {
+                errors.put(doc.id(), error);
+            } else if (doc.found()) {
+                found.put(doc.id(), doc.getObject(clazz));
+            }
+        }
+        return new MultiGetResults<>(ids, found, errors, null);
+    }
+
+    /**
+     * @return the documents found, in the order of the requested ids
+     */
+    public List<T> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * @return the requested ids which do not exist (found:false), in the order they were requested
+     */
+    public List<String> getMissingIds() {
+        return Collections.unmodifiableList(missingIds);
+    }
+
+    /**
+     * @return true when the multi get failed as a whole, its documents are then unknown
+     */
+    public boolean isFailed() {
+        return errorMessage != null;
+    }
+
+    /**
+     * @return the error of the whole request, null if it did not fail
+     */
+    @Nullable
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * @return the errors of the documents which could not be read, by id
+     */
+    public Map<String, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @param id
+     * @return the document of this id, null if it was not found
+     */
+    @Nullable
+    public T get(String id) {
+        return byId.get(id);
+    }
+
+    public Map<String, T> asMap() {
+        return Collections.unmodifiableMap(byId);
+    }
+}
@@ -0,0 +1,75 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of a multi search, one {@link IndexResults} per query, in the order of the queries
+ */
+public class MultiSearchResults {
+
+    private final List<IndexQuery<?>> queries;
+    private final List<JestRichResult> responses;
+    private final List<IndexResults<?>> results;
+
+    MultiSearchResults(List<? extends IndexQuery<?>> queries, List<JestRichResult> responses) {
+        this.queries = new ArrayList<IndexQuery<?>>(queries);
+        this.responses = responses;
+        this.results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            final JestRichResult response = i < responses.size() ? responses.get(i) : null;
+            results.add(response != null && response.isSucceeded() ? queries.get(i).toSearchResults(response) : null);
+        }
+    }
+
+    public int size() {
+        return queries.size();
+    }
+
+    /**
+     * @param query one of the queries of the multi search
+     * @return its results, null if it failed
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <T extends Index> IndexResults<T> get(IndexQuery<T> query) {
+        return (IndexResults<T>) results.get(indexOf(query));
+    }
+
+    /**
+     * @param index position of the query in the multi search
+     * @return its results, null if it failed
+     */
+    @Nullable
+    public IndexResults<?> get(int index) {
+        return results.get(index);
+    }
+
+    public boolean isFailed(IndexQuery<?> query) {
+        return results.get(indexOf(query)) == null;
+    }
+
+    /**
+     * @return the error of the query, null if it succeeded
+     */
+    @Nullable
+    public String getErrorMessage(IndexQuery<?> query) {
+        final int index = indexOf(query);
+        if (results.get(index) != null) {
+            return null;
+        }
+        return index < responses.size() ? responses.get(index).getErrorMessage() : "no response";
+    }
+
+    private int indexOf(IndexQuery<?> query) {
+        for (int i = 0; i < queries.size(); i++) {
+            if (queries.get(i) == query) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("query is not part of the multi search");
+    }
+}
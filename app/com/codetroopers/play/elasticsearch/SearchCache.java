@@ -0,0 +1,295 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+import com.codetroopers.play.elasticsearch.jest.JestSearchRequestBuilder;
+import com.codetroopers.play.elasticsearch.jest.MultiGetAction;
+import com.codetroopers.play.elasticsearch.jest.MultiSearchAction;
+import com.codetroopers.play.elasticsearch.jest.NdjsonBulk;
+import com.codetroopers.play.elasticsearch.jest.ScrollAction;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import io.searchbox.Action;
+import io.searchbox.BulkableAction;
+import io.searchbox.core.Search;
+import io.searchbox.indices.Refresh;
+import org.apache.commons.lang3.StringUtils;
+import play.libs.F;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of search responses, keyed by the indices, types, search type and source of the request.
+ * <p/>
+ * Every request writing to an index (index, update, delete, bulk, refresh...) executed by this library moves the
+ * generation of this index, which is part of the key : entries read before the write are not used anymore and
+ * age out of the cache. Writes only become visible to searches once the index is refreshed : searches started
+ * less than the refresh interval (elasticsearch.search.cache.refresh_interval) after a write to one of their
+ * indices are not cached, until the index is refreshed through this library or the interval is over.
+ * <p/>
+ * A cache is used by the queries of the {@link Index.Finder} it is set on, or by any {@link IndexQuery} through
+ * {@link IndexQuery#setCache(SearchCache)}.
+ */
+public class SearchCache {
+
+    // 1s, the default refresh interval of the indices
+    static final long DEFAULT_REFRESH_INTERVAL = 1000;
+
+    private static final Writes allWrites = new Writes();
+    private static final Writes anyWrites = new Writes();
+    private static final ConcurrentMap<String, Writes> writes = new ConcurrentHashMap<>();
+
+    private final Cache<String, JestRichResult> cache;
+
+    /**
+     * @param maxSize    max number of responses kept
+     * @param timeToLive time (in milliseconds) a response is kept
+     */
+    public SearchCache(long maxSize, long timeToLive) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(timeToLive, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Runs the search, or returns the response of the same search if it is still valid
+     *
+     * @param request
+     * @return
+     */
+    public JestRichResult execute(JestSearchRequestBuilder request) {
+        final String key = key(request);
+        final JestRichResult cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        final boolean cacheable = !isRefreshPending(request.getIndices());
+        final JestRichResult result = request.execute();
+        if (cacheable) {
+            put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the search asynchronously, or returns the response of the same search if it is still valid
+     *
+     * @param request
+     * @return
+     */
+    public F.Promise<JestRichResult> executeAsync(JestSearchRequestBuilder request) {
+        final String key = key(request);
+        final JestRichResult cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return F.Promise.pure(cached);
+        }
+        final F.Promise<JestRichResult> promise = request.executeAsync();
+        if (isRefreshPending(request.getIndices())) {
+            return promise;
+        }
+        return promise.map(new F.Function<JestRichResult, JestRichResult>() {
+            @Override
+            public JestRichResult apply(JestRichResult result) {
+                put(key, result);
+                return result;
+            }
+        });
+    }
+
+    private void put(String key, @Nullable JestRichResult result) {
+        if (result != null && result.isSucceeded()) {
+            cache.put(key, result);
+        }
+    }
+
+    /**
+     * @return hit, miss and eviction counts
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * The key of the request, the current generation of its indices included : it changes with every write
+     */
+    static String key(JestSearchRequestBuilder request) {
+        return request.getIndices() + "/" + request.getTypes() + "@" + generation(request.getIndices())
+                + "#" + request.getSearchType() + "#" + request.getSource();
+    }
+
+    static long generation(@Nullable String indices) {
+        if (isAnyIndex(indices)) {
+            // any write may change the result
+            return anyWrites.generation.get();
+        }
+        long generation = allWrites.generation.get();
+        for (String index : StringUtils.split(indices, ',')) {
+            final Writes indexWrites = writes.get(index.trim());
+            if (indexWrites != null) {
+                generation += indexWrites.generation.get();
+            }
+        }
+        return generation;
+    }
+
+    /**
+     * @return true when one of the indices was written less than the refresh interval ago and not refreshed since :
+     * a search may not see the write yet
+     */
+    static boolean isRefreshPending(@Nullable String indices) {
+        final long now = System.currentTimeMillis();
+        if (isAnyIndex(indices)) {
+            return anyWrites.isRefreshPending(now);
+        }
+        if (allWrites.isRefreshPending(now)) {
+            return true;
+        }
+        for (String index : StringUtils.split(indices, ',')) {
+            final Writes indexWrites = writes.get(index.trim());
+            if (indexWrites != null && indexWrites.isRefreshPending(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAnyIndex(@Nullable String indices) {
+        return StringUtils.isBlank(indices) || indices.startsWith("_") || indices.contains("*");
+    }
+
+    private static Writes writes(String index) {
+        Writes indexWrites = writes.get(index);
+        if (indexWrites == null) {
+            writes.putIfAbsent(index, new Writes());
+            indexWrites = writes.get(index);
+        }
+        return indexWrites;
+    }
+
+    /**
+     * Invalidates the cached responses of searches on this index
+     *
+     * @param index
+     */
+    public static void invalidate(@Nullable String index) {
+        if (StringUtils.isBlank(index)) {
+            invalidateAll();
+            return;
+        }
+        writes(index).written();
+        anyWrites.written();
+    }
+
+    /**
+     * Invalidates every cached response
+     */
+    public static void invalidateAll() {
+        allWrites.written();
+        anyWrites.written();
+    }
+
+    /**
+     * The writes to this index are visible to searches, they can be cached again
+     */
+    static void refreshed(@Nullable String index) {
+        if (StringUtils.isBlank(index)) {
+            refreshedAll();
+            return;
+        }
+        final Writes indexWrites = writes.get(index);
+        if (indexWrites != null) {
+            indexWrites.refreshed();
+        }
+    }
+
+    static void refreshedAll() {
+        allWrites.refreshed();
+        anyWrites.refreshed();
+        for (Writes indexWrites : writes.values()) {
+            indexWrites.refreshed();
+        }
+    }
+
+    /**
+     * Invalidates the responses of searches on the indices written by the action, called once the action is executed
+     *
+     * @param action
+     */
+    public static void onExecuted(Action action) {
+        if (isRead(action)) {
+            return;
+        }
+        if (action instanceof BulkableAction) {
+            invalidate(((BulkableAction) action).getIndex());
+        } else if (action instanceof NdjsonBulk && !((NdjsonBulk) action).getActions().isEmpty()) {
+            for (BulkableAction bulkableAction : ((NdjsonBulk) action).getActions()) {
+                invalidate(bulkableAction.getIndex());
+            }
+        } else {
+            // indices are the first part of the uri ( ex : index1,index2/_refresh ), an uri starting with _ applies to all of them
+            final String uri = StringUtils.defaultString(action.getURI());
+            final String indices = StringUtils.substringBefore(StringUtils.removeStart(uri, "/"), "/");
+            final boolean refresh = action instanceof Refresh || StringUtils.substringBefore(uri, "?").endsWith("_refresh");
+            if (isAnyIndex(indices)) {
+                invalidateAll();
+                if (refresh) {
+                    refreshedAll();
+                }
+            } else {
+                for (String index : StringUtils.split(indices, ',')) {
+                    invalidate(index.trim());
+                    if (refresh) {
+                        refreshed(index.trim());
+                    }
+                }
+            }
+        }
+    }
+
+    static boolean isRead(Action action) {
+        return "GET".equals(action.getRestMethodName()) || "HEAD".equals(action.getRestMethodName())
+                || action instanceof Search || action instanceof MultiSearchAction || action instanceof MultiGetAction
+                || action instanceof ScrollAction;
+    }
+
+    private static long refreshInterval() {
+        return IndexClient.config != null ? IndexClient.config.searchCacheRefreshInterval : DEFAULT_REFRESH_INTERVAL;
+    }
+
+    /**
+     * Generation and time of the last write not refreshed yet of an index
+     */
+    private static final class Writes {
+        private final AtomicLong generation = new AtomicLong();
+        // 0 once refreshed
+        private volatile long lastWrite = 0;
+
+        void written() {
+            generation.incrementAndGet();
+            lastWrite = System.currentTimeMillis();
+        }
+
+        void refreshed() {
+            lastWrite = 0;
+        }
+
+        boolean isRefreshPending(long now) {
+            final long written = lastWrite;
+            return written != 0 && now - written < refreshInterval();
+        }
+    }
+}
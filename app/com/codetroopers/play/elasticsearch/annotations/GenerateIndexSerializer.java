@@ -0,0 +1,23 @@
+package com.codetroopers.play.elasticsearch.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Generates at compile time the {@link com.codetroopers.play.elasticsearch.IndexSerializer} of the annotated Index
+ * class, used in place of toIndex / fromIndex.
+ * <p/>
+ * The generated serializer writes and reads the public fields of the class (superclasses included, static, transient
+ * and the fields of Index excluded) under their name : String, primitives and their wrappers, Date, enums, and
+ * List / Set / Collection of those. The class must be public (static when nested) with a public no-arg constructor.
+ * <p/>
+ * The serializer is generated in the package of the class, named after its binary name with '_' in place of '$',
+ * followed by <code>IndexSerializer</code> (<code>Product</code> gets <code>ProductIndexSerializer</code>,
+ * <code>Catalog.Product</code> gets <code>Catalog_ProductIndexSerializer</code>).
+ * The processor is discovered by javac from the classpath (or named with
+ * <code>-processor com.codetroopers.play.elasticsearch.processor.IndexSerializerProcessor</code>).
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface GenerateIndexSerializer {
+}
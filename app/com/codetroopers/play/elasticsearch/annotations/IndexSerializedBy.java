@@ -0,0 +1,17 @@
+package com.codetroopers.play.elasticsearch.annotations;
+
+import com.codetroopers.play.elasticsearch.IndexSerializer;
+
+import java.lang.annotation.*;
+
+/**
+ * Streaming serializer used to write and read the documents of the annotated Index class,
+ * in place of toIndex / fromIndex
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IndexSerializedBy {
+
+    Class<? extends IndexSerializer> value();
+}
@@ -0,0 +1,65 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Defines how many times the retryable failed items of a bulk are sent again, and how long to wait between
+ * two attempts (exponential backoff with jitter).
+ */
+public class BulkRetryPolicy {
+
+    private final int maxRetries;
+    private final long initialDelay;
+    private final long maxDelay;
+
+    /**
+     * @param maxRetries   number of times failed items are sent again
+     * @param initialDelay delay (in milliseconds) before the first retry
+     * @param maxDelay     upper bound (in milliseconds) of the delay between two retries
+     */
+    public BulkRetryPolicy(int maxRetries, long initialDelay, long maxDelay) {
+        this.maxRetries = maxRetries;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * 8 retries, starting at 50ms and capped at 5s
+     */
+    public static BulkRetryPolicy exponentialBackoff() {
+        return new BulkRetryPolicy(8, 50, 5000);
+    }
+
+    public static BulkRetryPolicy noRetry() {
+        return new BulkRetryPolicy(0, 0, 0);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Delay to wait before the given retry : half of the exponential delay plus a random part of the other half,
+     * so that clients rejected at the same time do not come back at the same time.
+     *
+     * @param retry retry number, starting at 1
+     * @return the delay in milliseconds
+     */
+    public long delay(int retry) {
+        long exponential = initialDelay << Math.min(retry - 1, 30);
+        if (exponential <= 0 || exponential > maxDelay) {
+            exponential = maxDelay;
+        }
+        final long half = exponential / 2;
+        return half + (half > 0 ? ThreadLocalRandom.current().nextLong(half + 1) : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "BulkRetryPolicy{" +
+                "maxRetries=" + maxRetries +
+                ", initialDelay=" + initialDelay +
+                ", maxDelay=" + maxDelay +
+                '}';
+    }
+}
@@ -0,0 +1,98 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous counterpart of {@link CompressingHttpClient}.
+ * <p/>
+ * The request producer of the async client captures the request entity before any interceptor runs, the body is
+ * therefore gzipped here, before the request is handed over to the client. The response is buffered by the client,
+ * it is decompressed before the callback of Jest reads it.
+ */
+public class CompressingHttpAsyncClient extends CloseableHttpAsyncClient {
+
+    private final CloseableHttpAsyncClient delegate;
+    private final HttpCompression compression;
+
+    /**
+     * @param delegate  client executing the requests
+     * @param threshold bodies smaller than this size (in bytes) are sent as is
+     */
+    public CompressingHttpAsyncClient(CloseableHttpAsyncClient delegate, long threshold) {
+        this(delegate, new HttpCompression(threshold));
+    }
+
+    CompressingHttpAsyncClient(CloseableHttpAsyncClient delegate, HttpCompression compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    @Override
+    public Future<HttpResponse> execute(HttpHost target, HttpRequest request, HttpContext context, final FutureCallback<HttpResponse> callback) {
+        try {
+            compression.prepare(request);
+        } catch (IOException e) {
+            final BasicFuture<HttpResponse> future = new BasicFuture<>(callback);
+            future.failed(e);
+            return future;
+        }
+        return delegate.execute(target, request, context, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                HttpCompression.decompress(response);
+                if (callback != null) {
+                    callback.completed(response);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                if (callback != null) {
+                    callback.failed(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                if (callback != null) {
+                    callback.cancelled();
+                }
+            }
+        });
+    }
+
+    /**
+     * Requests already turned into a producer are sent as is
+     */
+    @Override
+    public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+                                 HttpContext context, FutureCallback<T> callback) {
+        return delegate.execute(requestProducer, responseConsumer, context, callback);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
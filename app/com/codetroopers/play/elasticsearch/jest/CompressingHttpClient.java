@@ -0,0 +1,88 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+/**
+ * {@link CloseableHttpClient} gzipping the request bodies larger than a threshold and asking for (then
+ * decompressing) gzipped responses, every request is executed by the client built by Jest.
+ * {@link CompressingHttpAsyncClient} does the same for the asynchronous requests.
+ * <p/>
+ * The number of bytes of the request bodies before and after compression are counted, see
+ * {@link #getRequestBytes()} and {@link #getSentBytes()}.
+ */
+public class CompressingHttpClient extends CloseableHttpClient {
+
+    public static final String GZIP = HttpCompression.GZIP;
+
+    private final CloseableHttpClient delegate;
+    private final HttpCompression compression;
+
+    /**
+     * @param delegate  client executing the requests
+     * @param threshold bodies smaller than this size (in bytes) are sent as is
+     */
+    public CompressingHttpClient(CloseableHttpClient delegate, long threshold) {
+        this(delegate, new HttpCompression(threshold));
+    }
+
+    CompressingHttpClient(CloseableHttpClient delegate, HttpCompression compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+        compression.prepare(request);
+        final CloseableHttpResponse response = delegate.execute(target, request, context);
+        HttpCompression.decompress(response);
+        return response;
+    }
+
+    static byte[] gzip(byte[] body) throws IOException {
+        return HttpCompression.gzip(body);
+    }
+
+    /**
+     * @return size (in bytes) of the request bodies before compression, asynchronous requests included
+     */
+    public long getRequestBytes() {
+        return compression.getRequestBytes();
+    }
+
+    /**
+     * @return size (in bytes) of the request bodies actually sent, asynchronous requests included
+     */
+    public long getSentBytes() {
+        return compression.getSentBytes();
+    }
+
+    HttpCompression getCompression() {
+        return compression;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,65 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+
+/**
+ * Source of a document written only when the body of the request holding it is written.
+ * <p/>
+ * A bulk of thousands of documents keeps a reference to each document instead of its json : the json of a document
+ * exists only while the chunk sending it is in flight (see {@link JestBulkRequestBuilder#executeParallel(int, long, int)}).
+ */
+public abstract class DeferredSource {
+
+    private static final TypeAdapter<JsonElement> TREE = new Gson().getAdapter(JsonElement.class);
+
+    /**
+     * Writes the json of the document
+     *
+     * @param out
+     * @throws IOException
+     */
+    public abstract void writeTo(Appendable out) throws IOException;
+
+    /**
+     * Writes the document as JSON tokens, for transports writing another format than json.
+     * By default the json of {@link #writeTo(Appendable)} is parsed, a source able to write its tokens directly should
+     * override this method.
+     *
+     * @param writer
+     * @throws IOException
+     */
+    public void writeTo(JsonWriter writer) throws IOException {
+        TREE.write(writer, new JsonParser().parse(toJson()));
+    }
+
+    /**
+     * @return the document as a Map, for transports writing another format than json, null if it is only available as json
+     */
+    @Nullable
+    public Object getValue() {
+        return null;
+    }
+
+    public String toJson() {
+        final StringBuilder json = new StringBuilder();
+        try {
+            writeTo(json);
+        } catch (IOException e) {
+            // cannot happen when writing to a StringBuilder
+            throw new IllegalStateException(e);
+        }
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,105 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips the request bodies larger than a threshold and decompresses the gzipped responses, shared by the
+ * synchronous ({@link CompressingHttpClient}) and the asynchronous ({@link CompressingHttpAsyncClient}) clients,
+ * the bytes of the request bodies before and after compression being counted for both.
+ */
+class HttpCompression {
+
+    static final String GZIP = "gzip";
+
+    private final long threshold;
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+
+    /**
+     * @param threshold bodies smaller than this size (in bytes) are sent as is
+     */
+    HttpCompression(long threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Asks for a gzipped response and replaces a large body by its gzipped version
+     */
+    void prepare(HttpRequest request) throws IOException {
+        if (!request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, GZIP);
+        }
+        if (request instanceof HttpEntityEnclosingRequest) {
+            compress((HttpEntityEnclosingRequest) request);
+        }
+    }
+
+    private void compress(HttpEntityEnclosingRequest request) throws IOException {
+        final HttpEntity entity = request.getEntity();
+        if (entity == null || entity.getContentEncoding() != null || request.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            return;
+        }
+        final long length = entity.getContentLength();
+        if (length >= 0 && length < threshold) {
+            // small body, sent as is
+            requestBytes.addAndGet(length);
+            sentBytes.addAndGet(length);
+            return;
+        }
+        final byte[] body = EntityUtils.toByteArray(entity);
+        requestBytes.addAndGet(body.length);
+        final byte[] compressed = gzip(body);
+        sentBytes.addAndGet(compressed.length);
+        final ByteArrayEntity gzipped = new ByteArrayEntity(compressed);
+        gzipped.setContentType(entity.getContentType());
+        gzipped.setContentEncoding(GZIP);
+        request.setEntity(gzipped);
+        request.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+    }
+
+    /**
+     * Replaces a gzipped response body by a decompressing one
+     */
+    static void decompress(HttpResponse response) {
+        final HttpEntity entity = response.getEntity();
+        if (entity != null && isGzipped(entity.getContentEncoding())) {
+            response.setEntity(new GzipDecompressingEntity(entity));
+            response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+            response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+        }
+    }
+
+    static byte[] gzip(byte[] body) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isGzipped(Header contentEncoding) {
+        return contentEncoding != null && contentEncoding.getValue() != null
+                && contentEncoding.getValue().toLowerCase().contains(GZIP);
+    }
+
+    long getRequestBytes() {
+        return requestBytes.get();
+    }
+
+    long getSentBytes() {
+        return sentBytes.get();
+    }
+}
@@ -0,0 +1,422 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.codetroopers.play.elasticsearch.IndexClient;
+import com.google.gson.Gson;
+import io.searchbox.BulkableAction;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import play.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers single index / update / delete actions and sends them as a {@link NdjsonBulk} once a number of actions,
+ * an estimated payload size or a flush interval is reached.
+ * At most <code>concurrentRequests</code> bulks are in flight at the same time, {@link #add(BulkableAction)} blocks
+ * the caller when this limit is reached (a value of 0 means bulks are executed synchronously by the caller).
+ * <p/>
+ * Instances are thread safe, they must be closed in order to send the remaining actions.
+ */
+public class JestBulkProcessor implements Closeable {
+
+    /**
+     * Notified before and after each bulk execution
+     */
+    public interface Listener {
+        void beforeBulk(long executionId, NdjsonBulk bulk, int numberOfActions);
+
+        void afterBulk(long executionId, NdjsonBulk bulk, JestRichResult result);
+
+        void afterBulk(long executionId, NdjsonBulk bulk, Throwable failure);
+    }
+
+    /**
+     * Listener logging failed bulks, used when none is provided
+     */
+    public static class LoggingListener implements Listener {
+        @Override
+        public void beforeBulk(long executionId, NdjsonBulk bulk, int numberOfActions) {
+            if (Logger.isDebugEnabled()) {
+                Logger.debug("ElasticSearch : sending bulk #" + executionId + " with " + numberOfActions + " actions");
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, NdjsonBulk bulk, JestRichResult result) {
+            if (!result.isSucceeded()) {
+                Logger.error("ElasticSearch : bulk #" + executionId + " failed : " + result.getErrorMessage());
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, NdjsonBulk bulk, Throwable failure) {
+            Logger.error("ElasticSearch : bulk #" + executionId + " failed", failure);
+        }
+    }
+
+    public static class Builder {
+        private Listener listener = new LoggingListener();
+        private int bulkActions = 1000;
+        private long bulkSize = 5 * 1024 * 1024;
+        private long flushInterval = 1000;
+        private int concurrentRequests = 1;
+
+        /**
+         * Sets the listener notified of each bulk execution
+         */
+        public Builder setListener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Sets the number of actions after which a bulk is sent, -1 to disable. Defaults to <tt>1000</tt>.
+         */
+        public Builder setBulkActions(int bulkActions) {
+            this.bulkActions = bulkActions;
+            return this;
+        }
+
+        /**
+         * Sets the estimated size (in bytes) after which a bulk is sent, -1 to disable. Defaults to <tt>5mb</tt>.
+         */
+        public Builder setBulkSize(long bulkSize) {
+            this.bulkSize = bulkSize;
+            return this;
+        }
+
+        /**
+         * Sets the interval (in milliseconds) after which pending actions are sent, -1 to disable.
+         * Defaults to <tt>1s</tt>.
+         */
+        public Builder setFlushInterval(long flushInterval) {
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        /**
+         * Sets the number of bulks allowed to be in flight at the same time. 0 means bulks are executed
+         * synchronously by the thread adding the action. Defaults to <tt>1</tt>.
+         */
+        public Builder setConcurrentRequests(int concurrentRequests) {
+            this.concurrentRequests = concurrentRequests;
+            return this;
+        }
+
+        public JestBulkProcessor build() {
+            return new JestBulkProcessor(listener, bulkActions, bulkSize, flushInterval, concurrentRequests);
+        }
+    }
+
+    private static final Gson gson = JestRichResult.createGsonWithDateFormat();
+
+    private final Listener listener;
+    private final int bulkActions;
+    private final long bulkSize;
+    private final int concurrentRequests;
+    private final Semaphore semaphore;
+    private final AtomicLong executionIdGen = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledFuture<?> scheduledFlush;
+
+    private List<BulkableAction> actions = new ArrayList<>();
+    private long estimatedSize = 0;
+    private volatile boolean closed = false;
+
+    JestBulkProcessor(Listener listener, int bulkActions, long bulkSize, long flushInterval, int concurrentRequests) {
+        this.listener = listener;
+        this.bulkActions = bulkActions;
+        this.bulkSize = bulkSize;
+        this.concurrentRequests = concurrentRequests;
+        this.semaphore = new Semaphore(Math.max(concurrentRequests, 1));
+
+        if (flushInterval > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("elasticsearch-bulk-flush"));
+            this.scheduledFlush = scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        scheduledFlush();
+                    } catch (Exception e) {
+                        Logger.error("ElasticSearch : scheduled bulk flush failed", e);
+                    }
+                }
+            }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+            this.scheduledFlush = null;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Adds an index request builder to the pending actions
+     */
+    public JestBulkProcessor add(JestIndexRequestBuilder request) {
+        return add(request.getAction());
+    }
+
+    /**
+     * Adds an update request builder to the pending actions
+     */
+    public JestBulkProcessor add(JestUpdateRequestBuilder request) {
+        return add(request.getAction());
+    }
+
+    /**
+     * Adds a delete request builder to the pending actions
+     */
+    public JestBulkProcessor add(JestDeleteRequestBuilder request) {
+        return add(request.getAction());
+    }
+
+    /**
+     * Adds an action to the pending actions, the pending actions are sent if one of the thresholds is reached.
+     */
+    public JestBulkProcessor add(BulkableAction action) {
+        // estimated outside of the lock, a deferred source has to be written to know its size
+        final long size = estimateSize(action);
+        final List<BulkableAction> toSend;
+        synchronized (this) {
+            ensureOpen();
+            actions.add(action);
+            estimatedSize += size;
+            toSend = isOverTheLimit() ? takePending() : null;
+        }
+        if (toSend != null) {
+            execute(toSend);
+        }
+        return this;
+    }
+
+    /**
+     * Sends the pending actions without waiting for a threshold to be reached
+     */
+    public void flush() {
+        final List<BulkableAction> toSend;
+        synchronized (this) {
+            ensureOpen();
+            toSend = takePending();
+        }
+        if (toSend != null) {
+            execute(toSend);
+        }
+    }
+
+    /**
+     * Flush of the scheduler, does nothing once the processor is closed (close sends the pending actions itself)
+     */
+    private void scheduledFlush() {
+        final List<BulkableAction> toSend;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            toSend = takePending();
+        }
+        if (toSend != null) {
+            execute(toSend);
+        }
+    }
+
+    /**
+     * Number of actions waiting to be sent
+     */
+    public synchronized int pendingActions() {
+        return actions.size();
+    }
+
+    /**
+     * Sends the pending actions and waits for in flight bulks to complete
+     *
+     * @return true if every in flight bulk completed before the timeout
+     */
+    public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        // no scheduled flush may start once the processor is closed
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduler.shutdown();
+        }
+        final List<BulkableAction> toSend;
+        synchronized (this) {
+            if (closed) {
+                return true;
+            }
+            closed = true;
+            toSend = takePending();
+        }
+        if (toSend != null) {
+            execute(toSend);
+        }
+        if (concurrentRequests == 0) {
+            return true;
+        }
+        if (semaphore.tryAcquire(concurrentRequests, timeout, unit)) {
+            semaphore.release(concurrentRequests);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (!awaitClose(1, TimeUnit.MINUTES)) {
+                Logger.warn("ElasticSearch : bulk processor closed with bulks still in flight");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("bulk processor already closed");
+        }
+    }
+
+    private boolean isOverTheLimit() {
+        return (bulkActions != -1 && actions.size() >= bulkActions)
+                || (bulkSize != -1 && estimatedSize >= bulkSize);
+    }
+
+    private List<BulkableAction> takePending() {
+        if (actions.isEmpty()) {
+            return null;
+        }
+        final List<BulkableAction> pending = actions;
+        actions = new ArrayList<>();
+        estimatedSize = 0;
+        return pending;
+    }
+
+    private void execute(final List<BulkableAction> toSend) {
+        final long executionId = executionIdGen.incrementAndGet();
+        final NdjsonBulk bulk = new NdjsonBulk(toSend, false);
+        listener.beforeBulk(executionId, bulk, toSend.size());
+
+        if (concurrentRequests == 0) {
+            final JestRichResult result = JestClientWrapper.execute(bulk);
+            listener.afterBulk(executionId, bulk, result);
+            return;
+        }
+
+        boolean acquired = false;
+        try {
+            semaphore.acquire();
+            acquired = true;
+            SmileTransport.dispatchAsync(IndexClient.client, bulk, new JestResultHandler<JestResult>() {
+                @Override
+                public void completed(JestResult result) {
+                    IndexClient.onExecuted(bulk);
+                    try {
+                        listener.afterBulk(executionId, bulk, new JestRichResult(result));
+                    } finally {
+                        semaphore.release();
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    IndexClient.onExecuted(bulk);
+                    try {
+                        listener.afterBulk(executionId, bulk, ex);
+                    } finally {
+                        semaphore.release();
+                    }
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            listener.afterBulk(executionId, bulk, e);
+            if (acquired) {
+                semaphore.release();
+            }
+        } catch (Exception e) {
+            listener.afterBulk(executionId, bulk, e);
+            if (acquired) {
+                semaphore.release();
+            }
+        }
+    }
+
+    /**
+     * Estimates the size taken by an action in the bulk body (metadata line + source).
+     * A {@link DeferredSource} is written to a counter, its json is not kept.
+     */
+    static long estimateSize(BulkableAction action) {
+        long size = 50;
+        final Object data = action.getData(gson);
+        if (data instanceof String) {
+            size += ((String) data).length();
+        } else if (data instanceof DeferredSource) {
+            final LengthCounter counter = new LengthCounter();
+            try {
+                ((DeferredSource) data).writeTo(counter);
+            } catch (IOException e) {
+                // cannot happen when writing to a counter
+                throw new IllegalStateException(e);
+            }
+            size += counter.length;
+        } else if (data != null) {
+            size += gson.toJson(data).length();
+        }
+        return size;
+    }
+
+    /**
+     * Counts the characters appended without keeping them
+     */
+    private static class LengthCounter implements Appendable {
+        private long length;
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            length += csq == null ? 4 : csq.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            length += csq == null ? 4 : end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            length++;
+            return this;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,20 +1,36 @@
 package com.codetroopers.play.elasticsearch.jest;
 
+import com.codetroopers.play.elasticsearch.AsyncUtils;
+import com.codetroopers.play.elasticsearch.IndexClient;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import io.searchbox.BulkableAction;
+import io.searchbox.client.JestResult;
 import io.searchbox.core.Bulk;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.WriteConsistencyLevel;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.replication.ReplicationType;
 import org.elasticsearch.common.unit.TimeValue;
+import play.Logger;
+import play.libs.F;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author cgatay
  */
 public class JestBulkRequestBuilder extends JestRequest<Bulk>{
 
+    private static final Gson gson = JestRichResult.createGsonWithDateFormat();
 
     private final List<BulkableAction> actionList;
     private ReplicationType replicationType = ReplicationType.DEFAULT;
@@ -38,45 +54,52 @@ public class JestBulkRequestBuilder extends JestRequest<Bulk>{
     /**
      * Adds an {@link IndexRequest} to the list of actions to execute. Follows the same behavior of {@link IndexRequest}
      * (for example, if no id is provided, one will be generated, or usage of the create flag).
+     * The source is serialized when the bulk is sent.
      */
     public JestBulkRequestBuilder add(JestIndexRequestBuilder request) {
+        add(request.getBulkableAction());
+        return this;
+    }
+
+    /**
+     * Adds an {@link io.searchbox.core.Delete} to the list of actions to execute.
+     */
+    public JestBulkRequestBuilder add(io.searchbox.core.Delete request) {
+        actionList.add(request);
+        return this;
+    }
+
+    /**
+     * Adds a {@link JestDeleteRequestBuilder} to the list of actions to execute.
+     */
+    public JestBulkRequestBuilder add(JestDeleteRequestBuilder request) {
         add(request.getAction());
         return this;
     }
 
-    //TODO
-//    /**
-//     * Adds an {@link org.elasticsearch.action.delete.DeleteRequest} to the list of actions to execute.
-//     */
-//    public JestBulkRequestBuilder add(DeleteRequest request) {
-//        super.request.add(request);
-//        return this;
-//    }
-//
-//    /**
-//     * Adds an {@link DeleteRequest} to the list of actions to execute.
-//     */
-//    public JestBulkRequestBuilder add(DeleteRequestBuilder request) {
-//        super.request.add(request.request());
-//        return this;
-//    }
+    /**
+     * Adds an {@link io.searchbox.core.Update} to the list of actions to execute.
+     */
+    public JestBulkRequestBuilder add(io.searchbox.core.Update request) {
+        actionList.add(request);
+        return this;
+    }
 
+    /**
+     * Adds a {@link JestUpdateRequestBuilder} to the list of actions to execute.
+     */
+    public JestBulkRequestBuilder add(JestUpdateRequestBuilder request) {
+        add(request.getAction());
+        return this;
+    }
 
-//    /**
-//     * Adds an {@link DeleteRequest} to the list of actions to execute.
-//     */
-//    public JestBulkRequestBuilder add(UpdateRequest request) {
-//        super.request.add(request);
-//        return this;
-//    }
-//
-//    /**
-//     * Adds an {@link DeleteRequest} to the list of actions to execute.
-//     */
-//    public JestBulkRequestBuilder add(UpdateRequestBuilder request) {
-//        super.request.add(request.request());
-//        return this;
-//    }
+    /**
+     * Adds any raw {@link BulkableAction} to the list of actions to execute.
+     */
+    public JestBulkRequestBuilder add(BulkableAction request) {
+        actionList.add(request);
+        return this;
+    }
 
 //    /**
 //     * Adds a framed data in binary format
@@ -143,7 +166,439 @@ public class JestBulkRequestBuilder extends JestRequest<Bulk>{
         return actionList.size();
     }
 
+    /**
+     * The actions as a plain Jest {@link Bulk}, the bulk sent by this builder is {@link #getNdjsonAction()}
+     */
+    @Override
     public Bulk getAction() {
         return new Bulk.Builder().refresh(refresh).addAction(actionList).build();
     }
+
+    /**
+     * The bulk action sent by {@link #execute()} and {@link #executeAsync()}, its body is written in a single pass
+     * (see {@link NdjsonBulk})
+     */
+    public NdjsonBulk getNdjsonAction() {
+        return buildBulk(actionList);
+    }
+
+    @Override
+    public JestRichResult execute() {
+        return JestClientWrapper.execute(getNdjsonAction());
+    }
+
+    @Override
+    public F.Promise<JestRichResult> executeAsync() {
+        return F.Promise.wrap(AsyncUtils.executeAsync(IndexClient.client, getNdjsonAction()));
+    }
+
+    /**
+     * Executes the bulk, then sends again only the items rejected with a retryable error (cluster overloaded),
+     * waiting between attempts as defined by the retry policy. A request which failed as a whole (no item in the
+     * response) is sent again with all its actions.
+     * The items of the returned result are in the order of the actions, retried items holding their last outcome.
+     */
+    public JestRichResult executeWithRetry(BulkRetryPolicy retryPolicy) {
+        final BulkRetryState state = new BulkRetryState(execute(), actionList);
+        int retry = 1;
+        while (state.hasRetryableItems() && retry <= retryPolicy.getMaxRetries()) {
+            try {
+                Thread.sleep(retryPolicy.delay(retry));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            state.merge(JestClientWrapper.execute(buildBulk(state.retryableActions())));
+            retry++;
+        }
+        return state.result();
+    }
+
+    /**
+     * Asynchronous version of {@link #executeWithRetry(BulkRetryPolicy)}, waiting between attempts does not block any thread.
+     */
+    public F.Promise<JestRichResult> executeWithRetryAsync(final BulkRetryPolicy retryPolicy) {
+        return executeAsync()
+                .recover(new F.Function<Throwable, JestRichResult>() {
+                    @Override
+                    public JestRichResult apply(Throwable throwable) {
+                        // same as a request without any item : every action is retryable
+                        return new JestRichResult(null);
+                    }
+                })
+                .flatMap(new F.Function<JestRichResult, F.Promise<JestRichResult>>() {
+                    @Override
+                    public F.Promise<JestRichResult> apply(JestRichResult result) {
+                        return retryAsync(new BulkRetryState(result, actionList), retryPolicy, 1);
+                    }
+                });
+    }
+
+    private F.Promise<JestRichResult> retryAsync(final BulkRetryState state, final BulkRetryPolicy retryPolicy, final int retry) {
+        if (!state.hasRetryableItems() || retry > retryPolicy.getMaxRetries()) {
+            return F.Promise.pure(state.result());
+        }
+        return F.Promise.timeout(retry, retryPolicy.delay(retry), TimeUnit.MILLISECONDS)
+                .flatMap(new F.Function<Integer, F.Promise<JestRichResult>>() {
+                    @Override
+                    public F.Promise<JestRichResult> apply(Integer ignored) {
+                        return JestClientWrapper.executeAsync(buildBulk(state.retryableActions()))
+                                .recover(new F.Function<Throwable, JestRichResult>() {
+                                    @Override
+                                    public JestRichResult apply(Throwable throwable) {
+                                        // same as a request without any item : every pending item stays retryable
+                                        return new JestRichResult(null);
+                                    }
+                                })
+                                .flatMap(new F.Function<JestRichResult, F.Promise<JestRichResult>>() {
+                                    @Override
+                                    public F.Promise<JestRichResult> apply(JestRichResult attempt) {
+                                        state.merge(attempt);
+                                        return retryAsync(state, retryPolicy, retry + 1);
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * Splits the actions in chunks of at most <code>chunkActions</code> actions and <code>chunkSize</code> bytes
+     * (-1 to disable a limit), and sends the chunks with at most <code>parallelism</code> of them in flight.
+     * A chunk is serialized only when it is sent, so that at most <code>parallelism</code> bodies are held in memory.
+     * The returned result aggregates the responses of the chunks : its items are in the order of the actions, the
+     * items of a chunk which could not be executed being reported as failed.
+     * <p/>
+     * Waits as long as chunks keep completing, an {@link ElasticsearchException} is thrown when none completed
+     * within the timeout of this bulk (see {@link #setTimeout(TimeValue)}).
+     */
+    public JestRichResult executeParallel(int chunkActions, long chunkSize, int parallelism) {
+        final ParallelExecution execution = executeChunks(chunkActions, chunkSize, parallelism);
+        final FiniteDuration timeout = Duration.create(this.timeout.millis(), TimeUnit.MILLISECONDS);
+        while (true) {
+            final int completed = execution.completedChunks();
+            try {
+                return Await.result(execution.promise.future(), timeout);
+            } catch (TimeoutException e) {
+                if (execution.completedChunks() == completed) {
+                    throw new ElasticsearchException("ElasticSearch : no bulk chunk completed within " + this.timeout, e);
+                }
+            } catch (Exception e) {
+                // the aggregated future never fails, only an interruption can get here
+                throw new IllegalStateException("ElasticSearch : interrupted while waiting for bulk chunks", e);
+            }
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #executeParallel(int, long, int)}
+     */
+    public F.Promise<JestRichResult> executeParallelAsync(int chunkActions, long chunkSize, int parallelism) {
+        return F.Promise.wrap(executeChunks(chunkActions, chunkSize, parallelism).promise.future());
+    }
+
+    private ParallelExecution executeChunks(int chunkActions, long chunkSize, int parallelism) {
+        final ParallelExecution execution = new ParallelExecution(chunkActions, chunkSize);
+        for (int i = 0; i < Math.max(parallelism, 1); i++) {
+            if (!execution.sendNext()) {
+                break;
+            }
+        }
+        return execution;
+    }
+
+    /**
+     * A chunk of actions with its serialized body
+     */
+    static class Chunk {
+        final int position;
+        final List<BulkableAction> actions = new ArrayList<>();
+        final StringBuilder body = new StringBuilder();
+
+        private Chunk(int position) {
+            this.position = position;
+        }
+    }
+
+    /**
+     * Cuts the actions in chunks while they are serialized, the action exceeding the size of a chunk opens the next one
+     */
+    static class Chunker {
+        private final List<BulkableAction> actions;
+        private final int chunkActions;
+        private final long chunkSize;
+        private int next;
+        private int chunks;
+        private BulkableAction overflowAction;
+        private StringBuilder overflowLines;
+
+        Chunker(List<BulkableAction> actions, int chunkActions, long chunkSize) {
+            this.actions = actions;
+            this.chunkActions = chunkActions;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * @return the next chunk, null once every action is taken
+         */
+        Chunk nextChunk() {
+            if (overflowAction == null && next >= actions.size()) {
+                return null;
+            }
+            final Chunk chunk = new Chunk(chunks++);
+            if (overflowAction != null) {
+                chunk.actions.add(overflowAction);
+                chunk.body.append(overflowLines);
+                overflowAction = null;
+                overflowLines = null;
+            }
+            while (next < actions.size() && (chunkActions <= 0 || chunk.actions.size() < chunkActions)) {
+                final BulkableAction action = actions.get(next++);
+                if (chunkSize <= 0) {
+                    NdjsonBulk.writeAction(gson, action, chunk.body);
+                    chunk.actions.add(action);
+                    continue;
+                }
+                final StringBuilder lines = new StringBuilder();
+                NdjsonBulk.writeAction(gson, action, lines);
+                if (!chunk.actions.isEmpty() && chunk.body.length() + lines.length() > chunkSize) {
+                    overflowAction = action;
+                    overflowLines = lines;
+                    break;
+                }
+                chunk.body.append(lines);
+                chunk.actions.add(action);
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * Sends the chunks one after the other on each of the parallel "lanes"
+     */
+    private class ParallelExecution {
+        private final Chunker chunker;
+        private final List<List<BulkableAction>> chunks = new ArrayList<>();
+        private final List<JestRichResult> results = new ArrayList<>();
+        private int inFlight;
+        private int completed;
+        private boolean done;
+        private final scala.concurrent.Promise<JestRichResult> promise = AsyncUtils.createPromise();
+
+        private ParallelExecution(int chunkActions, long chunkSize) {
+            this.chunker = new Chunker(actionList, chunkActions, chunkSize);
+        }
+
+        private synchronized int completedChunks() {
+            return completed;
+        }
+
+        /**
+         * Serializes and sends the next chunk, completes the execution when there is none left and none in flight
+         *
+         * @return false when there was no chunk left to send
+         */
+        private boolean sendNext() {
+            final Chunk chunk;
+            JestRichResult merged = null;
+            synchronized (this) {
+                chunk = chunker.nextChunk();
+                if (chunk != null) {
+                    chunks.add(chunk.actions);
+                    results.add(null);
+                    inFlight++;
+                } else if (inFlight == 0 && !done) {
+                    done = true;
+                    merged = mergeChunks(chunks, results);
+                }
+            }
+            if (merged != null) {
+                promise.success(merged);
+            }
+            if (chunk == null) {
+                return false;
+            }
+            try {
+                // sent through the wrapper : the request limiter applies and the search caches are invalidated
+                final F.Promise<JestRichResult> chunkPromise = JestClientWrapper.executeAsync(new NdjsonBulk(chunk.actions, chunk.body, refresh));
+                chunkPromise.onRedeem(new F.Callback<JestRichResult>() {
+                    @Override
+                    public void invoke(JestRichResult result) {
+                        done(chunk.position, result);
+                    }
+                });
+                chunkPromise.onFailure(new F.Callback<Throwable>() {
+                    @Override
+                    public void invoke(Throwable throwable) {
+                        Logger.error("ElasticSearch : bulk chunk " + chunk.position + " failed", throwable);
+                        done(chunk.position, new JestRichResult(null));
+                    }
+                });
+            } catch (Exception e) {
+                Logger.error("ElasticSearch : unable to send bulk chunk " + chunk.position, e);
+                done(chunk.position, new JestRichResult(null));
+            }
+            return true;
+        }
+
+        private void done(int chunk, JestRichResult result) {
+            synchronized (this) {
+                results.set(chunk, result);
+                inFlight--;
+                completed++;
+            }
+            sendNext();
+        }
+    }
+
+    private static JestRichResult mergeChunks(List<List<BulkableAction>> chunks, List<JestRichResult> results) {
+        final JsonArray items = new JsonArray();
+        long took = 0;
+        boolean errors = false;
+        boolean succeeded = true;
+        for (int i = 0; i < results.size(); i++) {
+            final JestRichResult result = results.get(i);
+            final List<BulkableAction> chunk = chunks.get(i);
+            final JsonObject json = result.getJsonObject();
+            succeeded &= result.isSucceeded();
+            if (json.has("took")) {
+                took += json.get("took").getAsLong();
+            }
+            final JsonElement chunkItems = json.get("items");
+            if (chunkItems != null && chunkItems.isJsonArray() && chunkItems.getAsJsonArray().size() == chunk.size()) {
+                for (JsonElement item : chunkItems.getAsJsonArray()) {
+                    items.add(item);
+                    errors |= new JestRichResult.BulkItem(item.getAsJsonObject()).isFailed();
+                }
+            } else {
+                errors = true;
+                for (BulkableAction action : chunk) {
+                    items.add(failedItem(action, result.getErrorMessage()));
+                }
+            }
+        }
+        final JsonObject merged = new JsonObject();
+        merged.addProperty("took", took);
+        merged.addProperty("errors", errors);
+        merged.add("items", items);
+
+        final JestResult jestResult = new JestResult(gson);
+        jestResult.setJsonObject(merged);
+        jestResult.setSucceeded(succeeded);
+        return new JestRichResult(jestResult);
+    }
+
+    private static JsonObject failedItem(BulkableAction action, String error) {
+        final JsonObject item = new JsonObject();
+        item.addProperty("_index", action.getIndex());
+        item.addProperty("_type", action.getType());
+        item.addProperty("_id", action.getId());
+        item.addProperty("status", 500);
+        item.addProperty("error", error != null ? error : "bulk request failed");
+        final JsonObject line = new JsonObject();
+        line.add(action.getBulkMethodName(), item);
+        return line;
+    }
+
+    private NdjsonBulk buildBulk(List<BulkableAction> actions) {
+        return new NdjsonBulk(actions, refresh);
+    }
+
+    /**
+     * Keeps track of the items of a bulk across retries
+     */
+    static class BulkRetryState {
+        private final JestRichResult result;
+        private final List<BulkableAction> actions;
+        private final JsonElement[] items;
+        private List<Integer> retryablePositions = new ArrayList<>();
+
+        BulkRetryState(JestRichResult result, List<BulkableAction> actions) {
+            this.result = result;
+            this.actions = actions;
+            this.items = new JsonElement[actions.size()];
+            final JsonElement json = result.getJsonObject().get("items");
+            if (json == null || !json.isJsonArray()) {
+                // the request failed as a whole : every action is sent again
+                for (int i = 0; i < items.length; i++) {
+                    retryablePositions.add(i);
+                }
+            } else {
+                final JsonArray array = json.getAsJsonArray();
+                for (int i = 0; i < items.length; i++) {
+                    if (i >= array.size()) {
+                        // no outcome for this action : sent again
+                        retryablePositions.add(i);
+                        continue;
+                    }
+                    items[i] = array.get(i);
+                    if (new JestRichResult.BulkItem(items[i].getAsJsonObject()).isRetryable()) {
+                        retryablePositions.add(i);
+                    }
+                }
+            }
+        }
+
+        boolean hasRetryableItems() {
+            return !retryablePositions.isEmpty();
+        }
+
+        List<BulkableAction> retryableActions() {
+            final List<BulkableAction> out = new ArrayList<>(retryablePositions.size());
+            for (Integer position : retryablePositions) {
+                out.add(actions.get(position));
+            }
+            return out;
+        }
+
+        /**
+         * Replaces the items sent again by their new outcome.
+         * If the attempt did not return any item, every pending item stays retryable, as do the items missing at
+         * the end of a response holding fewer items than sent.
+         */
+        void merge(JestRichResult attempt) {
+            final JsonElement json = attempt.getJsonObject().get("items");
+            if (json == null || !json.isJsonArray()) {
+                return;
+            }
+            final JsonArray array = json.getAsJsonArray();
+            final List<Integer> stillRetryable = new ArrayList<>();
+            for (int i = 0; i < retryablePositions.size(); i++) {
+                final int position = retryablePositions.get(i);
+                if (i >= array.size()) {
+                    // no outcome for this action : it keeps its previous one and is sent again
+                    stillRetryable.add(position);
+                    continue;
+                }
+                items[position] = array.get(i);
+                if (new JestRichResult.BulkItem(items[position].getAsJsonObject()).isRetryable()) {
+                    stillRetryable.add(position);
+                }
+            }
+            retryablePositions = stillRetryable;
+        }
+
+        /**
+         * @return the first response with its items replaced by the merged items
+         */
+        JestRichResult result() {
+            final JsonArray merged = new JsonArray();
+            boolean errors = false;
+            for (JsonElement item : items) {
+                if (item == null) {
+                    // an action never got an outcome, nothing to merge
+                    return result;
+                }
+                merged.add(item);
+                errors |= new JestRichResult.BulkItem(item.getAsJsonObject()).isFailed();
+            }
+            result.getJsonObject().add("items", merged);
+            result.getJsonObject().addProperty("errors", errors);
+            // the first request may have failed as a whole, every item has an outcome now
+            result.getResult().setSucceeded(!errors);
+            if (!errors) {
+                result.getResult().setErrorMessage(null);
+            }
+            return result;
+        }
+    }
 }
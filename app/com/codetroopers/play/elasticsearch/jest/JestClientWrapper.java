@@ -11,12 +11,14 @@ import io.searchbox.client.JestClient;
 import io.searchbox.client.JestClientFactory;
 import io.searchbox.client.JestResult;
 import io.searchbox.client.config.HttpClientConfig;
+import io.searchbox.client.http.JestHttpClient;
 import play.Logger;
 import play.libs.F;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 import java.util.List;
+import java.util.Set;
 
 import static io.searchbox.client.config.HttpClientConfig.Builder;
 
@@ -36,11 +38,30 @@ public class JestClientWrapper {
                 }
             }
         }
-        return buildJestClient(connectionUrls);
+        final JestClient client = buildJestClient(connectionUrls, config.httpCompression ? config.httpCompressionThreshold : -1);
+        final Set<SmileTransport.RequestType> smileTypes = SmileTransport.RequestType.parse(config.smileRequests);
+        if (!smileTypes.isEmpty() && client instanceof JestHttpClient) {
+            final JestHttpClient httpClient = (JestHttpClient) client;
+            SmileTransport.set(new SmileTransport(httpClient.getHttpClient(), httpClient.getAsyncClient(), connectionUrls, smileTypes));
+        } else {
+            SmileTransport.set(null);
+        }
+        return client;
     }
 
     @VisibleForTesting
     static JestClient buildJestClient(List<String> connectionUrls) {
+        return buildJestClient(connectionUrls, -1);
+    }
+
+    /**
+     * @param connectionUrls
+     * @param compressionThreshold request bodies larger than this size (in bytes) are gzipped, and gzipped responses
+     *                             are asked for, -1 to disable compression
+     * @return
+     */
+    @VisibleForTesting
+    static JestClient buildJestClient(List<String> connectionUrls, long compressionThreshold) {
         final Builder builder = new Builder(connectionUrls)
                 .multiThreaded(true);
 
@@ -50,7 +71,15 @@ public class JestClientWrapper {
         // Construct a new Jest client according to configuration via factory
         JestClientFactory factory = new JestClientFactory();
         factory.setHttpClientConfig(clientConfig);
-        return factory.getObject();
+        final JestClient client = factory.getObject();
+        if (compressionThreshold >= 0 && client instanceof JestHttpClient) {
+            // both clients share the compression and its byte counts
+            final JestHttpClient httpClient = (JestHttpClient) client;
+            final CompressingHttpClient compressingClient = new CompressingHttpClient(httpClient.getHttpClient(), compressionThreshold);
+            httpClient.setHttpClient(compressingClient);
+            httpClient.setAsyncClient(new CompressingHttpAsyncClient(httpClient.getAsyncClient(), compressingClient.getCompression()));
+        }
+        return client;
     }
 
     @NotNull
@@ -62,11 +91,17 @@ public class JestClientWrapper {
     public static JestRichResult execute(final Action action){
         JestResult jestResult;
         try {
-            jestResult = IndexClient.client.execute(action);
+            final SmileTransport smileTransport = SmileTransport.get();
+            if (smileTransport != null && smileTransport.supports(action)) {
+                jestResult = smileTransport.execute(action);
+            } else {
+                jestResult = IndexClient.client.execute(action);
+            }
         } catch (Exception e) {
             jestResult = null;
             Logger.error("ElasticSearch : Unable to execute request {}", e);
         }
+        IndexClient.onExecuted(action);
         return new JestRichResult(jestResult);
     }
     
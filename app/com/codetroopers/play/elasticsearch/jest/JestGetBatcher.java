@@ -0,0 +1,216 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.codetroopers.play.elasticsearch.AsyncUtils;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import io.searchbox.client.JestResult;
+import play.Logger;
+import play.libs.F;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches the asynchronous gets by id : the gets asked within a window are sent together, one _mget request per
+ * index. A document asked several times within the window is only fetched once.
+ * Every caller's promise is completed with a result shaped as the response of a single get, which did not
+ * succeed when the document does not exist. Once the batcher is closed, gets are sent one by one.
+ */
+public class JestGetBatcher implements Closeable {
+
+    private static final Gson gson = JestRichResult.createGsonWithDateFormat();
+
+    private final long window;
+    private final int maxIds;
+    private final ScheduledExecutorService scheduler;
+
+    private Map<String, PendingGet> pending = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+
+    /**
+     * @param window time (in milliseconds) gets are kept before being sent
+     * @param maxIds number of distinct documents after which gets are sent without waiting for the window
+     */
+    public JestGetBatcher(long window, int maxIds) {
+        this.window = window;
+        this.maxIds = maxIds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "elasticsearch-get-batcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public F.Promise<JestRichResult> get(String index, String type, String id) {
+        final F.Promise<JestRichResult> batched = batch(index, type, id);
+        return batched != null ? batched : new JestGetRequestBuilder(index, type, id).executeAsync();
+    }
+
+    /**
+     * @return the promise of the get, null when the batcher is closed
+     */
+    private F.Promise<JestRichResult> batch(String index, String type, String id) {
+        final scala.concurrent.Promise<JestRichResult> promise = AsyncUtils.createPromise();
+        final String key = index + "/" + type + "/" + id;
+        Map<String, PendingGet> toSend = null;
+        synchronized (this) {
+            if (closed) {
+                // a get racing with the shutdown is sent directly, outside of the lock
+                return null;
+            }
+            PendingGet get = pending.get(key);
+            if (get == null) {
+                get = new PendingGet(index, type, id);
+                pending.put(key, get);
+            }
+            get.promises.add(promise);
+
+            if (maxIds > 0 && pending.size() >= maxIds) {
+                toSend = takePending();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, window, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (toSend != null) {
+            send(toSend);
+        }
+        return F.Promise.wrap(promise.future());
+    }
+
+    /**
+     * Sends the pending gets now
+     */
+    public void flush() {
+        final Map<String, PendingGet> toSend;
+        synchronized (this) {
+            flushScheduled = false;
+            toSend = takePending();
+        }
+        if (toSend != null) {
+            send(toSend);
+        }
+    }
+
+    /**
+     * Number of documents waiting to be fetched
+     */
+    public synchronized int pendingGets() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+    }
+
+    private Map<String, PendingGet> takePending() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        final Map<String, PendingGet> taken = pending;
+        pending = new LinkedHashMap<>();
+        return taken;
+    }
+
+    private void send(Map<String, PendingGet> toSend) {
+        final Map<String, List<PendingGet>> byIndex = new LinkedHashMap<>();
+        for (PendingGet get : toSend.values()) {
+            List<PendingGet> gets = byIndex.get(get.index);
+            if (gets == null) {
+                gets = new ArrayList<>();
+                byIndex.put(get.index, gets);
+            }
+            gets.add(get);
+        }
+        for (final List<PendingGet> gets : byIndex.values()) {
+            final MultiGetAction action = new MultiGetAction();
+            for (PendingGet get : gets) {
+                action.add(get.index, get.type, get.id);
+            }
+            final F.Promise<JestRichResult> multiGetPromise;
+            try {
+                multiGetPromise = JestClientWrapper.executeAsync(action);
+            } catch (Exception e) {
+                fail(gets, e);
+                continue;
+            }
+            multiGetPromise.onRedeem(new F.Callback<JestRichResult>() {
+                @Override
+                public void invoke(JestRichResult result) {
+                    complete(gets, result);
+                }
+            });
+            multiGetPromise.onFailure(new F.Callback<Throwable>() {
+                @Override
+                public void invoke(Throwable failure) {
+                    fail(gets, failure);
+                }
+            });
+        }
+    }
+
+    private static void complete(List<PendingGet> gets, JestRichResult multiGetResult) {
+        final List<JestRichResult.Result> docs = multiGetResult.isSucceeded()
+                ? multiGetResult.getDocs() : new ArrayList<JestRichResult.Result>();
+        for (int i = 0; i < gets.size(); i++) {
+            final JestRichResult getResult = i < docs.size() ? toGetResult(docs.get(i)) : multiGetResult;
+            for (scala.concurrent.Promise<JestRichResult> promise : gets.get(i).promises) {
+                promise.success(getResult);
+            }
+        }
+    }
+
+    private static void fail(List<PendingGet> gets, Throwable failure) {
+        Logger.error("ElasticSearch : batched gets failed", failure);
+        for (PendingGet get : gets) {
+            for (scala.concurrent.Promise<JestRichResult> promise : get.promises) {
+                promise.failure(failure);
+            }
+        }
+    }
+
+    /**
+     * Result of a single document, shaped as the response of a get request ("_index", "_id", "_version", "_source"...)
+     */
+    private static JestRichResult toGetResult(JestRichResult.Result doc) {
+        final JsonObject docResponse = doc.result();
+        final JestResult jestResult = new JestResult(gson);
+        jestResult.setJsonObject(docResponse);
+        jestResult.setSucceeded(doc.found());
+        return new JestRichResult(jestResult);
+    }
+
+    private static class PendingGet {
+        private final String index;
+        private final String type;
+        private final String id;
+        private final List<scala.concurrent.Promise<JestRichResult>> promises = new ArrayList<>();
+
+        private PendingGet(String index, String type, String id) {
+            this.index = index;
+            this.type = type;
+            this.id = id;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.codetroopers.play.elasticsearch.jest;
 
+import com.codetroopers.play.elasticsearch.json.JsonCodecs;
 import io.searchbox.core.Index;
 
 /**
@@ -17,6 +18,19 @@ public class JestIndexRequestBuilder extends JestRequest<Index> {
 
     @Override
     public Index getAction() {
+        final SmileTransport smileTransport = SmileTransport.get();
+        // a SMILE transport writes the source itself, without turning it into JSON first
+        final boolean smile = smileTransport != null && smileTransport.handlesAll(SmileTransport.RequestType.INDEX);
+        return new Index.Builder(smile ? source : toJson(source))
+                    .index(index)
+                    .type(type)
+                    .id(id).build();
+    }
+
+    /**
+     * The action added to a bulk : a {@link DeferredSource} is kept as is, it is written with the body of the bulk
+     */
+    Index getBulkableAction() {
         return new Index.Builder(source)
                     .index(index)
                     .type(type)
@@ -49,4 +63,18 @@ public class JestIndexRequestBuilder extends JestRequest<Index> {
     public Object getSource() {
         return source;
     }
+
+    /**
+     * @return the json representation of the source, written by the {@link JsonCodecs#get() codec} unless it already
+     * is a String. The source of the builder is left untouched : it may be read again or sent with another request
+     */
+    static Object toJson(Object source) {
+        if (source == null || source instanceof String) {
+            return source;
+        }
+        if (source instanceof DeferredSource) {
+            return ((DeferredSource) source).toJson();
+        }
+        return JsonCodecs.get().toJson(source);
+    }
 }
@@ -0,0 +1,276 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.gson.Gson;
+import io.searchbox.BulkableAction;
+import play.Logger;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable write-ahead queue of index / update / delete operations.
+ * <p/>
+ * Operations are serialized as bulk lines and appended to an {@link OutboxJournal}, the caller never waits for
+ * the cluster. A background worker drains the journal in bulks, in order, and moves the journal checkpoint once the
+ * bulk went through. Items failing for any other reason than an overload (mapping error, version conflict...) are
+ * logged and dropped.
+ * <p/>
+ * A bulk failing as a whole (cluster unreachable, request failed) is sent again (with backoff) until it goes
+ * through, however long the outage : nothing is dropped nor reordered. Items rejected as overloaded by a cluster
+ * which answers are sent again too, those still rejected once the retries of the {@link BulkRetryPolicy} are
+ * exhausted are moved to a dead letter journal (logged and dropped when there is none), so that they can not block
+ * the following operations. {@link #replayDeadLetters()} appends them back to the outbox.
+ * <p/>
+ * Delivery is at least once : operations of a bulk interrupted by a shutdown are sent again on next start.
+ */
+public class JestOutbox implements Closeable {
+
+    /**
+     * Sends a bulk to the cluster, {@link JestClientWrapper#execute(io.searchbox.Action)} by default
+     */
+    public interface BulkSender {
+        JestRichResult send(NdjsonBulk bulk);
+    }
+
+    public static final BulkSender CLIENT_SENDER = new BulkSender() {
+        @Override
+        public JestRichResult send(NdjsonBulk bulk) {
+            return JestClientWrapper.execute(bulk);
+        }
+    };
+
+    private static final Gson gson = JestRichResult.createGsonWithDateFormat();
+
+    private final OutboxJournal journal;
+    private final OutboxJournal deadLetters;
+    private final int batchSize;
+    private final BulkSender sender;
+    private final BulkRetryPolicy retryPolicy;
+    private final ScheduledExecutorService worker;
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param journal      journal storing the operations
+     * @param batchSize    max number of operations sent in a bulk
+     * @param pollInterval time (in milliseconds) between two looks at the journal when it is drained
+     * @param sender
+     */
+    public JestOutbox(OutboxJournal journal, int batchSize, long pollInterval, BulkSender sender) {
+        this(journal, null, batchSize, pollInterval, BulkRetryPolicy.exponentialBackoff(), sender);
+    }
+
+    /**
+     * @param journal      journal storing the operations
+     * @param deadLetters  journal storing the operations which could not be sent within the retries, null to drop them
+     * @param batchSize    max number of operations sent in a bulk
+     * @param pollInterval time (in milliseconds) between two looks at the journal when it is drained
+     * @param retryPolicy  attempts and delays before operations are moved to the dead letters
+     * @param sender
+     */
+    public JestOutbox(OutboxJournal journal, @Nullable OutboxJournal deadLetters, int batchSize, long pollInterval,
+                      BulkRetryPolicy retryPolicy, BulkSender sender) {
+        this.journal = journal;
+        this.deadLetters = deadLetters;
+        this.batchSize = batchSize;
+        this.sender = sender;
+        this.retryPolicy = retryPolicy;
+        this.worker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "elasticsearch-outbox");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.worker.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!closed && drain()) {
+                        // draining until the journal is empty
+                    }
+                } catch (Exception e) {
+                    Logger.error("ElasticSearch : error while draining the outbox", e);
+                }
+            }
+        }, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public JestOutbox index(JestIndexRequestBuilder request) {
+        return add(request.getAction());
+    }
+
+    public JestOutbox update(JestUpdateRequestBuilder request) {
+        return add(request.getAction());
+    }
+
+    public JestOutbox delete(JestDeleteRequestBuilder request) {
+        return add(request.getAction());
+    }
+
+    /**
+     * Appends the operation to the journal, it is sent later on by the background worker
+     *
+     * @param action
+     * @return
+     */
+    public JestOutbox add(BulkableAction action) {
+        if (closed) {
+            throw new IllegalStateException("outbox already closed");
+        }
+        final StringBuilder lines = new StringBuilder();
+        NdjsonBulk.writeAction(gson, action, lines);
+        try {
+            journal.append(lines.toString());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write " + action.getBulkMethodName() + " of " + action.getId() + " to the outbox journal", e);
+        }
+        return this;
+    }
+
+    /**
+     * @return true when every operation of the journal has been sent
+     */
+    public boolean isDrained() {
+        return journal.isEmpty();
+    }
+
+    /**
+     * Sends the next batch of operations of the journal
+     *
+     * @return true when a batch has been sent and committed
+     */
+    boolean drain() throws IOException {
+        final OutboxJournal.Batch batch = journal.read(batchSize);
+        if (batch.isEmpty()) {
+            return false;
+        }
+        List<String> pending = batch.getEntries();
+        // sends of the batch, for the backoff
+        int attempt = 0;
+        // sends in which items were rejected as overloaded, for the dead letters
+        int rejections = 0;
+        while (!pending.isEmpty()) {
+            if (attempt > 0) {
+                if (!sleep(retryPolicy.delay(attempt))) {
+                    // closing, the batch is sent again on next start
+                    return false;
+                }
+            }
+            attempt++;
+            final StringBuilder body = new StringBuilder();
+            for (String entry : pending) {
+                body.append(entry);
+            }
+            final JestRichResult result = sender.send(NdjsonBulk.fromLines(body, false));
+            // a bulk with failed items is not succeeded, its items are still read one by one
+            final List<JestRichResult.BulkItem> items = result.getBulkItems();
+            if (items.size() != pending.size()) {
+                // the cluster did not handle the bulk : sent again until it does, the following operations wait
+                Logger.warn("ElasticSearch : outbox bulk of " + pending.size() + " operations failed (attempt " + attempt + ") : " + result.getErrorMessage());
+                continue;
+            }
+            final List<String> retries = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                final JestRichResult.BulkItem item = items.get(i);
+                if (item.isRetryable()) {
+                    retries.add(pending.get(i));
+                } else if (item.isFailed()) {
+                    Logger.error("ElasticSearch : outbox dropping " + item.operation() + " of " + item.index() + "/" + item.type() + "/" + item.id() + " : " + item.error());
+                }
+            }
+            if (!retries.isEmpty() && ++rejections > retryPolicy.getMaxRetries()) {
+                deadLetter(retries);
+                break;
+            }
+            pending = retries;
+        }
+        journal.commit(batch.getEnd());
+        return true;
+    }
+
+    private void deadLetter(List<String> entries) throws IOException {
+        if (deadLetters == null) {
+            Logger.error("ElasticSearch : outbox dropping " + entries.size() + " operations still rejected after "
+                    + retryPolicy.getMaxRetries() + " retries : " + entries);
+            return;
+        }
+        Logger.error("ElasticSearch : outbox moving " + entries.size() + " operations still rejected after "
+                + retryPolicy.getMaxRetries() + " retries to the dead letters");
+        deadLetters.append(entries);
+    }
+
+    /**
+     * Appends the dead letters back to the outbox, to send them again once the cluster is no longer overloaded.
+     * They are sent after the operations already in the outbox : a replayed operation overwrites a newer write of the
+     * same document, unless the operations are versioned (version_type=external).
+     *
+     * @return the number of operations appended back
+     */
+    public int replayDeadLetters() throws IOException {
+        if (deadLetters == null) {
+            return 0;
+        }
+        int replayed = 0;
+        OutboxJournal.Batch batch = deadLetters.read(batchSize);
+        while (!batch.isEmpty()) {
+            journal.append(batch.getEntries());
+            deadLetters.commit(batch.getEnd());
+            replayed += batch.getEntries().size();
+            batch = deadLetters.read(batchSize);
+        }
+        return replayed;
+    }
+
+    /**
+     * @return true when operations wait in the dead letters
+     */
+    public boolean hasDeadLetters() {
+        return deadLetters != null && !deadLetters.isEmpty();
+    }
+
+    private boolean sleep(long delay) {
+        final long end = System.currentTimeMillis() + delay;
+        try {
+            while (!closed && System.currentTimeMillis() < end) {
+                Thread.sleep(Math.min(100, delay));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !closed;
+    }
+
+    /**
+     * Stops the background worker and closes the journal, operations not sent yet are kept for next start
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(10, TimeUnit.SECONDS)) {
+                Logger.warn("ElasticSearch : outbox worker did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+            if (deadLetters != null) {
+                deadLetters.close();
+            }
+        } catch (IOException e) {
+            Logger.error("ElasticSearch : error when closing the outbox journal", e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.codetroopers.play.elasticsearch.IndexConfig;
+import io.searchbox.Action;
+import io.searchbox.core.*;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Limits the number of asynchronous requests in flight for a class of operations.
+ * When the limit is reached, requests wait in a bounded queue and are started as soon as a request completes ;
+ * once the queue is full (or if there is no queue) they are rejected with an {@link EsRejectedExecutionException}.
+ * <p/>
+ * A limit lower or equal to 0 means no limit.
+ */
+public class JestRequestLimiter {
+
+    public enum OperationClass {
+        READ, WRITE, BULK, OTHER;
+
+        public static OperationClass of(Action action) {
+            if (action instanceof Bulk || action instanceof NdjsonBulk) {
+                return BULK;
+            }
+            if (action instanceof Index || action instanceof Update || action instanceof Delete) {
+                return WRITE;
+            }
+            if (action instanceof Search || action instanceof Get || action instanceof MultiGetAction
+                    || action instanceof MultiSearchAction || action instanceof ScrollAction) {
+                return READ;
+            }
+            return OTHER;
+        }
+
+        /**
+         * Name used in the configuration keys
+         */
+        public String configName() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final Map<OperationClass, JestRequestLimiter> limiters = new EnumMap<>(OperationClass.class);
+
+    static {
+        for (OperationClass operationClass : OperationClass.values()) {
+            limiters.put(operationClass, new JestRequestLimiter(operationClass, 0, 0));
+        }
+    }
+
+    private final OperationClass operationClass;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final Deque<Runnable> queue = new ArrayDeque<>();
+    private int inFlight = 0;
+
+    public JestRequestLimiter(OperationClass operationClass, int maxInFlight, int maxQueued) {
+        this.operationClass = operationClass;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Replaces the limiters according to the elasticsearch.async.* configuration
+     */
+    public static void configure(IndexConfig config) {
+        synchronized (limiters) {
+            for (OperationClass operationClass : OperationClass.values()) {
+                final Integer maxInFlight = config.asyncMaxInFlight.get(operationClass.configName());
+                final Integer maxQueued = config.asyncMaxQueued.get(operationClass.configName());
+                limiters.put(operationClass, new JestRequestLimiter(operationClass,
+                        maxInFlight == null ? 0 : maxInFlight,
+                        maxQueued == null ? 0 : maxQueued));
+            }
+        }
+    }
+
+    public static JestRequestLimiter forClass(OperationClass operationClass) {
+        synchronized (limiters) {
+            return limiters.get(operationClass);
+        }
+    }
+
+    public static JestRequestLimiter forAction(Action action) {
+        return forClass(OperationClass.of(action));
+    }
+
+    /**
+     * Starts the request now if the limit is not reached, queues it otherwise.
+     * Every started request must call {@link #release()} once completed.
+     *
+     * @param start starts the request
+     * @throws EsRejectedExecutionException if the limit is reached and the queue is full
+     */
+    public void submit(Runnable start) {
+        synchronized (this) {
+            if (maxInFlight > 0 && inFlight >= maxInFlight) {
+                if (queue.size() >= maxQueued) {
+                    throw new EsRejectedExecutionException("ElasticSearch : too many " + configName() + " requests in flight ("
+                            + inFlight + " running, " + queue.size() + " queued)");
+                }
+                queue.addLast(start);
+                return;
+            }
+            inFlight++;
+        }
+        start.run();
+    }
+
+    /**
+     * Marks a request as completed and starts the next queued one if any
+     */
+    public void release() {
+        final Runnable next;
+        synchronized (this) {
+            next = queue.pollFirst();
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        // the slot of the completed request is handed over to the queued one
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    private String configName() {
+        return operationClass.configName();
+    }
+
+    @Override
+    public String toString() {
+        return "JestRequestLimiter{" +
+                "operationClass=" + operationClass +
+                ", maxInFlight=" + maxInFlight +
+                ", maxQueued=" + maxQueued +
+                '}';
+    }
+}
@@ -1,16 +1,21 @@
 package com.codetroopers.play.elasticsearch.jest;
 
 import com.codetroopers.play.elasticsearch.Index;
+import com.codetroopers.play.elasticsearch.IndexSerializers;
 import com.codetroopers.play.elasticsearch.IndexUtils;
+import com.codetroopers.play.elasticsearch.json.JsonCodecs;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import io.searchbox.client.JestResult;
 import io.searchbox.core.search.facet.*;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.List;
 import java.util.Map;
@@ -42,26 +47,31 @@ public class JestRichResult {
     }
 
     public List<Facet> getFacets() {
-        List<Facet> out = Lists.newArrayList();
         final JsonObject jsonObject = safeResult().getJsonObject();
         if (jsonObject != null) {
             final JsonElement facets = jsonObject.get("facets");
             if (facets != null) {
-                for (Map.Entry<String, JsonElement> facetEntry : ((JsonObject) facets).entrySet()) {
-                    JsonObject facet = facetEntry.getValue().getAsJsonObject();
-                    final JsonElement jsonElement = facet.get("_type");
-                    if (jsonElement != null) {
-                        final Class<? extends Facet> facetClazz = FACET_TYPE_CLASSES.get(jsonElement.getAsString().toLowerCase());
-
-                        try {
-                            final Constructor<? extends Facet> constructor = facetClazz.getConstructor(String.class, JsonObject.class);
-                            out.add(constructor.newInstance(facetEntry.getKey(), facetEntry.getValue()));
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-
-                    }
+                return toFacets((JsonObject) facets);
+            }
+        }
+        return Lists.newArrayList();
+    }
+
+    private static List<Facet> toFacets(JsonObject facets) {
+        List<Facet> out = Lists.newArrayList();
+        for (Map.Entry<String, JsonElement> facetEntry : facets.entrySet()) {
+            JsonObject facet = facetEntry.getValue().getAsJsonObject();
+            final JsonElement jsonElement = facet.get("_type");
+            if (jsonElement != null) {
+                final Class<? extends Facet> facetClazz = FACET_TYPE_CLASSES.get(jsonElement.getAsString().toLowerCase());
+
+                try {
+                    final Constructor<? extends Facet> constructor = facetClazz.getConstructor(String.class, JsonObject.class);
+                    out.add(constructor.newInstance(facetEntry.getKey(), facetEntry.getValue()));
+                } catch (Exception e) {
+                    e.printStackTrace();
                 }
+
             }
         }
         return out;
@@ -78,6 +88,20 @@ public class JestRichResult {
         return 0;
     }
 
+    /**
+     * @return the total number of hits, which may not fit in an int for a count over a large index
+     */
+    public long getTotalHitsAsLong() {
+        final JsonElement hits = safeResult().getJsonObject().get("hits");
+        if (hits != null) {
+            final JsonElement total = hits.getAsJsonObject().get("total");
+            if (total != null) {
+                return total.getAsLong();
+            }
+        }
+        return 0;
+    }
+
     public List<Result> getHits() {
         List<Result> out = Lists.newArrayList();
         final JsonElement hits = safeResult().getJsonObject().get("hits");
@@ -93,6 +117,64 @@ public class JestRichResult {
         return out;
     }
 
+    /**
+     * Reads the total, the facets and the hits of a search response in one pass over the JSON tree parsed by the
+     * client, the source of each hit being bound to a <code>T</code> (through its {@link com.codetroopers.play.elasticsearch.IndexSerializer}
+     * if any). No {@link Result} is created per hit unless <code>keepTree</code> is set, {@link Hits#getResults()} is
+     * then available as well.
+     *
+     * @param clazz
+     * @param keepTree
+     * @param <T>
+     * @return
+     */
+    public <T extends Index> Hits<T> readHits(Class<T> clazz, boolean keepTree) {
+        final Hits<T> hits = new Hits<>(keepTree);
+        final JsonObject jsonObject = safeResult().getJsonObject();
+        if (jsonObject == null) {
+            return hits;
+        }
+        final JsonElement facets = jsonObject.get("facets");
+        if (facets != null && facets.isJsonObject()) {
+            hits.facets = toFacets(facets.getAsJsonObject());
+        }
+        final JsonElement hitsObject = jsonObject.get("hits");
+        if (hitsObject == null || !hitsObject.isJsonObject()) {
+            return hits;
+        }
+        final JsonElement total = hitsObject.getAsJsonObject().get("total");
+        if (total != null) {
+            hits.total = total.getAsLong();
+        }
+        final JsonElement hitsList = hitsObject.getAsJsonObject().get("hits");
+        if (hitsList != null && hitsList.isJsonArray()) {
+            for (JsonElement hit : hitsList.getAsJsonArray()) {
+                readHit(hit.getAsJsonObject(), clazz, hits);
+            }
+        }
+        return hits;
+    }
+
+    private static <T extends Index> void readHit(JsonObject hit, Class<T> clazz, Hits<T> hits) {
+        if (hits.results != null) {
+            final Result result = new Result(hit);
+            hits.results.add(result);
+            hits.objects.add(result.getObject(clazz));
+            return;
+        }
+        final JsonElement source = hit.get("_source");
+        final JsonElement fields = hit.get("fields");
+        final T object;
+        if (source != null && source.isJsonObject()) {
+            object = toObject(source.getAsJsonObject(), clazz);
+        } else {
+            // no source : partially populated from the requested fields, if any
+            object = toObject(fields != null && fields.isJsonObject() ? unwrapFields(fields.getAsJsonObject()) : null, clazz);
+        }
+        object.id = hit.get("_id").getAsString();
+        hits.objects.add(object);
+    }
+
     @Nullable
     public <T extends Index> T getFirstHit(Class<T> clazz) {
         if (safeResult().isSucceeded()) {
@@ -110,6 +192,85 @@ public class JestRichResult {
         return null;
     }
 
+    /**
+     * @return the id to fetch the next batch of a scroll with, null if the response is not part of a scroll
+     */
+    @Nullable
+    public String getScrollId() {
+        final JsonObject jsonObject = safeResult().getJsonObject();
+        if (jsonObject != null && jsonObject.has("_scroll_id")) {
+            return jsonObject.get("_scroll_id").getAsString();
+        }
+        return null;
+    }
+
+    /**
+     * Documents of a multi get response, in the order of the request
+     */
+    public List<Result> getDocs() {
+        List<Result> out = Lists.newArrayList();
+        final JsonElement docs = safeResult().getJsonObject().get("docs");
+        if (docs != null && docs.isJsonArray()) {
+            for (JsonElement doc : docs.getAsJsonArray()) {
+                out.add(new Result(doc.getAsJsonObject()));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Responses of a multi search, in the order of its requests. A failed request gives a response which did not
+     * succeed, its error being the error message.
+     */
+    public List<JestRichResult> getResponses() {
+        List<JestRichResult> out = Lists.newArrayList();
+        final JsonElement responses = safeResult().getJsonObject().get("responses");
+        if (responses != null && responses.isJsonArray()) {
+            for (JsonElement response : responses.getAsJsonArray()) {
+                final JsonObject jsonObject = response.getAsJsonObject();
+                final JestResult jestResult = new JestResult(gson);
+                jestResult.setJsonObject(jsonObject);
+                jestResult.setPathToResult("hits/hits");
+                final JsonElement error = jsonObject.get("error");
+                jestResult.setSucceeded(error == null);
+                if (error != null) {
+                    jestResult.setErrorMessage(error.isJsonPrimitive() ? error.getAsString() : error.toString());
+                }
+                out.add(new JestRichResult(jestResult));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Per item results of a bulk response, in the order of the actions of the bulk
+     */
+    public List<BulkItem> getBulkItems() {
+        List<BulkItem> out = Lists.newArrayList();
+        final JsonElement items = safeResult().getJsonObject().get("items");
+        if (items != null && items.isJsonArray()) {
+            for (JsonElement item : items.getAsJsonArray()) {
+                out.add(new BulkItem(item.getAsJsonObject()));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return true if the request failed or if at least one item of the bulk failed
+     */
+    public boolean hasBulkFailures() {
+        if (!isSucceeded()) {
+            return true;
+        }
+        for (BulkItem item : getBulkItems()) {
+            if (item.isFailed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @NotNull
     public JestResult getResult() {
         return safeResult();
@@ -153,11 +314,29 @@ public class JestRichResult {
     }
 
     /**
-     * Allows elasticSearch and Gson to talk the same language regarding dates (ISO8601 format)
+     * Allows elasticSearch and Gson to talk the same language regarding dates (ISO8601 format), a
+     * {@link DeferredSource} given to a plain Jest action is written as its document
      */
     static Gson createGsonWithDateFormat() {
         return new GsonBuilder()
-                .setDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'").create();
+                .setDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'")
+                .registerTypeHierarchyAdapter(DeferredSource.class, new DeferredSourceAdapter()).create();
+    }
+
+    private static class DeferredSourceAdapter extends TypeAdapter<DeferredSource> {
+        @Override
+        public void write(JsonWriter out, DeferredSource source) throws IOException {
+            if (source == null) {
+                out.nullValue();
+            } else {
+                source.writeTo(out);
+            }
+        }
+
+        @Override
+        public DeferredSource read(JsonReader in) {
+            throw new UnsupportedOperationException("a DeferredSource is only written");
+        }
     }
 
     JestResult safeResult() {
@@ -176,6 +355,7 @@ public class JestRichResult {
         private Float score;
         private final JsonObject result;
         private final JsonObject source;
+        private final JsonObject fields;
         private transient Index convertedObject = null;
 
         public Result(JsonObject resultLine) {
@@ -190,6 +370,7 @@ public class JestRichResult {
                 this.score = 1.0f;
             }
             this.source = resultLine.has("_source") ? resultLine.get("_source").getAsJsonObject() : null;
+            this.fields = resultLine.has("fields") ? unwrapFields(resultLine.get("fields").getAsJsonObject()) : null;
         }
 
         public String index() {
@@ -212,23 +393,63 @@ public class JestRichResult {
             return result;
         }
 
-        @SuppressWarnings("unchecked")
+        /**
+         * @return false for a document of a multi get which does not exist (or could not be read)
+         */
+        public boolean found() {
+            if (result.has("found")) {
+                return result.get("found").getAsBoolean();
+            }
+            return !result.has("error") && (source != null || fields != null);
+        }
+
+        /**
+         * @return the error of a document of a multi get which could not be read, null otherwise
+         */
+        @Nullable
+        public String error() {
+            final JsonElement error = result.get("error");
+            if (error == null || error.isJsonNull()) {
+                return null;
+            }
+            return error.isJsonPrimitive() ? error.getAsString() : error.toString();
+        }
+
+        /**
+         * @return the version of the document, null if not returned
+         */
+        @Nullable
+        public Long version() {
+            return result.has("_version") ? result.get("_version").getAsLong() : null;
+        }
+
+        /**
+         * @return the source converted by the {@link com.codetroopers.play.elasticsearch.json.JsonCodec}, null if not returned
+         */
+        @Nullable
         public Map<String, Object> sourceAsMap() {
-            return gson.fromJson(source, Map.class);
+            return source == null ? null : JsonCodecs.get().toMap(source);
         }
 
         public JsonObject source() {
             return source;
         }
 
+        /**
+         * @return the requested fields of the hit (single values unwrapped from their array), null if none were requested
+         */
+        @Nullable
+        public JsonObject fields() {
+            return fields;
+        }
+
+        /**
+         * Converts the hit, from its source or from its fields when the source was not returned (partially populated)
+         */
         @SuppressWarnings("unchecked")
         public <T extends Index> T getObject(Class<T> clazz) {
             if (convertedObject == null) {
-                // Get Data Map
-                Map<String, Object> map = sourceAsMap();
-                // Create a new Indexable Object for the return
-                T objectIndexable = IndexUtils.getInstanceIndex(clazz);
-                T t = (T) objectIndexable.fromIndex(map);
+                T t = toObject(source != null ? source : fields, clazz);
                 t.id = id();
                 convertedObject = t;
             }
@@ -246,4 +467,171 @@ public class JestRichResult {
                     .toString();
         }
     }
+
+    /**
+     * Result of a single action of a bulk
+     */
+    public static class BulkItem {
+        private final String operation;
+        private final String index;
+        private final String type;
+        private final String id;
+        private final Long version;
+        private final int status;
+        private final String error;
+
+        public BulkItem(JsonObject itemLine) {
+            final Map.Entry<String, JsonElement> entry = itemLine.entrySet().iterator().next();
+            final JsonObject item = entry.getValue().getAsJsonObject();
+            this.operation = entry.getKey();
+            this.index = getAsString(item, "_index");
+            this.type = getAsString(item, "_type");
+            this.id = getAsString(item, "_id");
+            this.version = item.has("_version") ? item.get("_version").getAsLong() : null;
+            this.error = getAsString(item, "error");
+            if (item.has("status")) {
+                this.status = item.get("status").getAsInt();
+            } else {
+                this.status = error == null ? 200 : 500;
+            }
+        }
+
+        private static String getAsString(JsonObject item, String key) {
+            final JsonElement element = item.get(key);
+            return element == null || element.isJsonNull() ? null : element.getAsString();
+        }
+
+        /**
+         * Operation of the item : index, create, update or delete
+         */
+        public String operation() {
+            return operation;
+        }
+
+        public String index() {
+            return index;
+        }
+
+        public String type() {
+            return type;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        @Nullable
+        public Long version() {
+            return version;
+        }
+
+        public int status() {
+            return status;
+        }
+
+        @Nullable
+        public String error() {
+            return error;
+        }
+
+        /**
+         * @return true if the item was not applied, a delete of a missing document (404) is not a failure
+         */
+        public boolean isFailed() {
+            if (error != null) {
+                return true;
+            }
+            return status >= 300 && !(status == 404 && "delete".equals(operation));
+        }
+
+        /**
+         * @return true if the item was rejected because the cluster was overloaded and can be sent again as is
+         */
+        public boolean isRetryable() {
+            return status == 429 || status == 503
+                    || (error != null && error.contains("EsRejectedExecutionException"));
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this)
+                    .add("operation", operation)
+                    .add("index", index)
+                    .add("type", type)
+                    .add("id", id)
+                    .add("version", version)
+                    .add("status", status)
+                    .add("error", error)
+                    .toString();
+        }
+    }
+
+    /**
+     * Converts a source (possibly partial) to a <code>T</code>, through its serializer if any
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Index> T toObject(@Nullable JsonObject source, Class<T> clazz) {
+        T t = source == null ? null : IndexSerializers.fromSource(source, clazz);
+        if (t == null) {
+            // Get Data Map
+            Map<String, Object> map = source == null ? null : JsonCodecs.get().toMap(source);
+            // Create a new Indexable Object for the return
+            T objectIndexable = IndexUtils.getInstanceIndex(clazz);
+            t = (T) objectIndexable.fromIndex(map);
+        }
+        return t;
+    }
+
+    /**
+     * Fields of a hit are returned as arrays, the ones holding a single value are replaced by it
+     */
+    private static JsonObject unwrapFields(JsonObject fields) {
+        final JsonObject unwrapped = new JsonObject();
+        for (Map.Entry<String, JsonElement> field : fields.entrySet()) {
+            final JsonElement value = field.getValue();
+            if (value.isJsonArray() && value.getAsJsonArray().size() == 1) {
+                unwrapped.add(field.getKey(), value.getAsJsonArray().get(0));
+            } else {
+                unwrapped.add(field.getKey(), value);
+            }
+        }
+        return unwrapped;
+    }
+
+    /**
+     * Hits of a search response, read by {@link #readHits(Class, boolean)}
+     */
+    public static class Hits<T extends Index> {
+        private long total = 0;
+        private List<Facet> facets = Lists.newArrayList();
+        private final List<T> objects = Lists.newArrayList();
+        private final List<Result> results;
+
+        private Hits(boolean keepTree) {
+            this.results = keepTree ? Lists.<Result>newArrayList() : null;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public List<Facet> getFacets() {
+            return facets;
+        }
+
+        /**
+         * @return the documents of the hits, in the order of the response
+         */
+        public List<T> getObjects() {
+            return objects;
+        }
+
+        /**
+         * @return the JSON tree of the hits, null unless it was requested
+         */
+        @Nullable
+        public List<Result> getResults() {
+            return results;
+        }
+    }
 }
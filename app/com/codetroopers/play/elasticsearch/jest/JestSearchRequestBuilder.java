@@ -1,13 +1,17 @@
 package com.codetroopers.play.elasticsearch.jest;
 
 import io.searchbox.core.Search;
+import io.searchbox.params.Parameters;
 import io.searchbox.params.SearchType;
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.facet.FacetBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 
+import javax.annotation.Nullable;
+
 /**
  * @author cgatay
  */
@@ -17,6 +21,7 @@ public class JestSearchRequestBuilder extends JestRequest<Search> {
     private String indices;
     private String types;
     private SearchType searchType;
+    private String scroll;
 
     public JestSearchRequestBuilder() {
         searchSourceBuilder = new SearchSourceBuilder();
@@ -25,11 +30,33 @@ public class JestSearchRequestBuilder extends JestRequest<Search> {
     @Override
     public Search getAction() {
         final String query = searchSourceBuilder.toString();
-        return new Search.Builder(query)
+        final Search.Builder builder = new Search.Builder(query)
                 .addIndex(indices)
                 .addType(types)
-                .setSearchType(searchType)
-                .build();
+                .setSearchType(searchType);
+        if (scroll != null) {
+            builder.setParameter(Parameters.SCROLL, scroll);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the search source as compact JSON, on a single line
+     */
+    public String getSource() {
+        return searchSourceBuilder.buildAsBytes(XContentType.JSON).toUtf8();
+    }
+
+    public String getIndices() {
+        return indices;
+    }
+
+    public String getTypes() {
+        return types;
+    }
+
+    public SearchType getSearchType() {
+        return searchType;
     }
 
     public JestSearchRequestBuilder setIndices(String indices) {
@@ -47,6 +74,14 @@ public class JestSearchRequestBuilder extends JestRequest<Search> {
         return this;
     }
 
+    /**
+     * Opens a scroll kept alive for the given time (ex : 1m) between two batches
+     */
+    public JestSearchRequestBuilder setScroll(String keepAlive) {
+        this.scroll = keepAlive;
+        return this;
+    }
+
     public JestSearchRequestBuilder setFilter(FilterBuilder filter) {
         this.searchSourceBuilder.postFilter(filter);
         return this;
@@ -67,6 +102,31 @@ public class JestSearchRequestBuilder extends JestRequest<Search> {
         return this;
     }
 
+    /**
+     * Only returns the parts of the _source matching the include patterns and not matching the exclude ones
+     */
+    public JestSearchRequestBuilder setFetchSource(@Nullable String[] includes, @Nullable String[] excludes) {
+        this.searchSourceBuilder.fetchSource(includes, excludes);
+        return this;
+    }
+
+    /**
+     * Adds a stored field to return with the hits. Note, once a field is requested the _source is not returned
+     * anymore unless source filtering is set.
+     */
+    public JestSearchRequestBuilder addField(String field) {
+        this.searchSourceBuilder.field(field);
+        return this;
+    }
+
+    /**
+     * Adds a field to load from the field data cache and return with the hits
+     */
+    public JestSearchRequestBuilder addFieldDataField(String field) {
+        this.searchSourceBuilder.fieldDataField(field);
+        return this;
+    }
+
     public JestSearchRequestBuilder addFacet(FacetBuilder facet) {
         this.searchSourceBuilder.facet(facet);
         return this;
@@ -91,6 +151,4 @@ public class JestSearchRequestBuilder extends JestRequest<Search> {
         this.searchSourceBuilder.explain(explain);
         return this;
     }
-
-    
 }
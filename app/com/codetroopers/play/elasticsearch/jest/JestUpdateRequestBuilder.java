@@ -212,6 +212,10 @@ public class JestUpdateRequestBuilder extends JestRequest<Update>{
         return this;
     }
 
+    /**
+     * The script params are written by Play Json, as they always were (dates as epoch milliseconds) : scripts
+     * written against this encoding keep working whatever the {@link com.codetroopers.play.elasticsearch.json.JsonCodec}
+     */
     public Update getAction() {
         final ObjectNode jsonNodes = Json.newObject();
         jsonNodes.put("script", script);
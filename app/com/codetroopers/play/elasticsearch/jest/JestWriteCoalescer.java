@@ -0,0 +1,214 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.codetroopers.play.elasticsearch.AsyncUtils;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.searchbox.BulkableAction;
+import io.searchbox.client.JestResult;
+import play.Logger;
+import play.libs.F;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the asynchronous writes of a same document : within a window, only the last index or delete
+ * of a document (index, type, id) is kept, the surviving writes being sent together as one bulk.
+ * Every caller's promise is completed with the outcome of the write which was actually sent.
+ * <p/>
+ * Writes done through other paths (synchronous index / update / delete) are not coalesced and may overtake a
+ * write waiting in the window. Once the coalescer is closed, writes are sent one by one.
+ */
+public class JestWriteCoalescer implements Closeable {
+
+    private static final Gson gson = JestRichResult.createGsonWithDateFormat();
+
+    private final long window;
+    private final int maxPending;
+    private final ScheduledExecutorService scheduler;
+
+    private Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+
+    /**
+     * @param window     time (in milliseconds) writes are kept before being sent
+     * @param maxPending number of distinct documents after which writes are sent without waiting for the window
+     */
+    public JestWriteCoalescer(long window, int maxPending) {
+        this.window = window;
+        this.maxPending = maxPending;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "elasticsearch-write-coalescer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public F.Promise<JestRichResult> index(JestIndexRequestBuilder request) {
+        if (request.getId() == null) {
+            // generated ids can not be coalesced
+            return request.executeAsync();
+        }
+        return write(request.getAction());
+    }
+
+    public F.Promise<JestRichResult> delete(JestDeleteRequestBuilder request) {
+        return write(request.getAction());
+    }
+
+    private F.Promise<JestRichResult> write(BulkableAction action) {
+        final F.Promise<JestRichResult> coalesced = coalesce(action);
+        return coalesced != null ? coalesced : JestClientWrapper.executeAsync(action);
+    }
+
+    /**
+     * @return the promise of the write, null when the coalescer is closed
+     */
+    private F.Promise<JestRichResult> coalesce(BulkableAction action) {
+        final scala.concurrent.Promise<JestRichResult> promise = AsyncUtils.createPromise();
+        final String key = action.getIndex() + "/" + action.getType() + "/" + action.getId();
+        Map<String, PendingWrite> toSend = null;
+        synchronized (this) {
+            if (closed) {
+                // a write racing with the shutdown is sent directly, outside of the lock
+                return null;
+            }
+            PendingWrite write = pending.remove(key);
+            if (write == null) {
+                write = new PendingWrite();
+            }
+            // re-inserted so that the order of the bulk follows the order of the last writes
+            write.action = action;
+            write.promises.add(promise);
+            pending.put(key, write);
+
+            if (maxPending > 0 && pending.size() >= maxPending) {
+                toSend = takePending();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, window, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (toSend != null) {
+            send(toSend);
+        }
+        return F.Promise.wrap(promise.future());
+    }
+
+    /**
+     * Sends the pending writes now
+     */
+    public void flush() {
+        final Map<String, PendingWrite> toSend;
+        synchronized (this) {
+            flushScheduled = false;
+            toSend = takePending();
+        }
+        if (toSend != null) {
+            send(toSend);
+        }
+    }
+
+    /**
+     * Number of documents waiting to be written
+     */
+    public synchronized int pendingWrites() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+        scheduler.shutdown();
+    }
+
+    private Map<String, PendingWrite> takePending() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        final Map<String, PendingWrite> taken = pending;
+        pending = new LinkedHashMap<>();
+        return taken;
+    }
+
+    private void send(Map<String, PendingWrite> toSend) {
+        final List<PendingWrite> writes = new ArrayList<>(toSend.values());
+        final List<BulkableAction> actions = new ArrayList<>(writes.size());
+        for (PendingWrite write : writes) {
+            actions.add(write.action);
+        }
+        final F.Promise<JestRichResult> bulkPromise = JestClientWrapper.executeAsync(new NdjsonBulk(actions, false));
+        bulkPromise.onRedeem(new F.Callback<JestRichResult>() {
+            @Override
+            public void invoke(JestRichResult result) {
+                complete(writes, result);
+            }
+        });
+        bulkPromise.onFailure(new F.Callback<Throwable>() {
+            @Override
+            public void invoke(Throwable failure) {
+                fail(writes, failure);
+            }
+        });
+    }
+
+    private static void complete(List<PendingWrite> writes, JestRichResult bulkResult) {
+        final JsonElement items = bulkResult.getJsonObject().get("items");
+        for (int i = 0; i < writes.size(); i++) {
+            final JestRichResult itemResult;
+            if (items != null && items.isJsonArray() && i < items.getAsJsonArray().size()) {
+                itemResult = toItemResult(items.getAsJsonArray().get(i).getAsJsonObject());
+            } else {
+                itemResult = bulkResult;
+            }
+            for (scala.concurrent.Promise<JestRichResult> promise : writes.get(i).promises) {
+                promise.success(itemResult);
+            }
+        }
+    }
+
+    private static void fail(List<PendingWrite> writes, Throwable failure) {
+        Logger.error("ElasticSearch : coalesced writes failed", failure);
+        for (PendingWrite write : writes) {
+            for (scala.concurrent.Promise<JestRichResult> promise : write.promises) {
+                promise.failure(failure);
+            }
+        }
+    }
+
+    /**
+     * Result of a single write, shaped as the response of an index / delete request ("_index", "_id", "_version"...)
+     */
+    private static JestRichResult toItemResult(JsonObject item) {
+        final JsonObject itemResponse = item.entrySet().iterator().next().getValue().getAsJsonObject();
+        final JestResult jestResult = new JestResult(gson);
+        jestResult.setJsonObject(itemResponse);
+        jestResult.setSucceeded(!new JestRichResult.BulkItem(item).isFailed());
+        return new JestRichResult(jestResult);
+    }
+
+    private static class PendingWrite {
+        private BulkableAction action;
+        private final List<scala.concurrent.Promise<JestRichResult>> promises = new ArrayList<>();
+    }
+}
@@ -0,0 +1,96 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import io.searchbox.Action;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gets several documents, of any index and type, in one _mget request. The documents come back in the order they
+ * were added, see {@link JestRichResult#getDocs()}.
+ */
+public class MultiGetAction implements Action {
+
+    private final List<String[]> docs = new ArrayList<>();
+
+    /**
+     * Adds a document to get
+     *
+     * @param index
+     * @param type
+     * @param id
+     * @return self
+     */
+    public MultiGetAction add(String index, String type, String id) {
+        docs.add(new String[]{index, type, id});
+        return this;
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    @Override
+    public String getURI() {
+        return "_mget";
+    }
+
+    @Override
+    public String getRestMethodName() {
+        return "POST";
+    }
+
+    @Override
+    public Object getData(Gson gson) {
+        final StringWriter body = new StringWriter(docs.size() * 64);
+        try {
+            final JsonWriter writer = new JsonWriter(body);
+            writer.beginObject().name("docs").beginArray();
+            for (String[] doc : docs) {
+                writer.beginObject();
+                if (StringUtils.isNotBlank(doc[0])) {
+                    writer.name("_index").value(doc[0]);
+                }
+                if (StringUtils.isNotBlank(doc[1])) {
+                    writer.name("_type").value(doc[1]);
+                }
+                writer.name("_id").value(doc[2]);
+                writer.endObject();
+            }
+            writer.endArray().endObject();
+            writer.flush();
+        } catch (IOException e) {
+            // cannot happen when writing to a StringWriter
+            throw new IllegalStateException(e);
+        }
+        return body.toString();
+    }
+
+    @Override
+    public String getPathToResult() {
+        return "docs";
+    }
+
+    @Override
+    public Map<String, Object> getHeaders() {
+        return Maps.newHashMap();
+    }
+
+    @Override
+    public Boolean isOperationSucceed(Map<String, ?> result) {
+        return true;
+    }
+
+    @Override
+    public Boolean isOperationSucceed(JsonObject result) {
+        return true;
+    }
+}
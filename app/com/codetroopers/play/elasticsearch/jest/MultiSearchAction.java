@@ -0,0 +1,91 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import io.searchbox.Action;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends several search requests in one _msearch request : a header line (indices, types, search type) then the
+ * search source on one line, for each request. The responses come back in the order of the requests,
+ * see {@link JestRichResult#getResponses()}.
+ */
+public class MultiSearchAction implements Action {
+
+    private final List<JestSearchRequestBuilder> requests;
+
+    public MultiSearchAction(Collection<JestSearchRequestBuilder> requests) {
+        this.requests = new ArrayList<>(requests);
+    }
+
+    public List<JestSearchRequestBuilder> getRequests() {
+        return requests;
+    }
+
+    @Override
+    public String getURI() {
+        return "_msearch";
+    }
+
+    @Override
+    public String getRestMethodName() {
+        return "POST";
+    }
+
+    @Override
+    public Object getData(Gson gson) {
+        final StringWriter body = new StringWriter(requests.size() * 256);
+        try {
+            for (JestSearchRequestBuilder request : requests) {
+                // a JsonWriter only accepts one top level value, a new one is used for each line
+                final JsonWriter header = new JsonWriter(body);
+                header.beginObject();
+                if (StringUtils.isNotBlank(request.getIndices())) {
+                    header.name("index").value(request.getIndices());
+                }
+                if (StringUtils.isNotBlank(request.getTypes())) {
+                    header.name("type").value(request.getTypes());
+                }
+                if (request.getSearchType() != null) {
+                    header.name("search_type").value(request.getSearchType().name().toLowerCase());
+                }
+                header.endObject();
+                header.flush();
+                body.append('\n').append(request.getSource()).append('\n');
+            }
+        } catch (IOException e) {
+            // cannot happen when writing to a StringWriter
+            throw new IllegalStateException(e);
+        }
+        return body.toString();
+    }
+
+    @Override
+    public String getPathToResult() {
+        return "responses";
+    }
+
+    @Override
+    public Map<String, Object> getHeaders() {
+        return Maps.newHashMap();
+    }
+
+    @Override
+    public Boolean isOperationSucceed(Map<String, ?> result) {
+        return true;
+    }
+
+    @Override
+    public Boolean isOperationSucceed(JsonObject result) {
+        return true;
+    }
+}
@@ -0,0 +1,208 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.codetroopers.play.elasticsearch.json.JsonCodecs;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import io.searchbox.Action;
+import io.searchbox.BulkableAction;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Bulk action writing its newline delimited body in a single pass.
+ * <p/>
+ * {@link io.searchbox.core.Bulk} serializes each action header through a temporary Map and each source to its own
+ * String before concatenating them. Here every header and source is written directly into one buffer, pre-sized
+ * from the number of actions, so that the only copy of the payload is the body handed to the http client.
+ */
+public class NdjsonBulk implements Action {
+
+    private static final int ESTIMATED_ACTION_SIZE = 256;
+
+    private final Collection<? extends BulkableAction> actions;
+    private final CharSequence lines;
+    private final boolean refresh;
+
+    public NdjsonBulk(Collection<? extends BulkableAction> actions, boolean refresh) {
+        this(actions, null, refresh);
+    }
+
+    /**
+     * Creates a bulk of actions already serialized in <code>lines</code>, the actions are only used to tell which
+     * indices the bulk writes to
+     */
+    NdjsonBulk(Collection<? extends BulkableAction> actions, CharSequence lines, boolean refresh) {
+        this.actions = actions;
+        this.lines = lines;
+        this.refresh = refresh;
+    }
+
+    /**
+     * Creates a bulk sending already serialized lines, as written by {@link #writeAction(Gson, BulkableAction, StringBuilder)}
+     *
+     * @param lines
+     * @param refresh
+     * @return
+     */
+    public static NdjsonBulk fromLines(CharSequence lines, boolean refresh) {
+        return new NdjsonBulk(Collections.<BulkableAction>emptyList(), lines, refresh);
+    }
+
+    /**
+     * @return the actions of this bulk, empty when it was created from serialized lines
+     */
+    public Collection<? extends BulkableAction> getActions() {
+        return actions;
+    }
+
+    /**
+     * @return the serialized lines of this bulk, null when it was created from actions
+     */
+    CharSequence getLines() {
+        return lines;
+    }
+
+    @Override
+    public String getURI() {
+        return refresh ? "_bulk?refresh=true" : "_bulk";
+    }
+
+    @Override
+    public String getRestMethodName() {
+        return "POST";
+    }
+
+    @Override
+    public Object getData(Gson gson) {
+        if (lines != null) {
+            return lines.toString();
+        }
+        final StringBuilder body = new StringBuilder(actions.size() * ESTIMATED_ACTION_SIZE);
+        try {
+            writeBody(gson, body);
+        } catch (IOException e) {
+            // cannot happen when writing to a StringBuilder
+            throw new IllegalStateException(e);
+        }
+        return body.toString();
+    }
+
+    /**
+     * Writes the bulk body to the given buffer
+     */
+    void writeBody(Gson gson, StringBuilder body) throws IOException {
+        final StringBuilderWriter writer = new StringBuilderWriter(body);
+        for (BulkableAction action : actions) {
+            writeAction(gson, writer, action, body);
+        }
+    }
+
+    /**
+     * Writes the header line and the source line ( if any ) of one action to the given buffer
+     */
+    public static void writeAction(Gson gson, BulkableAction action, StringBuilder body) {
+        try {
+            writeAction(gson, new StringBuilderWriter(body), action, body);
+        } catch (IOException e) {
+            // cannot happen when writing to a StringBuilder
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeAction(Gson gson, Writer writer, BulkableAction action, StringBuilder body) throws IOException {
+        writeHeader(writer, action);
+        body.append('\n');
+        final Object source = action.getData(gson);
+        if (source != null) {
+            if (source instanceof String) {
+                body.append((String) source);
+            } else if (source instanceof DeferredSource) {
+                ((DeferredSource) source).writeTo(body);
+            } else {
+                JsonCodecs.get().write(source, body);
+            }
+            body.append('\n');
+        }
+    }
+
+    private static void writeHeader(Writer writer, BulkableAction action) throws IOException {
+        // a JsonWriter only accepts one top level value, a new one is used for each line
+        final JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.beginObject().name(action.getBulkMethodName()).beginObject();
+        if (StringUtils.isNotBlank(action.getIndex())) {
+            jsonWriter.name("_index").value(action.getIndex());
+        }
+        if (StringUtils.isNotBlank(action.getType())) {
+            jsonWriter.name("_type").value(action.getType());
+        }
+        if (StringUtils.isNotBlank(action.getId())) {
+            jsonWriter.name("_id").value(action.getId());
+        }
+        jsonWriter.endObject().endObject();
+        jsonWriter.flush();
+    }
+
+    @Override
+    public String getPathToResult() {
+        return "items";
+    }
+
+    @Override
+    public Map<String, Object> getHeaders() {
+        return Maps.newHashMap();
+    }
+
+    /**
+     * A bulk succeeds when none of its items failed
+     */
+    @Override
+    public Boolean isOperationSucceed(Map<String, ?> result) {
+        return !Boolean.TRUE.equals(result.get("errors"));
+    }
+
+    @Override
+    public Boolean isOperationSucceed(JsonObject result) {
+        return !result.has("errors") || !result.get("errors").getAsBoolean();
+    }
+
+    /**
+     * Unsynchronized {@link Writer} appending to a {@link StringBuilder}
+     */
+    private static class StringBuilderWriter extends Writer {
+        private final StringBuilder builder;
+
+        private StringBuilderWriter(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            builder.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            builder.append(str, off, off + len);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import play.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append only journal of entries, stored in memory-mapped segment files of a directory.
+ * <p/>
+ * Each record is written as its length, the CRC32 of its content then its UTF-8 content. The length is written last,
+ * so a record torn by a crash is ignored when the journal is reopened. Entries are consumed from a checkpoint
+ * (segment, offset) persisted in its own file : {@link #read(int)} returns the entries following the checkpoint and
+ * {@link #commit(Position)} moves it forward, deleting the segments which are fully consumed.
+ * <p/>
+ * Written entries survive a crash of the process. To survive a crash of the whole system, the journal can force
+ * the segment to the disk after each append (or each batch of appends, see {@link #append(Collection)}) ;
+ * otherwise segments are only forced when rolled and when the journal is closed.
+ */
+public class OutboxJournal implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final File directory;
+    private final int segmentSize;
+    private final boolean forceOnAppend;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    private Position checkpoint;
+    private boolean closed = false;
+
+    /**
+     * Opens the journal stored in the given directory, creating it when needed, without forcing the appends
+     *
+     * @param directory
+     * @param segmentSize size (in bytes) of a segment file
+     * @throws IOException
+     */
+    public OutboxJournal(File directory, int segmentSize) throws IOException {
+        this(directory, segmentSize, false);
+    }
+
+    /**
+     * Opens the journal stored in the given directory, creating it when needed
+     *
+     * @param directory
+     * @param segmentSize   size (in bytes) of a segment file
+     * @param forceOnAppend force the segment to the disk once an entry (or a batch of entries) is appended
+     * @throws IOException
+     */
+    public OutboxJournal(File directory, int segmentSize, boolean forceOnAppend) throws IOException {
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("segment size must be greater than " + RECORD_HEADER_SIZE + " bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceOnAppend = forceOnAppend;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + directory);
+        }
+        final File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (files != null) {
+            for (File file : files) {
+                final String name = file.getName();
+                final long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(id, Segment.open(id, file));
+            }
+        }
+        checkpoint = readCheckpoint();
+        if (segments.isEmpty()) {
+            final long id = checkpoint == null ? 0 : checkpoint.segment;
+            segments.put(id, Segment.create(id, segmentFile(id), segmentSize));
+        }
+        if (checkpoint == null || checkpoint.segment < segments.firstKey()) {
+            checkpoint = new Position(segments.firstKey(), 0);
+        }
+    }
+
+    /**
+     * Appends an entry to the journal
+     *
+     * @param entry
+     * @throws IOException
+     */
+    public synchronized void append(String entry) throws IOException {
+        ensureOpen();
+        write(entry);
+        if (forceOnAppend) {
+            force();
+        }
+    }
+
+    /**
+     * Appends entries to the journal, the segment being forced once for all of them
+     *
+     * @param entries
+     * @throws IOException
+     */
+    public synchronized void append(Collection<String> entries) throws IOException {
+        ensureOpen();
+        for (String entry : entries) {
+            write(entry);
+        }
+        if (forceOnAppend && !entries.isEmpty()) {
+            force();
+        }
+    }
+
+    /**
+     * Forces the entries written to the current segment to the disk (previous segments are forced when rolled)
+     */
+    public synchronized void force() {
+        ensureOpen();
+        segments.lastEntry().getValue().buffer.force();
+    }
+
+    private void write(String entry) throws IOException {
+        final byte[] content = entry.getBytes(UTF_8);
+        if (content.length == 0) {
+            throw new IllegalArgumentException("Cannot append an empty entry");
+        }
+        final int recordSize = RECORD_HEADER_SIZE + content.length;
+        Segment segment = segments.lastEntry().getValue();
+        if (segment.end + recordSize > segment.capacity()) {
+            segment.buffer.force();
+            final long id = segment.id + 1;
+            segment = Segment.create(id, segmentFile(id), Math.max(segmentSize, recordSize));
+            segments.put(id, segment);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        final ByteBuffer buffer = segment.buffer;
+        buffer.position(segment.end + RECORD_HEADER_SIZE);
+        buffer.put(content);
+        buffer.putInt(segment.end + 4, (int) crc.getValue());
+        // the length marks the record as complete, it is written last
+        buffer.putInt(segment.end, content.length);
+        segment.end += recordSize;
+    }
+
+    /**
+     * Reads the entries following the checkpoint, without moving it
+     *
+     * @param maxEntries
+     * @return
+     */
+    public synchronized Batch read(int maxEntries) {
+        ensureOpen();
+        final List<String> entries = new ArrayList<>();
+        long segmentId = checkpoint.segment;
+        int offset = checkpoint.offset;
+        while (entries.size() < maxEntries) {
+            final Segment segment = segments.get(segmentId);
+            if (offset < segment.end) {
+                final ByteBuffer buffer = segment.buffer.duplicate();
+                final int length = buffer.getInt(offset);
+                final byte[] content = new byte[length];
+                buffer.position(offset + RECORD_HEADER_SIZE);
+                buffer.get(content);
+                entries.add(new String(content, UTF_8));
+                offset += RECORD_HEADER_SIZE + length;
+            } else {
+                final Long next = segments.higherKey(segmentId);
+                if (next == null) {
+                    break;
+                }
+                segmentId = next;
+                offset = 0;
+            }
+        }
+        return new Batch(entries, new Position(segmentId, offset));
+    }
+
+    /**
+     * Moves the checkpoint to the given position, the segments before it are deleted
+     *
+     * @param position end of a batch returned by {@link #read(int)}
+     * @throws IOException
+     */
+    public synchronized void commit(Position position) throws IOException {
+        ensureOpen();
+        writeCheckpoint(position);
+        checkpoint = position;
+        final Map<Long, Segment> consumed = segments.headMap(position.segment);
+        for (Segment segment : new ArrayList<>(consumed.values())) {
+            segment.close();
+            if (!segment.file.delete()) {
+                Logger.warn("ElasticSearch : unable to delete consumed journal segment " + segment.file);
+            }
+        }
+        consumed.clear();
+    }
+
+    /**
+     * @return true when every entry of the journal has been committed
+     */
+    public synchronized boolean isEmpty() {
+        return checkpoint.segment == segments.lastKey() && checkpoint.offset >= segments.lastEntry().getValue().end;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Segment segment : segments.values()) {
+            segment.buffer.force();
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal " + directory + " is closed");
+        }
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, SEGMENT_PREFIX + String.format("%019d", id) + SEGMENT_SUFFIX);
+    }
+
+    private Position readCheckpoint() throws IOException {
+        final File file = new File(directory, CHECKPOINT_FILE);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile checkpointFile = new RandomAccessFile(file, "r")) {
+            return new Position(checkpointFile.readLong(), checkpointFile.readInt());
+        }
+    }
+
+    private void writeCheckpoint(Position position) throws IOException {
+        // written aside then renamed, a crash never leaves a partial checkpoint
+        final File temp = new File(directory, CHECKPOINT_FILE + ".tmp");
+        try (RandomAccessFile checkpointFile = new RandomAccessFile(temp, "rw")) {
+            checkpointFile.setLength(0);
+            checkpointFile.writeLong(position.segment);
+            checkpointFile.writeInt(position.offset);
+            checkpointFile.getFD().sync();
+        }
+        Files.move(temp.toPath(), new File(directory, CHECKPOINT_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Position in the journal
+     */
+    public static class Position {
+        final long segment;
+        final int offset;
+
+        Position(long segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        @Override
+        public String toString() {
+            return segment + ":" + offset;
+        }
+    }
+
+    /**
+     * Entries read from the journal, and the position following the last one
+     */
+    public static class Batch {
+        private final List<String> entries;
+        private final Position end;
+
+        Batch(List<String> entries, Position end) {
+            this.entries = Collections.unmodifiableList(entries);
+            this.end = end;
+        }
+
+        public List<String> getEntries() {
+            return entries;
+        }
+
+        public Position getEnd() {
+            return end;
+        }
+
+        public boolean isEmpty() {
+            return entries.isEmpty();
+        }
+    }
+
+    private static class Segment {
+        private final long id;
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final MappedByteBuffer buffer;
+        // end of the complete records
+        private int end;
+
+        private Segment(long id, File file, RandomAccessFile randomAccessFile, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.randomAccessFile = randomAccessFile;
+            this.buffer = buffer;
+        }
+
+        static Segment create(long id, File file, int size) throws IOException {
+            final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(size);
+            return new Segment(id, file, randomAccessFile, randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        static Segment open(long id, File file) throws IOException {
+            final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            final Segment segment = new Segment(id, file, randomAccessFile,
+                    randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, randomAccessFile.length()));
+            segment.end = segment.scan();
+            return segment;
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+
+        /**
+         * @return the end of the last complete record, a torn or corrupted record ends the segment
+         */
+        private int scan() {
+            final ByteBuffer data = buffer.duplicate();
+            final CRC32 crc = new CRC32();
+            int offset = 0;
+            while (offset + RECORD_HEADER_SIZE <= data.capacity()) {
+                final int length = data.getInt(offset);
+                if (length <= 0 || offset + RECORD_HEADER_SIZE + length > data.capacity()) {
+                    break;
+                }
+                final byte[] content = new byte[length];
+                data.position(offset + RECORD_HEADER_SIZE);
+                data.get(content);
+                crc.reset();
+                crc.update(content);
+                if ((int) crc.getValue() != data.getInt(offset + 4)) {
+                    Logger.warn("ElasticSearch : corrupted record in journal segment " + file + " at offset " + offset + ", ignoring the rest of the segment");
+                    break;
+                }
+                offset += RECORD_HEADER_SIZE + length;
+            }
+            return offset;
+        }
+
+        void close() throws IOException {
+            randomAccessFile.close();
+            unmap(buffer);
+        }
+
+        /**
+         * Releases the mapping now rather than when the buffer is garbage collected, so that the file of a consumed
+         * segment can be deleted (Windows) and its memory given back. There is no public API for it : the cleaner of
+         * the buffer is called by reflection, the mapping is left to the GC when it is not available.
+         */
+        private static void unmap(MappedByteBuffer buffer) {
+            try {
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    final Method cleanMethod = cleaner.getClass().getMethod("clean");
+                    cleanMethod.setAccessible(true);
+                    cleanMethod.invoke(cleaner);
+                }
+            } catch (Exception e) {
+                Logger.debug("ElasticSearch : unable to unmap a journal segment, left to the GC", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import io.searchbox.Action;
+
+import java.util.Map;
+
+/**
+ * Fetches the next batch of a scroll, or clears a scroll once it is not needed anymore.
+ * The scroll id is sent as the body of the request as it can be too long for an url.
+ */
+public class ScrollAction implements Action {
+
+    private final String uri;
+    private final String method;
+    private final String scrollId;
+
+    private ScrollAction(String uri, String method, String scrollId) {
+        this.uri = uri;
+        this.method = method;
+        this.scrollId = scrollId;
+    }
+
+    /**
+     * @param scrollId  id returned by the previous search / scroll request
+     * @param keepAlive time the scroll is kept alive for the next batch (ex : 1m)
+     * @return
+     */
+    public static ScrollAction next(String scrollId, String keepAlive) {
+        return new ScrollAction("_search/scroll?scroll=" + keepAlive, "POST", scrollId);
+    }
+
+    /**
+     * @param scrollId last id of the scroll
+     * @return
+     */
+    public static ScrollAction clear(String scrollId) {
+        return new ScrollAction("_search/scroll", "DELETE", scrollId);
+    }
+
+    @Override
+    public String getURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRestMethodName() {
+        return method;
+    }
+
+    @Override
+    public Object getData(Gson gson) {
+        return scrollId;
+    }
+
+    @Override
+    public String getPathToResult() {
+        return "hits/hits";
+    }
+
+    @Override
+    public Map<String, Object> getHeaders() {
+        return Maps.newHashMap();
+    }
+
+    @Override
+    public Boolean isOperationSucceed(Map<String, ?> result) {
+        return true;
+    }
+
+    @Override
+    public Boolean isOperationSucceed(JsonObject result) {
+        return true;
+    }
+}
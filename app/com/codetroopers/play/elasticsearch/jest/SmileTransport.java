@@ -0,0 +1,403 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import io.searchbox.Action;
+import io.searchbox.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.Index;
+import io.searchbox.core.Search;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends requests with a SMILE (binary JSON) body and reads SMILE responses, for the request types listed in
+ * elasticsearch.http.smile. Elasticsearch answers in the content type of the request body, the response is read
+ * token by token into the Gson tree of the {@link JestResult}, without going through a JSON string.
+ * <p/>
+ * Jest only sends string bodies, the requests are executed with the http clients built by Jest (gzip compression
+ * included when enabled), the synchronous one or the asynchronous one. The sources of the documents are written
+ * straight to SMILE, without being turned into JSON first.
+ */
+public class SmileTransport {
+
+    public static final String CONTENT_TYPE = XContentType.SMILE.restContentType();
+
+    public enum RequestType {
+        BULK, INDEX, SEARCH;
+
+        @Nullable
+        public static RequestType of(Action action) {
+            if (action instanceof Bulk || action instanceof NdjsonBulk) {
+                return BULK;
+            }
+            if (action instanceof Index) {
+                return INDEX;
+            }
+            if (action instanceof Search) {
+                return SEARCH;
+            }
+            return null;
+        }
+
+        /**
+         * Name used in the configuration keys
+         */
+        public String configName() {
+            return name().toLowerCase();
+        }
+
+        /**
+         * @param names comma separated request type names, ex : bulk,search
+         * @return
+         */
+        public static Set<RequestType> parse(@Nullable String names) {
+            final Set<RequestType> types = EnumSet.noneOf(RequestType.class);
+            if (names != null) {
+                for (String name : names.split(",")) {
+                    if (StringUtils.isNotBlank(name)) {
+                        types.add(RequestType.valueOf(name.trim().toUpperCase()));
+                    }
+                }
+            }
+            return types;
+        }
+    }
+
+    private static final Gson gson = JestRichResult.createGsonWithDateFormat();
+    private static final byte SEPARATOR = XContentFactory.xContent(XContentType.SMILE).streamSeparator();
+
+    private static volatile SmileTransport transport = null;
+
+    private final CloseableHttpClient httpClient;
+    @Nullable
+    private final CloseableHttpAsyncClient asyncClient;
+    private final List<String> servers;
+    private final Set<RequestType> types;
+    private final AtomicInteger nextServer = new AtomicInteger();
+
+    public SmileTransport(CloseableHttpClient httpClient, List<String> servers, Set<RequestType> types) {
+        this(httpClient, null, servers, types);
+    }
+
+    /**
+     * @param httpClient
+     * @param asyncClient client of the asynchronous requests, null to send them in JSON through Jest
+     * @param servers
+     * @param types
+     */
+    public SmileTransport(CloseableHttpClient httpClient, @Nullable CloseableHttpAsyncClient asyncClient, List<String> servers,
+                          Set<RequestType> types) {
+        this.httpClient = httpClient;
+        this.asyncClient = asyncClient;
+        this.servers = new ArrayList<>(servers);
+        this.types = types.isEmpty() ? EnumSet.noneOf(RequestType.class) : EnumSet.copyOf(types);
+    }
+
+    /**
+     * @return the transport of the running client, null when no request type is sent as SMILE
+     */
+    @Nullable
+    public static SmileTransport get() {
+        return transport;
+    }
+
+    public static void set(@Nullable SmileTransport transport) {
+        SmileTransport.transport = transport;
+    }
+
+    public boolean supports(Action action) {
+        final RequestType type = RequestType.of(action);
+        return type != null && types.contains(type);
+    }
+
+    /**
+     * @return true when the action is sent as SMILE by {@link #executeAsync(Action, JestResultHandler)}
+     */
+    public boolean supportsAsync(Action action) {
+        return asyncClient != null && supports(action);
+    }
+
+    /**
+     * @return true when the requests of this type are sent as SMILE whether they are synchronous or not : their
+     * actions can keep the sources of the documents as they are, the transport writes them
+     */
+    public boolean handlesAll(RequestType type) {
+        return asyncClient != null && types.contains(type);
+    }
+
+    /**
+     * Executes the action asynchronously : as SMILE when the running transport supports it, through the Jest client
+     * otherwise
+     *
+     * @param client
+     * @param action
+     * @param handler
+     * @throws Exception
+     */
+    public static void dispatchAsync(JestClient client, Action action, JestResultHandler<JestResult> handler) throws Exception {
+        final SmileTransport smileTransport = transport;
+        if (smileTransport != null && smileTransport.supportsAsync(action)) {
+            smileTransport.executeAsync(action, handler);
+        } else {
+            client.executeAsync(action, handler);
+        }
+    }
+
+    /**
+     * Sends the action with a SMILE body
+     *
+     * @param action
+     * @return the result, filled as Jest does
+     * @throws IOException
+     */
+    public JestResult execute(Action action) throws IOException {
+        try (CloseableHttpResponse response = httpClient.execute(newRequest(action))) {
+            return toResult(action, response);
+        }
+    }
+
+    /**
+     * Sends the action with a SMILE body, through the asynchronous http client built by Jest
+     *
+     * @param action
+     * @param handler completed with the result, filled as Jest does
+     */
+    public void executeAsync(final Action action, final JestResultHandler<JestResult> handler) {
+        final HttpUriRequest request;
+        try {
+            request = newRequest(action);
+        } catch (IOException e) {
+            handler.failed(e);
+            return;
+        }
+        if (!asyncClient.isRunning()) {
+            asyncClient.start();
+        }
+        asyncClient.execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                final JestResult result;
+                try {
+                    result = toResult(action, response);
+                } catch (Exception e) {
+                    handler.failed(e);
+                    return;
+                }
+                handler.completed(result);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                handler.failed(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                handler.failed(new CancellationException("SMILE request cancelled"));
+            }
+        });
+    }
+
+    private HttpUriRequest newRequest(Action action) throws IOException {
+        final String method = action.getRestMethodName();
+        final HttpEntityEnclosingRequestBase request = new HttpEntityEnclosingRequestBase() {
+            @Override
+            public String getMethod() {
+                return method;
+            }
+        };
+        request.setURI(URI.create(url(action.getURI())));
+        for (Map.Entry<String, Object> header : action.getHeaders().entrySet()) {
+            request.addHeader(header.getKey(), String.valueOf(header.getValue()));
+        }
+        request.setEntity(new ByteArrayEntity(encode(action), ContentType.create(CONTENT_TYPE)));
+        return request;
+    }
+
+    private static JestResult toResult(Action action, HttpResponse response) throws IOException {
+        final int status = response.getStatusLine().getStatusCode();
+        final byte[] body = response.getEntity() == null ? new byte[0] : EntityUtils.toByteArray(response.getEntity());
+        final Header contentType = response.getFirstHeader("Content-Type");
+
+        final JestResult result = new JestResult(gson);
+        result.setPathToResult(action.getPathToResult());
+        JsonObject json = new JsonObject();
+        if (body.length > 0) {
+            if (contentType != null && contentType.getValue().contains(CONTENT_TYPE)) {
+                json = decode(body).getAsJsonObject();
+            } else {
+                final String jsonString = new String(body, "UTF-8");
+                result.setJsonString(jsonString);
+                json = new JsonParser().parse(jsonString).getAsJsonObject();
+            }
+        }
+        result.setJsonObject(json);
+        final boolean succeeded = status / 100 == 2 && action.isOperationSucceed(json);
+        result.setSucceeded(succeeded);
+        if (!succeeded) {
+            final JsonElement error = json.get("error");
+            result.setErrorMessage(error == null ? response.getStatusLine().toString()
+                    : error.isJsonPrimitive() ? error.getAsString() : error.toString());
+        }
+        return result;
+    }
+
+    private String url(String uri) {
+        final String server = servers.get(Math.abs(nextServer.getAndIncrement() % servers.size()));
+        return server.endsWith("/") ? server + uri : server + "/" + uri;
+    }
+
+    /**
+     * @return the SMILE body of the action, bulk lines are separated by the SMILE stream separator
+     */
+    static byte[] encode(Action action) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (action instanceof NdjsonBulk) {
+            writeBulk((NdjsonBulk) action, out);
+        } else if (action instanceof Bulk) {
+            writeBulk(NdjsonBulk.fromLines(String.valueOf(action.getData(gson)), false), out);
+        } else {
+            writeValue(action.getData(gson), out);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeBulk(NdjsonBulk bulk, OutputStream out) throws IOException {
+        final CharSequence lines = bulk.getLines();
+        if (lines != null) {
+            for (String line : StringUtils.split(lines.toString(), '\n')) {
+                writeValue(line, out);
+                out.write(SEPARATOR);
+            }
+            return;
+        }
+        for (BulkableAction action : bulk.getActions()) {
+            final Map<String, Object> metadata = new LinkedHashMap<>();
+            if (StringUtils.isNotBlank(action.getIndex())) {
+                metadata.put("_index", action.getIndex());
+            }
+            if (StringUtils.isNotBlank(action.getType())) {
+                metadata.put("_type", action.getType());
+            }
+            if (StringUtils.isNotBlank(action.getId())) {
+                metadata.put("_id", action.getId());
+            }
+            final Map<String, Object> header = new LinkedHashMap<>();
+            header.put(action.getBulkMethodName(), metadata);
+            writeValue(header, out);
+            out.write(SEPARATOR);
+            final Object source = action.getData(gson);
+            if (source != null) {
+                writeValue(source, out);
+                out.write(SEPARATOR);
+            }
+        }
+    }
+
+    /**
+     * Writes a value as SMILE : Maps, documents and objects are written token by token, only a value already in its
+     * JSON form (a String) is parsed. Maps go through Gson as their JSON form does, so that their dates are written
+     * the same way (XContentBuilder would write them in UTC).
+     */
+    private static void writeValue(Object value, OutputStream out) throws IOException {
+        final XContentBuilder builder = XContentFactory.contentBuilder(XContentType.SMILE, out);
+        if (value instanceof DeferredSource) {
+            final DeferredSource source = (DeferredSource) value;
+            final Object map = source.getValue();
+            if (map instanceof Map) {
+                gson.toJson(map, Map.class, new XContentJsonWriter(builder.generator()));
+            } else {
+                source.writeTo(new XContentJsonWriter(builder.generator()));
+            }
+        } else if (value instanceof Map) {
+            gson.toJson(value, Map.class, new XContentJsonWriter(builder.generator()));
+        } else if (value instanceof String) {
+            try (XContentParser parser = XContentFactory.xContent(XContentType.JSON).createParser((String) value)) {
+                parser.nextToken();
+                builder.copyCurrentStructure(parser);
+            }
+        } else {
+            gson.toJson(value, value.getClass(), new XContentJsonWriter(builder.generator()));
+        }
+        builder.flush();
+    }
+
+    /**
+     * Reads a SMILE document into a Gson tree
+     */
+    static JsonElement decode(byte[] smile) throws IOException {
+        try (XContentParser parser = XContentFactory.xContent(XContentType.SMILE).createParser(smile)) {
+            parser.nextToken();
+            return readValue(parser);
+        }
+    }
+
+    private static JsonElement readValue(XContentParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                final JsonObject object = new JsonObject();
+                while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                    final String name = parser.currentName();
+                    parser.nextToken();
+                    object.add(name, readValue(parser));
+                }
+                return object;
+            case START_ARRAY:
+                final JsonArray array = new JsonArray();
+                while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                    array.add(readValue(parser));
+                }
+                return array;
+            case VALUE_STRING:
+                return new JsonPrimitive(parser.text());
+            case VALUE_NUMBER:
+                return new JsonPrimitive(parser.numberValue());
+            case VALUE_BOOLEAN:
+                return new JsonPrimitive(parser.booleanValue());
+            case VALUE_EMBEDDED_OBJECT:
+                return new JsonPrimitive(Base64.encodeBytes(parser.binaryValue()));
+            case VALUE_NULL:
+                return JsonNull.INSTANCE;
+            default:
+                throw new IOException("Unexpected SMILE token " + parser.currentToken());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.gson.stream.JsonWriter;
+import org.elasticsearch.common.xcontent.XContentGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Gson JsonWriter forwarding the tokens to an Elasticsearch XContentGenerator, for Gson and the
+ * {@link com.codetroopers.play.elasticsearch.IndexSerializer}s to write SMILE directly, without any JSON text.
+ * <p/>
+ * Nothing is written to the underlying Writer of the JsonWriter : a token method not overridden here fails instead
+ * of being lost.
+ */
+class XContentJsonWriter extends JsonWriter {
+
+    private static final Writer UNSUPPORTED = new Writer() {
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            throw new IOException("Unsupported JSON token for XContent");
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private final XContentGenerator generator;
+    // the name of the current field, written with its value (dropped with a null value unless nulls are serialized)
+    private String pendingName = null;
+
+    XContentJsonWriter(XContentGenerator generator) {
+        super(UNSUPPORTED);
+        this.generator = generator;
+    }
+
+    private void writePendingName() throws IOException {
+        if (pendingName != null) {
+            generator.writeFieldName(pendingName);
+            pendingName = null;
+        }
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        writePendingName();
+        generator.writeStartArray();
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        generator.writeEndArray();
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        writePendingName();
+        generator.writeStartObject();
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        generator.writeEndObject();
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        if (pendingName != null) {
+            throw new IllegalStateException("the value of " + pendingName + " is missing");
+        }
+        pendingName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writePendingName();
+        generator.writeString(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        if (pendingName != null && !getSerializeNulls()) {
+            pendingName = null;
+            return this;
+        }
+        writePendingName();
+        generator.writeNull();
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        writePendingName();
+        generator.writeBoolean(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        writePendingName();
+        generator.writeNumber(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        writePendingName();
+        generator.writeNumber(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(value.longValue());
+        }
+        return value(value.doubleValue());
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the generator belongs to the caller
+        flush();
+    }
+}
@@ -0,0 +1,105 @@
+package com.codetroopers.play.elasticsearch.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * {@link JsonCodec} relying on Gson, the JSON stack of the Jest client (default)
+ * <p/>
+ * Dates are written as {@link #DATE_FORMAT} in the default time zone, the 'Z' suffix being a literal : this is the
+ * encoding of the documents already indexed, and the one {@link com.codetroopers.play.elasticsearch.IndexUtils}
+ * reads back (the suffix is ignored, the date is built in the default time zone). Writing UTC instead would move
+ * every date read back by the offset of the time zone.
+ */
+public class GsonJsonCodec implements JsonCodec {
+
+    public static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    private final Gson gson;
+
+    public GsonJsonCodec() {
+        this(new GsonBuilder().registerTypeHierarchyAdapter(Date.class, new DateAdapter()).create());
+    }
+
+    public GsonJsonCodec(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Override
+    public void write(Object value, Appendable out) throws IOException {
+        gson.toJson(value, out);
+    }
+
+    @Override
+    public String toJson(Object value) {
+        return gson.toJson(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> readMap(String json) {
+        return gson.fromJson(json, Map.class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> toMap(JsonObject json) {
+        return gson.fromJson(json, Map.class);
+    }
+
+    /**
+     * @return a format of {@link #DATE_FORMAT} in the default time zone
+     */
+    static SimpleDateFormat createDateFormat() {
+        return new SimpleDateFormat(DATE_FORMAT);
+    }
+
+    /**
+     * Writes and reads dates as {@link #DATE_FORMAT} in the default time zone (also used by the generated
+     * {@link com.codetroopers.play.elasticsearch.IndexSerializer}s and the parameters of the compiled queries)
+     */
+    public static class DateAdapter extends TypeAdapter<Date> {
+        // SimpleDateFormat is not thread safe
+        private final ThreadLocal<SimpleDateFormat> dateFormat = new ThreadLocal<SimpleDateFormat>() {
+            @Override
+            protected SimpleDateFormat initialValue() {
+                return createDateFormat();
+            }
+        };
+
+        @Override
+        public void write(JsonWriter out, Date value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(dateFormat.get().format(value));
+            }
+        }
+
+        @Override
+        public Date read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            final String date = in.nextString();
+            try {
+                return dateFormat.get().parse(date);
+            } catch (ParseException e) {
+                throw new JsonSyntaxException(date, e);
+            }
+        }
+    }
+}
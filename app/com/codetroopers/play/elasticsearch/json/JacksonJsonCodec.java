@@ -0,0 +1,246 @@
+package com.codetroopers.play.elasticsearch.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * {@link JsonCodec} writing and reading with the Jackson streaming API : Maps, Collections, arrays and scalar
+ * values are written token by token by a {@link JsonGenerator}, any other object goes through the ObjectMapper.
+ * Maps are read token by token from a {@link JsonParser}, without building a tree ; numbers are read as Integer,
+ * Long, BigInteger or Double depending on their value (Gson reads all of them as Double), sources of the responses
+ * are converted with the same types.
+ */
+public class JacksonJsonCodec implements JsonCodec {
+
+    private final ObjectMapper mapper;
+    private final JsonFactory factory;
+    // SimpleDateFormat is not thread safe
+    private final ThreadLocal<SimpleDateFormat> dateFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return GsonJsonCodec.createDateFormat();
+        }
+    };
+
+    public JacksonJsonCodec() {
+        this(new ObjectMapper());
+    }
+
+    public JacksonJsonCodec(ObjectMapper mapper) {
+        // dates as the Gson codec writes them, see GsonJsonCodec
+        this.mapper = mapper.copy().setDateFormat(GsonJsonCodec.createDateFormat()).setTimeZone(TimeZone.getDefault());
+        this.factory = this.mapper.getFactory();
+    }
+
+    @Override
+    public void write(Object value, Appendable out) throws IOException {
+        final Writer writer = out instanceof Writer ? (Writer) out : new AppendableWriter(out);
+        try (JsonGenerator generator = factory.createGenerator(writer)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writeValue(generator, value);
+        }
+    }
+
+    @Override
+    public String toJson(Object value) {
+        final StringWriter writer = new StringWriter();
+        try {
+            write(value, writer);
+        } catch (IOException e) {
+            // cannot happen when writing to a StringWriter
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> readMap(String json) {
+        try (JsonParser parser = factory.createParser(json)) {
+            final JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException("Expected a JSON object", parser.getCurrentLocation());
+            }
+            return (Map<String, Object>) readValue(parser);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid JSON object : " + json, e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> toMap(JsonObject json) {
+        return (Map<String, Object>) toValue(json);
+    }
+
+    /**
+     * Same types as {@link #readMap(String)}, walking the Gson tree
+     */
+    private static Object toValue(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        if (element.isJsonObject()) {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                map.put(entry.getKey(), toValue(entry.getValue()));
+            }
+            return map;
+        }
+        if (element.isJsonArray()) {
+            final List<Object> list = new ArrayList<>();
+            for (JsonElement item : element.getAsJsonArray()) {
+                list.add(toValue(item));
+            }
+            return list;
+        }
+        final JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        if (primitive.isString()) {
+            return primitive.getAsString();
+        }
+        final String number = primitive.getAsString();
+        if (number.contains(".") || number.contains("e") || number.contains("E")) {
+            return Double.valueOf(number);
+        }
+        final BigInteger integer = new BigInteger(number);
+        if (integer.bitLength() < 32) {
+            return integer.intValue();
+        }
+        return integer.bitLength() < 64 ? (Object) integer.longValue() : integer;
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof Iterable) {
+            generator.writeStartArray();
+            for (Object item : (Iterable<?>) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            generator.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Date) {
+            generator.writeString(dateFormat.get().format((Date) value));
+        } else if (value instanceof Enum) {
+            generator.writeString(((Enum<?>) value).name());
+        } else if (value.getClass().isArray() && !(value instanceof byte[])) {
+            generator.writeStartArray();
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                writeValue(generator, Array.get(value, i));
+            }
+            generator.writeEndArray();
+        } else {
+            mapper.writeValue(generator, value);
+        }
+    }
+
+    private static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case START_OBJECT:
+                final Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+                    map.put(name, readValue(parser));
+                }
+                return map;
+            case START_ARRAY:
+                final List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser));
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new JsonParseException("Unexpected token " + parser.getCurrentToken(), parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * {@link Writer} appending to an {@link Appendable}
+     */
+    private static class AppendableWriter extends Writer {
+        private final Appendable out;
+
+        private AppendableWriter(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (out instanceof StringBuilder) {
+                ((StringBuilder) out).append(cbuf, off, len);
+            } else {
+                out.append(new String(cbuf, off, len));
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.append(str, off, off + len);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
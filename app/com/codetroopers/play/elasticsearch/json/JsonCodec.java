@@ -0,0 +1,51 @@
+package com.codetroopers.play.elasticsearch.json;
+
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * JSON stack used to write the bodies of the requests (document sources, bulk lines...) and to read the
+ * documents sources of the responses as Maps.
+ * <p/>
+ * Implementations are expected to write dates as <code>yyyy-MM-dd'T'HH:mm:ss'Z'</code> in the default time zone,
+ * the encoding {@link com.codetroopers.play.elasticsearch.IndexUtils} reads back (see {@link GsonJsonCodec}).
+ *
+ * @see JsonCodecs#get()
+ */
+public interface JsonCodec {
+
+    /**
+     * Writes a value (Map, Collection, array, String, Number, Boolean, Date or any bean the implementation
+     * can handle) as JSON
+     *
+     * @param value
+     * @param out
+     * @throws IOException
+     */
+    void write(Object value, Appendable out) throws IOException;
+
+    /**
+     * @param value
+     * @return the JSON of the value
+     */
+    String toJson(Object value);
+
+    /**
+     * Reads a JSON object as a Map of Maps, Lists, Strings, Numbers and Booleans
+     *
+     * @param json
+     * @return
+     */
+    Map<String, Object> readMap(String json);
+
+    /**
+     * Converts a JSON object of a response, already parsed by the Jest client, to a Map of Maps, Lists, Strings,
+     * Numbers and Booleans
+     *
+     * @param json
+     * @return
+     */
+    Map<String, Object> toMap(JsonObject json);
+}
@@ -0,0 +1,41 @@
+package com.codetroopers.play.elasticsearch.json;
+
+/**
+ * Holds the {@link JsonCodec} used by the library, chosen by elasticsearch.json.codec (gson or jackson)
+ */
+public abstract class JsonCodecs {
+
+    public static final String GSON = "gson";
+    public static final String JACKSON = "jackson";
+
+    private static volatile JsonCodec codec = new GsonJsonCodec();
+
+    public static JsonCodec get() {
+        return codec;
+    }
+
+    public static void set(JsonCodec codec) {
+        JsonCodecs.codec = codec;
+    }
+
+    /**
+     * Creates a codec from its configuration name
+     *
+     * @param name gson, jackson or the name of a class implementing JsonCodec
+     * @param classLoader
+     * @return
+     */
+    public static JsonCodec forName(String name, ClassLoader classLoader) {
+        if (name == null || GSON.equalsIgnoreCase(name)) {
+            return new GsonJsonCodec();
+        }
+        if (JACKSON.equalsIgnoreCase(name)) {
+            return new JacksonJsonCodec();
+        }
+        try {
+            return (JsonCodec) Class.forName(name, true, classLoader).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("ElasticSearch : unknown json codec " + name, e);
+        }
+    }
+}
@@ -7,6 +7,9 @@ import play.Logger;
 import play.Plugin;
 
 import com.codetroopers.play.elasticsearch.IndexClient;
+import com.codetroopers.play.elasticsearch.IndexMetadata;
+import com.codetroopers.play.elasticsearch.IndexSerializers;
+import com.codetroopers.play.elasticsearch.IndexUtils;
 import com.codetroopers.play.elasticsearch.IndexService;
 
 /**
@@ -78,6 +81,12 @@ public class IndexPlugin extends Plugin {
 
     @Override
     public void onStop() {
+        // Sending buffered writes and bulk actions before anything is dropped
+        IndexClient.closeWriteCoalescer();
+        IndexClient.closeGetBatcher();
+        IndexClient.closeBulkProcessor();
+        IndexClient.closeOutbox();
+
         // Deleting index(s) if define in conf
         if (IndexClient.config != null && IndexClient.config.dropOnShutdown) {
             String[] indexNames = IndexClient.config.indexNames;
@@ -94,6 +103,9 @@ public class IndexPlugin extends Plugin {
         } catch (Exception e) {
             Logger.error("ElasticSearch : error when stop plugin ", e);
         }
+        IndexMetadata.clear();
+        IndexSerializers.clear();
+        IndexUtils.clearConverters();
         Logger.info("ElasticSearch : Plugin has stopped");
     }
 }
@@ -0,0 +1,358 @@
+package com.codetroopers.play.elasticsearch.processor;
+
+import com.codetroopers.play.elasticsearch.annotations.GenerateIndexSerializer;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates the {@link com.codetroopers.play.elasticsearch.IndexSerializer} of the classes annotated with
+ * {@link GenerateIndexSerializer} : the fields are written and read directly as JSON tokens, without the Map of
+ * toIndex / fromIndex nor any reflection.
+ * <p/>
+ * A field of an unsupported type is reported as a compilation error, such a class should be given a hand written
+ * serializer with {@link com.codetroopers.play.elasticsearch.annotations.IndexSerializedBy} instead.
+ */
+@SupportedAnnotationTypes("com.codetroopers.play.elasticsearch.annotations.GenerateIndexSerializer")
+public class IndexSerializerProcessor extends AbstractProcessor {
+
+    static final String SUFFIX = "IndexSerializer";
+
+    private static final String INDEX = "com.codetroopers.play.elasticsearch.Index";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateIndexSerializer.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateIndexSerializer only applies to Index classes");
+                continue;
+            }
+            final TypeElement type = (TypeElement) element;
+            try {
+                if (isValid(type)) {
+                    generate(type);
+                }
+            } catch (UnsupportedFieldException e) {
+                error(e.field, e.getMessage());
+            } catch (IOException e) {
+                error(type, "unable to write the serializer of " + type.getQualifiedName() + " : " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private boolean isValid(TypeElement type) {
+        final TypeElement index = processingEnv.getElementUtils().getTypeElement(INDEX);
+        if (!processingEnv.getTypeUtils().isSubtype(type.asType(), index.asType())) {
+            error(type, "@GenerateIndexSerializer only applies to Index classes");
+            return false;
+        }
+        final Set<Modifier> modifiers = type.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)
+                || (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC))
+                || (type.getNestingKind() != NestingKind.TOP_LEVEL && type.getNestingKind() != NestingKind.MEMBER)) {
+            error(type, "a class with a generated serializer must be public, concrete and static when nested");
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        error(type, "a class with a generated serializer must have a public no-arg constructor");
+        return false;
+    }
+
+    /**
+     * @return the public instance fields of the class and of its superclasses, up to Index (excluded)
+     */
+    private List<VariableElement> fields(TypeElement type) {
+        final List<VariableElement> fields = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+        TypeElement current = type;
+        while (current != null && !current.getQualifiedName().contentEquals(INDEX)) {
+            final List<VariableElement> declared = new ArrayList<>();
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                final Set<Modifier> modifiers = field.getModifiers();
+                if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                if (modifiers.contains(Modifier.FINAL)) {
+                    throw new UnsupportedFieldException(field, "a final field cannot be read by a generated serializer");
+                }
+                if (!names.add(field.getSimpleName().toString())) {
+                    throw new UnsupportedFieldException(field, "the field " + field.getSimpleName() + " hides another field");
+                }
+                declared.add(field);
+            }
+            // the fields of the superclasses come first
+            fields.addAll(0, declared);
+            final TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return fields;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        final String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                .replace('$', '_') + SUFFIX;
+        final String document = type.getQualifiedName().toString();
+        final List<VariableElement> fields = fields(type);
+
+        final StringBuilder code = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            code.append("package ").append(packageName).append(";\n\n");
+        }
+        code.append("import com.google.gson.stream.JsonReader;\n")
+                .append("import com.google.gson.stream.JsonToken;\n")
+                .append("import com.google.gson.stream.JsonWriter;\n\n")
+                .append("import java.io.IOException;\n\n")
+                .append("/**\n * Generated by ").append(getClass().getName()).append(" from ").append(document).append("\n */\n")
+                .append("public class ").append(simpleName)
+                .append(" implements com.codetroopers.play.elasticsearch.IndexSerializer<").append(document).append("> {\n\n")
+                .append("    private static final com.google.gson.TypeAdapter<java.util.Date> DATES =\n")
+                .append("            new com.codetroopers.play.elasticsearch.json.GsonJsonCodec.DateAdapter();\n\n");
+
+        code.append("    @Override\n")
+                .append("    public void write(").append(document).append(" document, JsonWriter writer) throws IOException {\n")
+                .append("        writer.beginObject();\n");
+        for (VariableElement field : fields) {
+            final String name = field.getSimpleName().toString();
+            final String value = "document." + name;
+            if (field.asType().getKind().isPrimitive()) {
+                code.append("        writer.name(\"").append(name).append("\");\n");
+                writeValue(code, "        ", field, field.asType(), value);
+            } else {
+                code.append("        if (").append(value).append(" != null) {\n")
+                        .append("            writer.name(\"").append(name).append("\");\n");
+                writeValue(code, "            ", field, field.asType(), value);
+                code.append("        }\n");
+            }
+        }
+        code.append("        writer.endObject();\n")
+                .append("    }\n\n");
+
+        code.append("    @Override\n")
+                .append("    public ").append(document).append(" read(JsonReader reader) throws IOException {\n")
+                .append("        final ").append(document).append(" document = new ").append(document).append("();\n")
+                .append("        reader.beginObject();\n")
+                .append("        while (reader.hasNext()) {\n")
+                .append("            switch (reader.nextName()) {\n");
+        for (VariableElement field : fields) {
+            final String name = field.getSimpleName().toString();
+            code.append("                case \"").append(name).append("\":\n")
+                    .append("                    if (reader.peek() == JsonToken.NULL) {\n")
+                    .append("                        reader.nextNull();\n")
+                    .append("                    } else {\n");
+            readValue(code, "                        ", field, field.asType(), "document." + name);
+            code.append("                    }\n")
+                    .append("                    break;\n");
+        }
+        code.append("                default:\n")
+                .append("                    reader.skipValue();\n")
+                .append("            }\n")
+                .append("        }\n")
+                .append("        reader.endObject();\n")
+                .append("        return document;\n")
+                .append("    }\n")
+                .append("}\n");
+
+        final String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(code.toString());
+        }
+    }
+
+    private void writeValue(StringBuilder code, String indent, VariableElement field, TypeMirror type, String value) {
+        final TypeMirror element = collectionElement(field, type);
+        if (element != null) {
+            final String variable = "element";
+            code.append(indent).append("writer.beginArray();\n")
+                    .append(indent).append("for (").append(element).append(" ").append(variable).append(" : ").append(value).append(") {\n")
+                    .append(indent).append("    if (").append(variable).append(" == null) {\n")
+                    .append(indent).append("        writer.nullValue();\n")
+                    .append(indent).append("    } else {\n");
+            code.append(indent).append("        ").append(writeScalar(field, element, variable)).append("\n");
+            code.append(indent).append("    }\n")
+                    .append(indent).append("}\n")
+                    .append(indent).append("writer.endArray();\n");
+        } else {
+            code.append(indent).append(writeScalar(field, type, value)).append("\n");
+        }
+    }
+
+    private void readValue(StringBuilder code, String indent, VariableElement field, TypeMirror type, String target) {
+        final TypeMirror element = collectionElement(field, type);
+        if (element != null) {
+            final String implementation = isErasure(type, "java.util.Set") ? "java.util.HashSet" : "java.util.ArrayList";
+            code.append(indent).append("final ").append(type).append(" values = new ").append(implementation).append("<>();\n")
+                    .append(indent).append("reader.beginArray();\n")
+                    .append(indent).append("while (reader.hasNext()) {\n")
+                    .append(indent).append("    if (reader.peek() == JsonToken.NULL) {\n")
+                    .append(indent).append("        reader.nextNull();\n")
+                    .append(indent).append("        values.add(null);\n")
+                    .append(indent).append("    } else {\n")
+                    .append(indent).append("        values.add(").append(readScalar(field, element)).append(");\n")
+                    .append(indent).append("    }\n")
+                    .append(indent).append("}\n")
+                    .append(indent).append("reader.endArray();\n")
+                    .append(indent).append(target).append(" = values;\n");
+        } else {
+            code.append(indent).append(target).append(" = ").append(readScalar(field, type)).append(";\n");
+        }
+    }
+
+    /**
+     * @return the type of the elements when the type is a List, Set or Collection, null otherwise
+     */
+    private TypeMirror collectionElement(VariableElement field, TypeMirror type) {
+        if (!isErasure(type, "java.util.List") && !isErasure(type, "java.util.Set") && !isErasure(type, "java.util.Collection")) {
+            return null;
+        }
+        final List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        if (arguments.size() != 1 || arguments.get(0).getKind() != TypeKind.DECLARED || collectionElement(field, arguments.get(0)) != null) {
+            throw new UnsupportedFieldException(field, "the collection field " + field.getSimpleName()
+                    + " must declare a String, number, boolean, Date or enum element type");
+        }
+        return arguments.get(0);
+    }
+
+    private String writeScalar(VariableElement field, TypeMirror type, String value) {
+        if (type.getKind().isPrimitive()) {
+            switch (type.getKind()) {
+                case BOOLEAN:
+                case INT:
+                case LONG:
+                case SHORT:
+                case BYTE:
+                case DOUBLE:
+                case FLOAT:
+                    return "writer.value(" + value + ");";
+                default:
+                    throw unsupported(field);
+            }
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            throw unsupported(field);
+        }
+        final Element element = ((DeclaredType) type).asElement();
+        if (element.getKind() == ElementKind.ENUM) {
+            return "writer.value(" + value + ".name());";
+        }
+        switch (((TypeElement) element).getQualifiedName().toString()) {
+            case "java.lang.String":
+                return "writer.value(" + value + ");";
+            case "java.lang.Boolean":
+                return "writer.value(" + value + ".booleanValue());";
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Short":
+            case "java.lang.Byte":
+                return "writer.value(" + value + ".longValue());";
+            case "java.lang.Double":
+            case "java.lang.Float":
+                return "writer.value(" + value + ".doubleValue());";
+            case "java.util.Date":
+                return "DATES.write(writer, " + value + ");";
+            default:
+                throw unsupported(field);
+        }
+    }
+
+    private String readScalar(VariableElement field, TypeMirror type) {
+        String name = null;
+        if (type.getKind().isPrimitive()) {
+            name = type.getKind().name();
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            final TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            if (element.getKind() == ElementKind.ENUM) {
+                return element.getQualifiedName() + ".valueOf(reader.nextString())";
+            }
+            name = element.getQualifiedName().toString();
+        }
+        if (name == null) {
+            throw unsupported(field);
+        }
+        switch (name) {
+            case "java.lang.String":
+                return "reader.nextString()";
+            case "BOOLEAN":
+            case "java.lang.Boolean":
+                return "reader.nextBoolean()";
+            case "INT":
+            case "java.lang.Integer":
+                return "reader.nextInt()";
+            case "LONG":
+            case "java.lang.Long":
+                return "reader.nextLong()";
+            case "SHORT":
+            case "java.lang.Short":
+                return "(short) reader.nextInt()";
+            case "BYTE":
+            case "java.lang.Byte":
+                return "(byte) reader.nextInt()";
+            case "DOUBLE":
+            case "java.lang.Double":
+                return "reader.nextDouble()";
+            case "FLOAT":
+            case "java.lang.Float":
+                return "(float) reader.nextDouble()";
+            case "java.util.Date":
+                return "DATES.read(reader)";
+            default:
+                throw unsupported(field);
+        }
+    }
+
+    private boolean isErasure(TypeMirror type, String className) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(className);
+    }
+
+    private UnsupportedFieldException unsupported(VariableElement field) {
+        return new UnsupportedFieldException(field, "the type of the field " + field.getSimpleName()
+                + " is not supported by generated serializers, use @IndexSerializedBy with a hand written serializer");
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static class UnsupportedFieldException extends RuntimeException {
+        private final VariableElement field;
+
+        private UnsupportedFieldException(VariableElement field, String message) {
+            super(message);
+            this.field = field;
+        }
+    }
+}
@@ -3,11 +3,13 @@ import com.codetroopers.play.elasticsearch.jest.JestRichResult;
 import indextype.Index1Type1;
 import indextype.Index2Type1;
 import org.apache.commons.lang3.time.DateUtils;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.common.unit.DistanceUnit;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.GeoDistanceFilterBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.junit.Test;
 import play.libs.F;
 import play.test.FakeApplication;
@@ -22,8 +24,12 @@ import static play.test.Helpers.running;
 public class ElasticsearchTestJava {
 
     public FakeApplication esFakeApplication() {
+        return esFakeApplication(new HashMap<String, Object>());
+    }
+
+    public FakeApplication esFakeApplication(Map<String, Object> moreConfiguration) {
 
-        Map<String, Object> additionalConfiguration = new HashMap<String, Object>();
+        Map<String, Object> additionalConfiguration = new HashMap<String, Object>(moreConfiguration);
         additionalConfiguration.put("elasticsearch.local", true);
         additionalConfiguration.put("elasticsearch.index.name", "index1,index2");
         additionalConfiguration.put("elasticsearch.index.clazzs", "indextype.*");
@@ -151,6 +157,51 @@ public class ElasticsearchTestJava {
         });
     }
     
+    @Test
+    public void coalescedIndexAsync() {
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put("elasticsearch.index.coalesce_window", "200ms");
+        running(esFakeApplication(configuration), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category", createDate());
+                F.Promise<JestRichResult> promise1 = index1Type1.indexAsync();
+                index1Type1.name = "name2";
+                F.Promise<JestRichResult> promise2 = index1Type1.indexAsync();
+                index1Type1.name = "name3";
+                F.Promise<JestRichResult> promise3 = index1Type1.indexAsync();
+
+                List<JestRichResult> responses = F.Promise.sequence(promise1, promise2, promise3).get(10L, TimeUnit.SECONDS);
+
+                // a single write was sent : every caller gets its outcome
+                assertThat(responses.get(0).getId()).isEqualTo("1");
+                assertThat(responses.get(0).getJsonObject().get("_version").getAsLong()).isEqualTo(1L);
+                assertThat(responses.get(2).getJsonObject().get("_version").getAsLong()).isEqualTo(1L);
+                assertThat(Index1Type1.find.byId("1").name).isEqualTo("name3");
+            }
+        });
+    }
+
+    @Test
+    public void bufferedIndex() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category", createDate());
+                Index1Type1 index1Type1Bis = new Index1Type1("2", "name2", "category", createDate());
+                index1Type1.indexBuffered();
+                index1Type1Bis.indexBuffered();
+                assertThat(IndexService.getBulkProcessor().pendingActions()).isEqualTo(2);
+
+                // closing sends the pending actions and waits for the bulk to complete
+                IndexClient.closeBulkProcessor();
+
+                assertThat(Index1Type1.find.byId("1")).isEqualTo(index1Type1);
+                assertThat(Index1Type1.find.byId("2")).isEqualTo(index1Type1Bis);
+            }
+        });
+    }
+
     @Test
     public void asynchronousDelete() {
         running(esFakeApplication(), new Runnable() {
@@ -173,6 +224,53 @@ public class ElasticsearchTestJava {
         });
     }
 
+    @Test
+    public void parallelIndexBulk() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                List<Index1Type1> indexables = new ArrayList<>();
+                for (int i = 0; i < 25; i++) {
+                    indexables.add(new Index1Type1(String.valueOf(i), "name" + i, "category", createDate()));
+                }
+
+                JestRichResult response = IndexService.indexBulkParallel(indexables.get(0).getIndexPath(), indexables, 10, -1, 2);
+
+                assertThat(response.isSucceeded()).isTrue();
+                assertThat(response.hasBulkFailures()).isFalse();
+                List<JestRichResult.BulkItem> items = response.getBulkItems();
+                assertThat(items.size()).isEqualTo(25);
+                assertThat(items.get(24).id()).isEqualTo("24");
+            }
+        });
+    }
+
+    @Test
+    public void mixedBulk() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category", createDate());
+                Index1Type1 index1Type1Bis = new Index1Type1("2", "name2", "category", createDate());
+                Index1Type1 index1Type1Ter = new Index1Type1("3", "name3", "category", createDate());
+                IndexQueryPath indexPath = index1Type1.getIndexPath();
+                IndexService.indexBulk(indexPath, Arrays.asList(index1Type1, index1Type1Bis, index1Type1Ter));
+
+                Map<String, Object> fieldNewValues = new HashMap<>();
+                fieldNewValues.put("name", "new-name");
+                Map<String, Map<String, Object>> updates = new HashMap<>();
+                updates.put("3", fieldNewValues);
+                IndexService.updateBulk(indexPath, updates, "ctx._source.name = name");
+                JestRichResult response = IndexService.deleteBulk(indexPath, Arrays.asList("1", "2"));
+
+                assertThat(response.getJsonObject().get("items").getAsJsonArray().size()).isEqualTo(2);
+                assertThat(Index1Type1.find.byId("1")).isNull();
+                assertThat(Index1Type1.find.byId("2")).isNull();
+                assertThat(Index1Type1.find.byId("3").name).isEqualTo("new-name");
+            }
+        });
+    }
+
     @Test
     public void asynchronousGet() {
         running(esFakeApplication(), new Runnable() {
@@ -198,6 +296,33 @@ public class ElasticsearchTestJava {
         });
     }
 
+    @Test
+    public void batchedGetAsync() {
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put("elasticsearch.get.batch_window", "200ms");
+        running(esFakeApplication(configuration), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category", createDate());
+                Index1Type1 index1Type1Bis = new Index1Type1("2", "name2", "category", createDate());
+                IndexService.indexBulk(index1Type1.getIndexPath(), Arrays.asList(index1Type1, index1Type1Bis));
+
+                F.Promise<Index1Type1> promise1 = IndexService.getAsync(index1Type1.getIndexPath(), Index1Type1.class, "1");
+                F.Promise<Index1Type1> promise2 = IndexService.getAsync(index1Type1.getIndexPath(), Index1Type1.class, "2");
+                F.Promise<Index1Type1> promise3 = IndexService.getAsync(index1Type1.getIndexPath(), Index1Type1.class, "1");
+                F.Promise<Index1Type1> missing = IndexService.getAsync(index1Type1.getIndexPath(), Index1Type1.class, "unknown");
+                // duplicated ids are fetched once
+                assertThat(IndexClient.getBatcher.pendingGets()).isEqualTo(3);
+
+                List<Index1Type1> objects = F.Promise.sequence(promise1, promise2, promise3).get(10L, TimeUnit.SECONDS);
+                assertThat(objects.get(0)).isEqualTo(index1Type1);
+                assertThat(objects.get(1)).isEqualTo(index1Type1Bis);
+                assertThat(objects.get(2)).isEqualTo(index1Type1);
+                assertThat(missing.get(10L, TimeUnit.SECONDS)).isNull();
+            }
+        });
+    }
+
     @Test
     public void asynchronousSearch() {
         running(esFakeApplication(), new Runnable() {
@@ -223,6 +348,126 @@ public class ElasticsearchTestJava {
         });
     }
 
+    @Test
+    public void sourceFiltering() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category", createDate());
+                index1Type1.index();
+                IndexService.refresh();
+
+                IndexQuery<Index1Type1> query = new IndexQuery<Index1Type1>(Index1Type1.class)
+                        .setSourceIncludes(Index1Type1.NAME);
+                IndexResults<Index1Type1> indexResults = query.fetch(index1Type1.getIndexPath());
+                assertThat(indexResults.totalCount).isEqualTo(1);
+                Index1Type1 partial = indexResults.results.get(0);
+                assertThat(partial.id).isEqualTo("1");
+                assertThat(partial.name).isEqualTo("name1");
+                assertThat(partial.category).isNull();
+                assertThat(partial.dateCreate).isNull();
+
+                IndexQuery<Index1Type1> fieldsQuery = new IndexQuery<Index1Type1>(Index1Type1.class)
+                        .addFieldDataField(Index1Type1.CATEGORY);
+                Index1Type1 fromFields = fieldsQuery.fetch(index1Type1.getIndexPath()).results.get(0);
+                assertThat(fromFields.category).isEqualTo("category");
+                assertThat(fromFields.name).isNull();
+            }
+        });
+    }
+
+    @Test
+    public void scroll() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                List<Index1Type1> indexables = new ArrayList<>();
+                for (int i = 0; i < 25; i++) {
+                    indexables.add(new Index1Type1(String.valueOf(i), "name" + i, "category", createDate()));
+                }
+                IndexQueryPath indexPath = indexables.get(0).getIndexPath();
+                IndexService.indexBulk(indexPath, indexables);
+                IndexService.refresh();
+
+                // scan, no sort
+                Set<String> ids = new HashSet<>();
+                IndexScroll<Index1Type1> scroll = Index1Type1.find.scroll(3, "1m");
+                assertThat(scroll.getTotal()).isEqualTo(25);
+                for (Index1Type1 index1Type1 : scroll) {
+                    ids.add(index1Type1.id);
+                }
+                assertThat(ids.size()).isEqualTo(25);
+
+                // sorted, prefetching the next batch
+                IndexQuery<Index1Type1> query = Index1Type1.find.query().addSort(Index1Type1.NAME, SortOrder.ASC);
+                IndexScroll<Index1Type1> sorted = query.scrollAsync(indexPath, 10, "1m").get(10L, TimeUnit.SECONDS);
+                List<String> names = new ArrayList<>();
+                while (sorted.hasNext()) {
+                    names.add(sorted.next().name);
+                }
+                assertThat(names.size()).isEqualTo(25);
+                assertThat(names.get(0)).isEqualTo("name0");
+                assertThat(names.get(1)).isEqualTo("name1");
+                assertThat(names.get(2)).isEqualTo("name10");
+
+                // batch by batch, without blocking
+                IndexScroll<Index1Type1> batches = query.scrollAsync(indexPath, 10, "1m").get(10L, TimeUnit.SECONDS);
+                List<Integer> batchSizes = new ArrayList<>();
+                List<Index1Type1> batch = batches.nextBatchAsync().get(10L, TimeUnit.SECONDS);
+                while (!batch.isEmpty()) {
+                    batchSizes.add(batch.size());
+                    batch = batches.nextBatchAsync().get(10L, TimeUnit.SECONDS);
+                }
+                assertThat(batchSizes).isEqualTo(Arrays.asList(10, 10, 5));
+            }
+        });
+    }
+
+    @Test
+    public void multiSearch() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category1", createDate());
+                Index1Type1 index1Type1Bis = new Index1Type1("2", "name2", "category2", createDate());
+                IndexService.indexBulk(index1Type1.getIndexPath(), Arrays.asList(index1Type1, index1Type1Bis));
+                IndexService.refresh();
+
+                IndexQuery<Index1Type1> all = Index1Type1.find.query();
+                IndexQuery<Index1Type1> byName = Index1Type1.find.query().setBuilder(QueryBuilders.termQuery(Index1Type1.NAME, "name2"));
+                List<IndexQuery<Index1Type1>> queries = Arrays.asList(all, byName);
+
+                MultiSearchResults results = IndexService.multiSearch(index1Type1.getIndexPath(), queries);
+                assertThat(results.size()).isEqualTo(2);
+                assertThat(results.get(all).totalCount).isEqualTo(2);
+                assertThat(results.get(byName).totalCount).isEqualTo(1);
+                assertThat(results.get(byName).results.get(0).id).isEqualTo("2");
+
+                MultiSearchResults asyncResults = IndexService.multiSearchAsync(index1Type1.getIndexPath(), queries).get(10L, TimeUnit.SECONDS);
+                assertThat(asyncResults.get(byName).results.get(0).name).isEqualTo("name2");
+            }
+        });
+    }
+
+    @Test
+    public void multiGet() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category", createDate());
+                Index1Type1 index1Type1Bis = new Index1Type1("2", "name2", "category", createDate());
+                IndexService.indexBulk(index1Type1.getIndexPath(), Arrays.asList(index1Type1, index1Type1Bis));
+
+                MultiGetResults<Index1Type1> results = Index1Type1.find.byIds(Arrays.asList("2", "unknown", "1"));
+                assertThat(results.getResults()).containsExactly(index1Type1Bis, index1Type1);
+                assertThat(results.getMissingIds()).containsExactly("unknown");
+
+                MultiGetResults<Index1Type1> asyncResults = Index1Type1.find.byIdsAsync(Arrays.asList("1")).get(10L, TimeUnit.SECONDS);
+                assertThat(asyncResults.get("1")).isEqualTo(index1Type1);
+            }
+        });
+    }
+
     @Test
     public void update() {
         running(esFakeApplication(), new Runnable() {
@@ -285,4 +530,113 @@ public class ElasticsearchTestJava {
             }
         });
     }
+
+    @Test
+    public void cachedSearch() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category", createDate());
+                IndexService.index(index1Type1.getIndexPath(), "1", index1Type1);
+                IndexService.refresh();
+
+                SearchCache cache = new SearchCache(100, 60000);
+                IndexQuery<Index1Type1> query = new IndexQuery<Index1Type1>(Index1Type1.class).setCache(cache);
+                assertThat(query.fetch(index1Type1.getIndexPath()).totalCount).isEqualTo(1);
+                assertThat(query.fetch(index1Type1.getIndexPath()).totalCount).isEqualTo(1);
+                assertThat(cache.getStats().hitCount()).isEqualTo(1);
+                assertThat(cache.getStats().missCount()).isEqualTo(1);
+
+                Index1Type1 index1Type1Bis = new Index1Type1("2", "name2", "category", createDate());
+                IndexService.index(index1Type1.getIndexPath(), "2", index1Type1Bis);
+                IndexService.refresh();
+                assertThat(query.fetch(index1Type1.getIndexPath()).totalCount).isEqualTo(2);
+                assertThat(cache.getStats().missCount()).isEqualTo(2);
+            }
+        });
+    }
+
+    @Test
+    public void cachedGet() {
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put("elasticsearch.get.cache.max_staleness", "1m");
+        configuration.put("elasticsearch.get.cache.negative", true);
+        running(esFakeApplication(configuration), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category", createDate());
+                IndexService.index(index1Type1.getIndexPath(), "1", index1Type1);
+
+                assertThat(Index1Type1.find.byId("1")).isEqualTo(index1Type1);
+                assertThat(Index1Type1.find.byId("1")).isEqualTo(index1Type1);
+                assertThat(Index1Type1.find.byId("unknown")).isNull();
+                assertThat(Index1Type1.find.byId("unknown")).isNull();
+                assertThat(IndexClient.getCache.getStats().hitCount()).isEqualTo(2);
+
+                Index1Type1 renamed = new Index1Type1("1", "renamed", "category", createDate());
+                IndexService.index(index1Type1.getIndexPath(), "1", renamed);
+                assertThat(Index1Type1.find.byId("1").name).isEqualTo("renamed");
+                assertThat(IndexService.getAsync(index1Type1.getIndexPath(), Index1Type1.class, "1").get(10L, TimeUnit.SECONDS).name).isEqualTo("renamed");
+                assertThat(IndexClient.getCache.getStats().hitCount()).isEqualTo(3);
+            }
+        });
+    }
+
+    @Test
+    public void count() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category1", createDate());
+                Index1Type1 index1Type1Bis = new Index1Type1("2", "name2", "category2", createDate());
+                Index1Type1 index1Type1Ter = new Index1Type1("3", "name3", "category2", createDate());
+                IndexService.indexBulk(index1Type1.getIndexPath(), Arrays.asList(index1Type1, index1Type1Bis, index1Type1Ter));
+                IndexService.refresh();
+
+                assertThat(Index1Type1.find.count()).isEqualTo(3);
+
+                IndexQuery<Index1Type1> query = Index1Type1.find.query()
+                        .setBuilder(QueryBuilders.termQuery(Index1Type1.CATEGORY, "category2"));
+                assertThat(Index1Type1.find.count(query)).isEqualTo(2);
+                assertThat(Index1Type1.find.countAsync(query, FilterBuilders.termFilter(Index1Type1.NAME, "name3")).get(10L, TimeUnit.SECONDS)).isEqualTo(1L);
+                assertThat(Index1Type1.find.count(query, FilterBuilders.termFilter(Index1Type1.NAME, "name3"))).isEqualTo(1L);
+
+                try {
+                    query.count(new IndexQueryPath("missing-index", "type1"));
+                    throw new AssertionError("a failed count should not be a count of 0");
+                } catch (ElasticsearchException e) {
+                    assertThat(e.getMessage()).contains("count failed");
+                }
+            }
+        });
+    }
+
+    @Test
+    public void compiledQuery() {
+        running(esFakeApplication(), new Runnable() {
+            @Override
+            public void run() {
+                Index1Type1 index1Type1 = new Index1Type1("1", "name1", "category1", createDate());
+                Index1Type1 index1Type1Bis = new Index1Type1("2", "name2", "category2", createDate());
+                IndexService.indexBulk(index1Type1.getIndexPath(), Arrays.asList(index1Type1, index1Type1Bis));
+                IndexService.refresh();
+
+                IndexQuery<Index1Type1> query = Index1Type1.find.query()
+                        .setBuilder(QueryBuilders.termQuery(Index1Type1.NAME, CompiledQuery.param("name")));
+                CompiledQuery<Index1Type1> compiledQuery = Index1Type1.find.compile(query);
+                assertThat(compiledQuery.getParameters()).containsOnly("name");
+
+                Map<String, Object> params = new HashMap<>();
+                params.put("name", "name2");
+                IndexResults<Index1Type1> results = compiledQuery.fetch(params);
+                assertThat(results.totalCount).isEqualTo(1);
+                assertThat(results.results.get(0).id).isEqualTo("2");
+                assertThat(compiledQuery.render(params)).contains("\"name2\"");
+
+                params.put("name", "name1");
+                IndexResults<Index1Type1> asyncResults = compiledQuery.fetchAsync(params).get(10L, TimeUnit.SECONDS);
+                assertThat(asyncResults.results.get(0).id).isEqualTo("1");
+            }
+        });
+    }
 }
\ No newline at end of file
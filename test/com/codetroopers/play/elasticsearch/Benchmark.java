@@ -0,0 +1,95 @@
+package com.codetroopers.play.elasticsearch;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Small timing harness for the benchmark tests (classes named *Benchmark), skipped unless run with
+ * <code>-Dbenchmarks=true</code> : <code>sbt -Dbenchmarks=true "test-only *Benchmark"</code>.
+ * <p/>
+ * An operation is run for a warm up period then measured over a number of iterations, giving its mean time and the
+ * bytes allocated by the measuring thread (when the JVM tells them). The results are printed, they are meant to be
+ * compared on the same machine.
+ */
+public final class Benchmark {
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 50000;
+
+    // results of the operations, read so that the JIT does not drop them
+    private static volatile int sink;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Skips the calling test unless benchmarks are enabled
+     */
+    public static void assumeEnabled() {
+        assumeTrue(Boolean.getBoolean("benchmarks"));
+    }
+
+    public static Result measure(String name, Callable<?> operation) throws Exception {
+        return measure(name, WARMUP_ITERATIONS, ITERATIONS, operation);
+    }
+
+    public static Result measure(String name, int warmupIterations, int iterations, Callable<?> operation) throws Exception {
+        int hash = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            hash += System.identityHashCode(operation.call());
+        }
+        System.gc();
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            hash += System.identityHashCode(operation.call());
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long allocatedAfter = allocatedBytes();
+        sink = hash;
+
+        final Result result = new Result(name, (double) elapsed / iterations,
+                allocatedBefore < 0 ? -1 : (double) (allocatedAfter - allocatedBefore) / iterations);
+        System.out.println(result);
+        return result;
+    }
+
+    private static long allocatedBytes() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public static final class Result {
+        public final String name;
+        public final double nanosPerOperation;
+        /**
+         * -1 when the JVM does not measure allocations
+         */
+        public final double bytesPerOperation;
+
+        private Result(String name, double nanosPerOperation, double bytesPerOperation) {
+            this.name = name;
+            this.nanosPerOperation = nanosPerOperation;
+            this.bytesPerOperation = bytesPerOperation;
+        }
+
+        public boolean allocatesLessThan(Result other) {
+            return bytesPerOperation < 0 || other.bytesPerOperation < 0 || bytesPerOperation < other.bytesPerOperation;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "benchmark %-50s %12.1f ns/op %14.1f B/op", name, nanosPerOperation, bytesPerOperation);
+        }
+    }
+}
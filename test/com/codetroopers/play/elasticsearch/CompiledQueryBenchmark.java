@@ -0,0 +1,73 @@
+package com.codetroopers.play.elasticsearch;
+
+import org.elasticsearch.index.query.FilterBuilders;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Cost of building the search action of an autocomplete query differing only by one term and one filter value : built and
+ * serialized on each run, against a {@link CompiledQuery} rendered with parameters
+ */
+public class CompiledQueryBenchmark {
+
+    public static class Product extends Index {
+        @Override
+        public Map toIndex() {
+            return null;
+        }
+
+        @Override
+        public Indexable fromIndex(Map map) {
+            return this;
+        }
+    }
+
+    private final IndexQueryPath path = new IndexQueryPath("catalog", "product");
+    private CompiledQuery<Product> compiled;
+
+    @Before
+    public void setUp() throws Exception {
+        Benchmark.assumeEnabled();
+        compiled = CompiledQuery.compile(query(CompiledQuery.param("prefix")), path,
+                FilterBuilders.termFilter("category", CompiledQuery.param("category")));
+    }
+
+    private static IndexQuery<Product> query(String prefix) {
+        return new IndexQuery<>(Product.class)
+                .setBuilder(QueryBuilders.boolQuery()
+                        .must(QueryBuilders.prefixQuery("name", prefix))
+                        .should(QueryBuilders.termQuery("available", true)))
+                .size(10);
+    }
+
+    @Test
+    public void requestBody() throws Exception {
+        Benchmark.measure("autocomplete search, built on each run", new Callable<Object>() {
+            private int run = 0;
+
+            @Override
+            public Object call() throws Exception {
+                run++;
+                return query("cha" + (run % 10)).getSearchRequestBuilder(path,
+                        FilterBuilders.termFilter("category", "category" + (run % 5))).getAction();
+            }
+        });
+        Benchmark.measure("autocomplete search, CompiledQuery", new Callable<Object>() {
+            private int run = 0;
+
+            @Override
+            public Object call() throws Exception {
+                run++;
+                final Map<String, Object> params = new HashMap<>();
+                params.put("prefix", "cha" + (run % 10));
+                params.put("category", "category" + (run % 5));
+                return compiled.getAction(params);
+            }
+        });
+    }
+}
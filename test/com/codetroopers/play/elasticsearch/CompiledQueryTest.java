@@ -0,0 +1,25 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.json.JsonCodecs;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertTrue;
+
+public class CompiledQueryTest {
+
+    @Test
+    public void shouldWriteParametersAsTheDocumentsCodec() throws Exception {
+        final IndexQuery<CompiledQueryBenchmark.Product> query = new IndexQuery<>(CompiledQueryBenchmark.Product.class)
+                .setBuilder(QueryBuilders.termQuery("dateCreate", CompiledQuery.param("date")));
+        final CompiledQuery<CompiledQueryBenchmark.Product> compiled = CompiledQuery.compile(query, new IndexQueryPath("catalog", "product"));
+
+        final Date date = new Date(1400000000000L);
+        final String body = compiled.render(Collections.singletonMap("date", date));
+
+        assertTrue(body, body.contains("\"dateCreate\":" + JsonCodecs.get().toJson(date)));
+    }
+}
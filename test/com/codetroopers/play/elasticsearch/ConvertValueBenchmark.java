@@ -0,0 +1,78 @@
+package com.codetroopers.play.elasticsearch;
+
+import org.elasticsearch.common.geo.GeoPoint;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link IndexUtils#convertValue(Object, Class)} over the fields of a realistic document (dates, numbers, UUID,
+ * GeoPoint), and the ISO dates against the Joda parser built for each value it used to rely on
+ */
+public class ConvertValueBenchmark {
+
+    private static final String DATE = "2014-05-13T16:53:20.123Z";
+
+    private final Map<String, Object> document = new LinkedHashMap<>();
+    private final Map<String, Class<?>> types = new LinkedHashMap<>();
+
+    @Before
+    public void setUp() throws Exception {
+        Benchmark.assumeEnabled();
+        final Map<String, Object> location = new LinkedHashMap<>();
+        location.put("lat", 48.85);
+        location.put("lon", 2.35);
+        add("id", "2d7b2a8c-1f0e-4c4e-9a55-0c4d1d3e6f70", UUID.class);
+        add("created", DATE, Date.class);
+        add("updated", "2014-05-13", Date.class);
+        add("price", 12.5, Float.class);
+        add("stock", 42, Long.class);
+        add("quantity", 3, int.class);
+        add("name", "document name", String.class);
+        add("location", location, GeoPoint.class);
+    }
+
+    private void add(String field, Object value, Class<?> type) {
+        document.put(field, value);
+        types.put(field, type);
+    }
+
+    @Test
+    public void isoDate() throws Exception {
+        final Benchmark.Result joda = Benchmark.measure("ISO date, Joda parser per value", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return ISODateTimeFormat.dateTimeParser().parseLocalDateTime(DATE).toDate();
+            }
+        });
+        final Benchmark.Result convert = Benchmark.measure("ISO date, convertValue", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return IndexUtils.convertValue(DATE, Date.class);
+            }
+        });
+        assertTrue(convert.allocatesLessThan(joda));
+    }
+
+    @Test
+    public void document() throws Exception {
+        Benchmark.measure("document of 8 fields, convertValue", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                Object last = null;
+                for (Map.Entry<String, Object> field : document.entrySet()) {
+                    last = IndexUtils.convertValue(field.getValue(), types.get(field.getKey()));
+                }
+                return last;
+            }
+        });
+    }
+}
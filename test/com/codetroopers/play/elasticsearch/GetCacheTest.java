@@ -0,0 +1,85 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Search;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GetCacheTest {
+
+    private static JestRichResult found(String id, long version) {
+        return response("{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"" + id + "\",\"_version\":" + version
+                + ",\"found\":true,\"_source\":{\"name\":\"name" + version + "\"}}", true);
+    }
+
+    private static JestRichResult missing(String id) {
+        return response("{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"" + id + "\",\"found\":false}", false);
+    }
+
+    private static JestRichResult response(String json, boolean succeeded) {
+        final JestResult jestResult = new JestResult(new Gson());
+        jestResult.setJsonObject(new JsonParser().parse(json).getAsJsonObject());
+        jestResult.setSucceeded(succeeded);
+        return new JestRichResult(jestResult);
+    }
+
+    @Test
+    public void shouldServeDocumentUntilItIsWritten() throws Exception {
+        final GetCache cache = new GetCache(60000, 1024 * 1024, false);
+        final JestRichResult response = found("1", 1);
+        cache.put("index1", "type1", "1", cache.writeCount("index1", "type1", "1"), response);
+        assertSame(response, cache.getIfPresent("index1", "type1", "1"));
+
+        cache.onExecuted(new Search.Builder("{}").addIndex("index1").build());
+        assertSame(response, cache.getIfPresent("index1", "type1", "1"));
+
+        cache.onExecuted(new Delete.Builder("1").index("index1").type("type1").build());
+        assertNull(cache.getIfPresent("index1", "type1", "1"));
+    }
+
+    @Test
+    public void shouldNotKeepResponseReadBeforeAWrite() throws Exception {
+        final GetCache cache = new GetCache(60000, 1024 * 1024, false);
+        final long writeCount = cache.writeCount("index1", "type1", "1");
+        cache.invalidate("index1", "type1", "1");
+
+        cache.put("index1", "type1", "1", writeCount, found("1", 1));
+        assertNull(cache.getIfPresent("index1", "type1", "1"));
+    }
+
+    @Test
+    public void shouldKeepNewestVersion() throws Exception {
+        final GetCache cache = new GetCache(60000, 1024 * 1024, false);
+        final long writeCount = cache.writeCount("index1", "type1", "1");
+        final JestRichResult newest = found("1", 2);
+        cache.put("index1", "type1", "1", writeCount, newest);
+        cache.put("index1", "type1", "1", writeCount, found("1", 1));
+        assertSame(newest, cache.getIfPresent("index1", "type1", "1"));
+    }
+
+    @Test
+    public void shouldOnlyKeepMissingIdsWhenNegative() throws Exception {
+        final GetCache cache = new GetCache(60000, 1024 * 1024, false);
+        cache.put("index1", "type1", "2", cache.writeCount("index1", "type1", "2"), missing("2"));
+        assertNull(cache.getIfPresent("index1", "type1", "2"));
+
+        final GetCache negativeCache = new GetCache(60000, 1024 * 1024, true);
+        negativeCache.put("index1", "type1", "2", negativeCache.writeCount("index1", "type1", "2"), missing("2"));
+        final JestRichResult cached = negativeCache.getIfPresent("index1", "type1", "2");
+        assertNotNull(cached);
+        assertFalse(cached.isSucceeded());
+    }
+
+    @Test
+    public void shouldNotKeepFailedGets() throws Exception {
+        final GetCache cache = new GetCache(60000, 1024 * 1024, true);
+        cache.put("index1", "type1", "3", cache.writeCount("index1", "type1", "3"), response("{\"error\":\"IndexMissingException\"}", false));
+        cache.put("index1", "type1", "3", cache.writeCount("index1", "type1", "3"), new JestRichResult(null));
+        assertNull(cache.getIfPresent("index1", "type1", "3"));
+    }
+}
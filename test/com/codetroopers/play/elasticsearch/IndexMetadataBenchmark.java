@@ -0,0 +1,71 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.annotations.IndexName;
+import com.codetroopers.play.elasticsearch.annotations.IndexType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Per operation overhead of the index path and of the instances created for the hits : annotations read and
+ * reflective instantiation on each call, against the {@link IndexMetadata} registry
+ */
+public class IndexMetadataBenchmark {
+
+    @IndexName(name = "catalog")
+    @IndexType(name = "product")
+    public static class Product extends Index {
+        @Override
+        public Map toIndex() {
+            return null;
+        }
+
+        @Override
+        public Indexable fromIndex(Map map) {
+            return this;
+        }
+    }
+
+    private final Product product = new Product();
+
+    @Before
+    public void setUp() throws Exception {
+        Benchmark.assumeEnabled();
+    }
+
+    @Test
+    public void indexPath() throws Exception {
+        Benchmark.measure("index path, annotations read on each call", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                final IndexType indexType = Product.class.getAnnotation(IndexType.class);
+                final IndexName indexName = Product.class.getAnnotation(IndexName.class);
+                return new IndexQueryPath(indexName.name(), indexType.name());
+            }
+        });
+        Benchmark.measure("index path, IndexMetadata", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return product.getIndexPath();
+            }
+        });
+    }
+
+    @Test
+    public void newInstance() throws Exception {
+        Benchmark.measure("hit instance, Class.newInstance", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return Product.class.newInstance();
+            }
+        });
+        Benchmark.measure("hit instance, IndexMetadata", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return IndexUtils.getInstanceIndex(Product.class);
+            }
+        });
+    }
+}
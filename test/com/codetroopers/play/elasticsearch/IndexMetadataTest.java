@@ -0,0 +1,100 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.annotations.IndexMapping;
+import com.codetroopers.play.elasticsearch.annotations.IndexName;
+import com.codetroopers.play.elasticsearch.annotations.IndexType;
+import org.elasticsearch.ElasticsearchException;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class IndexMetadataTest {
+
+    @IndexName(name = "catalog")
+    @IndexType(name = "product")
+    @IndexMapping("{\"product\":{\"properties\":{\"name\":{\"type\":\"string\"}}}}")
+    public static class Product extends Index {
+        private Product() {
+        }
+
+        @Override
+        public Map toIndex() {
+            return null;
+        }
+
+        @Override
+        public Indexable fromIndex(Map map) {
+            return this;
+        }
+    }
+
+    public static class NotAnnotated extends Index {
+        @Override
+        public Map toIndex() {
+            return null;
+        }
+
+        @Override
+        public Indexable fromIndex(Map map) {
+            return this;
+        }
+    }
+
+    @Test
+    public void shouldResolveAnnotationsOnce() throws Exception {
+        final IndexMetadata<Product> metadata = IndexMetadata.of(Product.class);
+        assertSame(metadata, IndexMetadata.of(Product.class));
+        assertEquals("catalog", metadata.getIndexName());
+        assertEquals("product", metadata.getIndexType());
+        assertEquals("{\"product\":{\"properties\":{\"name\":{\"type\":\"string\"}}}}", metadata.getIndexMapping());
+
+        final IndexQueryPath path = metadata.getIndexPath();
+        assertEquals("catalog", path.index);
+        assertEquals("product", path.type);
+        // each call returns its own path, callers may change it
+        path.index = "other";
+        assertEquals("catalog", new Product().getIndexPath().index);
+    }
+
+    @IndexType(name = "order")
+    public static class TenantOrder extends Index {
+        @Override
+        public IndexQueryPath getIndexPath() {
+            return new IndexQueryPath("tenant1", "order");
+        }
+
+        @Override
+        public Map toIndex() {
+            return null;
+        }
+
+        @Override
+        public Indexable fromIndex(Map map) {
+            return this;
+        }
+    }
+
+    @Test
+    public void shouldUseOverriddenIndexPath() throws Exception {
+        final IndexMetadata<TenantOrder> metadata = IndexMetadata.of(TenantOrder.class);
+        assertEquals("tenant1", metadata.getIndexPath().index);
+        assertEquals("other", metadata.getIndexPath("other").index);
+
+        assertEquals("catalog", IndexMetadata.of(Product.class).getIndexPath("catalog").index);
+        assertEquals("product", IndexMetadata.of(Product.class).getIndexPath("catalog").type);
+    }
+
+    @Test
+    public void shouldCreateInstancesThroughConstructor() throws Exception {
+        assertNotNull(IndexUtils.getInstanceIndex(Product.class));
+        assertNotSame(IndexUtils.getInstanceIndex(Product.class), IndexUtils.getInstanceIndex(Product.class));
+        assertNull(IndexMetadata.of(Index.class).newInstance());
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void shouldRequireIndexType() throws Exception {
+        new NotAnnotated().getIndexPath();
+    }
+}
@@ -0,0 +1,193 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.annotations.GenerateIndexSerializer;
+import com.codetroopers.play.elasticsearch.annotations.IndexSerializedBy;
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+import com.codetroopers.play.elasticsearch.json.GsonJsonCodec;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndexSerializersTest {
+
+    @IndexSerializedBy(ProductSerializer.class)
+    public static class Product extends Index {
+        public String name;
+        public int quantity;
+
+        @Override
+        public Map toIndex() {
+            throw new UnsupportedOperationException("the serializer should be used");
+        }
+
+        @Override
+        public Indexable fromIndex(Map map) {
+            throw new UnsupportedOperationException("the serializer should be used");
+        }
+    }
+
+    public static class ProductSerializer implements IndexSerializer<Product> {
+        @Override
+        public void write(Product product, JsonWriter writer) throws IOException {
+            writer.beginObject()
+                    .name("name").value(product.name)
+                    .name("quantity").value(product.quantity)
+                    .endObject();
+        }
+
+        @Override
+        public Product read(JsonReader reader) throws IOException {
+            final Product product = new Product();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name":
+                        product.name = reader.nextString();
+                        break;
+                    case "quantity":
+                        product.quantity = reader.nextInt();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return product;
+        }
+    }
+
+    public enum Color {RED, BLUE}
+
+    @GenerateIndexSerializer
+    public static class GeneratedProduct extends Index {
+        public String name;
+        public int quantity;
+        public Long stock;
+        public Date created;
+        public Color color;
+        public List<String> tags;
+        public transient String ignored;
+
+        @Override
+        public Map toIndex() {
+            throw new UnsupportedOperationException("the generated serializer should be used");
+        }
+
+        @Override
+        public Indexable fromIndex(Map map) {
+            throw new UnsupportedOperationException("the generated serializer should be used");
+        }
+    }
+
+    public static class MapDocument extends Index {
+        public String name;
+
+        @Override
+        public Map toIndex() {
+            final Map<String, Object> map = new HashMap<>();
+            map.put("name", name);
+            return map;
+        }
+
+        @Override
+        public Indexable fromIndex(Map map) {
+            name = (String) map.get("name");
+            return this;
+        }
+    }
+
+    @Test
+    public void shouldWriteSourceWithSerializer() throws Exception {
+        final Product product = new Product();
+        product.name = "chair";
+        product.quantity = 3;
+
+        assertEquals("{\"name\":\"chair\",\"quantity\":3}", IndexSerializers.toSource(product).toJson());
+        assertNull(IndexSerializers.toSource(product).getValue());
+    }
+
+    @Test
+    public void shouldReadHitWithSerializer() throws Exception {
+        final JestRichResult.Result hit = new JestRichResult.Result(new JsonParser().parse(
+                "{\"_index\":\"index1\",\"_type\":\"product\",\"_id\":\"12\",\"_score\":1.0," +
+                        "\"_source\":{\"name\":\"chair\",\"color\":{\"name\":\"red\"},\"quantity\":3}}").getAsJsonObject());
+
+        final Product product = hit.getObject(Product.class);
+        assertEquals("12", product.id);
+        assertEquals("chair", product.name);
+        assertEquals(3, product.quantity);
+    }
+
+    @Test
+    public void shouldUseGeneratedSerializer() throws Exception {
+        assertTrue(IndexSerializers.get(GeneratedProduct.class) instanceof IndexSerializersTest_GeneratedProductIndexSerializer);
+
+        final GeneratedProduct product = new GeneratedProduct();
+        product.id = "12";
+        product.name = "chair";
+        product.quantity = 3;
+        product.created = new Date(1400000000000L);
+        product.color = Color.RED;
+        product.tags = Arrays.asList("wood", "garden");
+        product.ignored = "ignored";
+
+        final String json = IndexSerializers.toSource(product).toJson();
+        // dates in the default time zone, as the codecs write them
+        final String created = new SimpleDateFormat(GsonJsonCodec.DATE_FORMAT).format(product.created);
+        assertEquals("{\"name\":\"chair\",\"quantity\":3,\"created\":\"" + created + "\",\"color\":\"RED\"," +
+                "\"tags\":[\"wood\",\"garden\"]}", json);
+
+        final JestRichResult.Result hit = new JestRichResult.Result(new JsonParser().parse(
+                "{\"_index\":\"index1\",\"_type\":\"product\",\"_id\":\"12\",\"_score\":1.0," +
+                        "\"_source\":{\"other\":{\"a\":[1]},\"stock\":null," + json.substring(1) + "}").getAsJsonObject());
+        final GeneratedProduct read = hit.getObject(GeneratedProduct.class);
+        assertEquals("12", read.id);
+        assertEquals("chair", read.name);
+        assertEquals(3, read.quantity);
+        assertNull(read.stock);
+        assertEquals(product.created, read.created);
+        assertEquals(Color.RED, read.color);
+        assertEquals(product.tags, read.tags);
+        assertNull(read.ignored);
+    }
+
+    @Test
+    public void shouldForgetRegisteredSerializersOnClear() throws Exception {
+        final ProductSerializer serializer = new ProductSerializer();
+        IndexSerializers.register(Product.class, serializer);
+        assertSame(serializer, IndexSerializers.get(Product.class));
+
+        IndexSerializers.clear();
+        assertNotSame(serializer, IndexSerializers.get(Product.class));
+        assertTrue(IndexSerializers.get(Product.class) instanceof ProductSerializer);
+    }
+
+    @Test
+    public void shouldFallbackToToIndexWithoutSerializer() throws Exception {
+        final MapDocument document = new MapDocument();
+        document.name = "chair";
+
+        assertNull(IndexSerializers.get(MapDocument.class));
+        assertTrue(IndexSerializers.toSource(document).getValue() instanceof Map);
+        assertEquals("{\"name\":\"chair\"}", IndexSerializers.toSource(document).toJson());
+
+        final JestRichResult.Result hit = new JestRichResult.Result(new JsonParser().parse(
+                "{\"_index\":\"index1\",\"_type\":\"doc\",\"_id\":\"1\",\"_source\":{\"name\":\"table\"}}").getAsJsonObject());
+        assertEquals("table", hit.getObject(MapDocument.class).name);
+    }
+}
@@ -1,10 +1,18 @@
 package com.codetroopers.play.elasticsearch;
 
+import org.elasticsearch.common.geo.GeoPoint;
+import org.joda.time.format.ISODateTimeFormat;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  *
@@ -19,4 +27,69 @@ public class IndexUtilsTest {
         assertEquals(uuid, conversionResult);
     }
 
+    @Test
+    public void shouldConvertNumbers() throws Exception {
+        assertEquals(2, IndexUtils.convertValue(2.0, Integer.class));
+        assertEquals(2, IndexUtils.convertValue("2", int.class));
+        assertEquals(12345678901L, IndexUtils.convertValue(1.2345678901E10, Long.class));
+        assertEquals(12345678901L, IndexUtils.convertValue("12345678901", long.class));
+        assertEquals(1.5, IndexUtils.convertValue(1.5f, double.class));
+        assertEquals(1.5f, IndexUtils.convertValue(1.5, Float.class));
+        assertEquals(new BigDecimal("1.5"), IndexUtils.convertValue(1.5, BigDecimal.class));
+        assertEquals(true, IndexUtils.convertValue("true", boolean.class));
+        assertEquals("2.0", IndexUtils.convertValue(2.0, String.class));
+        final Double same = 2.0;
+        assertSame(same, IndexUtils.convertValue(same, Double.class));
+        assertNull(IndexUtils.convertValue(null, Integer.class));
+    }
+
+    @Test
+    public void shouldConvertAgainAfterClear() throws Exception {
+        assertEquals(2L, IndexUtils.convertValue(2, Long.class));
+        IndexUtils.clearConverters();
+        assertEquals(2L, IndexUtils.convertValue(2, Long.class));
+        assertEquals("2", IndexUtils.convertValue(2, String.class));
+    }
+
+    @Test
+    public void shouldConvertGeoPoint() throws Exception {
+        Map<String, Object> location = new HashMap<>();
+        location.put("lat", 48.85);
+        location.put("lon", 2.35);
+        GeoPoint geoPoint = (GeoPoint) IndexUtils.convertValue(location, GeoPoint.class);
+        assertEquals(48.85, geoPoint.lat(), 0.0001);
+        assertEquals(2.35, geoPoint.lon(), 0.0001);
+    }
+
+    @Test
+    public void shouldParseDatesAsJoda() throws Exception {
+        String[] dates = {
+                "2014-05-13",
+                "2014-05-13T17:53",
+                "2014-05-13T17:53:20",
+                "2014-05-13T17:53:20Z",
+                "2014-05-13T17:53:20.123",
+                "2014-05-13T17:53:20.123456+02:00",
+                "2014-05-13T17:53:20-0500",
+                "2014-12-31T23:59:59.9+01",
+        };
+        for (String date : dates) {
+            Date expected = ISODateTimeFormat.dateTimeParser().withZoneUTC().parseLocalDateTime(date).toDate();
+            assertEquals(date, expected, IndexUtils.parseDate(date));
+            assertEquals(date, expected, IndexUtils.convertValue(date, Date.class));
+        }
+    }
+
+    @Test
+    public void shouldFallbackToJodaForOtherDateForms() throws Exception {
+        // week date, not handled by the fast parser
+        String date = "2014-W20-2";
+        assertNull(IndexUtils.parseDate(date));
+        assertEquals(ISODateTimeFormat.dateTimeParser().withZoneUTC().parseLocalDateTime(date).toDate(),
+                IndexUtils.convertValue(date, Date.class));
+
+        assertNull(IndexUtils.parseDate("2014-02-30"));
+        assertNull(IndexUtils.convertValue("not a date", Date.class));
+        assertEquals(new Date(1400000000000L), IndexUtils.convertValue(1400000000000L, Date.class));
+    }
 }
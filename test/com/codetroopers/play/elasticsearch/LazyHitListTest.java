@@ -0,0 +1,95 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+import com.google.gson.JsonParser;
+import io.searchbox.core.search.facet.Facet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LazyHitListTest {
+
+    public static class CountingDocument extends Index {
+        static int conversions = 0;
+
+        public String name;
+
+        @Override
+        public Map toIndex() {
+            return null;
+        }
+
+        @Override
+        public Indexable fromIndex(Map map) {
+            conversions++;
+            name = (String) map.get("name");
+            return this;
+        }
+    }
+
+    private static List<JestRichResult.Result> hits(int count) {
+        final List<JestRichResult.Result> hits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            hits.add(new JestRichResult.Result(new JsonParser().parse(
+                    "{\"_index\":\"index1\",\"_type\":\"doc\",\"_id\":\"" + i + "\",\"_score\":" + (count - i) + ".0," +
+                            "\"_source\":{\"name\":\"name" + i + "\"}}").getAsJsonObject()));
+        }
+        return hits;
+    }
+
+    @Test
+    public void shouldConvertHitsOnFirstAccessOnly() throws Exception {
+        CountingDocument.conversions = 0;
+        final LazyHitList<CountingDocument> results = new LazyHitList<>(hits(100), CountingDocument.class);
+
+        assertEquals(100, results.size());
+        assertEquals("42", results.id(42));
+        assertEquals(58.0f, results.score(42), 0.0001f);
+        assertEquals("name42", results.source(42).get("name").getAsString());
+        assertEquals(0, CountingDocument.conversions);
+
+        final CountingDocument first = results.get(0);
+        assertEquals("name0", first.name);
+        assertEquals("0", first.id);
+        assertSame(first, results.get(0));
+        assertEquals(1, CountingDocument.conversions);
+    }
+
+    @Test
+    public void shouldExposeHitsThroughIndexResults() throws Exception {
+        final IndexResults<CountingDocument> lazy = new IndexResults<CountingDocument>(2, 10, 1, 1,
+                new LazyHitList<>(hits(2), CountingDocument.class), new ArrayList<Facet>());
+        assertEquals(2, lazy.getHits().size());
+
+        final IndexResults<CountingDocument> eager = new IndexResults<CountingDocument>(0, 10, 1, 1,
+                new ArrayList<CountingDocument>(), new ArrayList<Facet>());
+        assertNull(eager.getHits());
+    }
+
+    @Test
+    public void shouldCopyHitsOnFirstModification() throws Exception {
+        final LazyHitList<CountingDocument> results = new LazyHitList<>(hits(3), CountingDocument.class);
+        final CountingDocument first = results.get(0);
+
+        final CountingDocument added = new CountingDocument();
+        added.name = "added";
+        results.add(added);
+        results.remove(1);
+        results.set(0, results.get(0));
+
+        assertEquals(3, results.size());
+        assertSame(first, results.get(0));
+        assertEquals("name2", results.get(1).name);
+        assertSame(added, results.get(2));
+        // the hits still describe the response
+        assertEquals(3, results.getHits().size());
+        assertEquals("1", results.id(1));
+
+        results.clear();
+        assertTrue(results.isEmpty());
+    }
+}
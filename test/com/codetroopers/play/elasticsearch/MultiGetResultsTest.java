@@ -0,0 +1,78 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestRichResult;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import io.searchbox.client.JestResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MultiGetResultsTest {
+
+    private static final String MGET_RESPONSE = "{\"docs\":[" +
+            "{\"_index\":\"index1\",\"_type\":\"doc\",\"_id\":\"1\",\"_version\":3,\"found\":true,\"_source\":{\"name\":\"name1\"}}," +
+            "{\"_index\":\"index1\",\"_type\":\"doc\",\"_id\":\"2\",\"found\":false}," +
+            "{\"_index\":\"index1\",\"_type\":\"doc\",\"_id\":\"3\",\"_version\":1,\"found\":true,\"_source\":{\"name\":\"name3\"}}" +
+            "]}";
+
+    private static JestRichResult response() {
+        final JestResult jestResult = new JestResult(new Gson());
+        jestResult.setJsonObject(new JsonParser().parse(MGET_RESPONSE).getAsJsonObject());
+        jestResult.setSucceeded(true);
+        return new JestRichResult(jestResult);
+    }
+
+    @Test
+    public void shouldKeepRequestedOrderAndReportMissingIds() throws Exception {
+        final MultiGetResults<LazyHitListTest.CountingDocument> results = MultiGetResults.of(
+                LazyHitListTest.CountingDocument.class, Arrays.asList("3", "2", "1", "3"), response());
+
+        assertEquals(3, results.getResults().size());
+        assertEquals("3", results.getResults().get(0).id);
+        assertEquals("name3", results.getResults().get(0).name);
+        assertEquals("1", results.getResults().get(1).id);
+        assertSame(results.getResults().get(0), results.getResults().get(2));
+        assertEquals(Arrays.asList("2"), results.getMissingIds());
+        assertEquals("name1", results.get("1").name);
+        assertNull(results.get("2"));
+        assertEquals(Long.valueOf(3), response().getDocs().get(0).version());
+    }
+
+    @Test
+    public void shouldReportFailureInsteadOfMissingIds() throws Exception {
+        final JestResult jestResult = new JestResult(new Gson());
+        jestResult.setJsonObject(new JsonParser().parse("{\"error\":\"IndexMissingException[[index1] missing]\",\"status\":404}").getAsJsonObject());
+        jestResult.setSucceeded(false);
+        jestResult.setErrorMessage("IndexMissingException[[index1] missing]");
+        final MultiGetResults<LazyHitListTest.CountingDocument> results = MultiGetResults.of(
+                LazyHitListTest.CountingDocument.class, Arrays.asList("1", "3"), new JestRichResult(jestResult));
+
+        assertTrue(results.isFailed());
+        assertEquals("IndexMissingException[[index1] missing]", results.getErrorMessage());
+        assertTrue(results.getResults().isEmpty());
+        assertTrue(results.getMissingIds().isEmpty());
+    }
+
+    @Test
+    public void shouldReportDocumentErrorsApartFromMissingIds() throws Exception {
+        final JestResult jestResult = new JestResult(new Gson());
+        jestResult.setJsonObject(new JsonParser().parse("{\"docs\":[" +
+                "{\"_index\":\"index1\",\"_type\":\"doc\",\"_id\":\"1\",\"_version\":1,\"found\":true,\"_source\":{\"name\":\"name1\"}}," +
+                "{\"_index\":\"index2\",\"_type\":\"doc\",\"_id\":\"2\",\"error\":\"[index2] missing\"}," +
+                "{\"_index\":\"index1\",\"_type\":\"doc\",\"_id\":\"3\",\"found\":false}" +
+                "]}").getAsJsonObject());
+        jestResult.setSucceeded(true);
+        final MultiGetResults<LazyHitListTest.CountingDocument> results = MultiGetResults.of(
+                LazyHitListTest.CountingDocument.class, Arrays.asList("1", "2", "3"), new JestRichResult(jestResult));
+
+        assertFalse(results.isFailed());
+        assertNull(results.getErrorMessage());
+        assertEquals(1, results.getResults().size());
+        assertEquals(Arrays.asList("3"), results.getMissingIds());
+        assertEquals("[index2] missing", results.getErrors().get("2"));
+        assertEquals(1, results.getErrors().size());
+    }
+}
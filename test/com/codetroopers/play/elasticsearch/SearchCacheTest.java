@@ -0,0 +1,81 @@
+package com.codetroopers.play.elasticsearch;
+
+import com.codetroopers.play.elasticsearch.jest.JestSearchRequestBuilder;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Search;
+import io.searchbox.indices.Refresh;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class SearchCacheTest {
+
+    private static JestSearchRequestBuilder request(String indices) {
+        return new JestSearchRequestBuilder()
+                .setIndices(indices)
+                .setTypes("type1")
+                .setQuery(QueryBuilders.termQuery("name", "value"));
+    }
+
+    @Test
+    public void shouldChangeKeyWhenIndexIsWritten() throws Exception {
+        final String key = SearchCache.key(request("cache-written"));
+        assertEquals(key, SearchCache.key(request("cache-written")));
+
+        SearchCache.onExecuted(new io.searchbox.core.Index.Builder(new HashMap<String, Object>())
+                .index("cache-written").type("type1").id("1").build());
+        assertFalse(key.equals(SearchCache.key(request("cache-written"))));
+    }
+
+    @Test
+    public void shouldKeepKeyWhenAnotherIndexIsWritten() throws Exception {
+        final String key = SearchCache.key(request("cache-untouched"));
+        final String bothKey = SearchCache.key(request("cache-untouched,cache-other"));
+
+        SearchCache.onExecuted(new Delete.Builder("1").index("cache-other").type("type1").build());
+        assertEquals(key, SearchCache.key(request("cache-untouched")));
+        assertFalse(bothKey.equals(SearchCache.key(request("cache-untouched,cache-other"))));
+    }
+
+    @Test
+    public void shouldKeepKeyOnReads() throws Exception {
+        final String key = SearchCache.key(request("cache-read"));
+
+        SearchCache.onExecuted(new Search.Builder("{}").addIndex("cache-read").build());
+        assertEquals(key, SearchCache.key(request("cache-read")));
+    }
+
+    @Test
+    public void shouldChangeEveryKeyWhenAllIndicesAreInvalidated() throws Exception {
+        final String key = SearchCache.key(request("cache-all"));
+        final String allIndicesKey = SearchCache.key(request(null));
+
+        SearchCache.invalidateAll();
+        assertFalse(key.equals(SearchCache.key(request("cache-all"))));
+        assertFalse(allIndicesKey.equals(SearchCache.key(request(null))));
+    }
+
+    @Test
+    public void shouldChangeAllIndicesKeyWhenAnyIndexIsWritten() throws Exception {
+        final String allIndicesKey = SearchCache.key(request(null));
+
+        SearchCache.invalidate("cache-any");
+        assertFalse(allIndicesKey.equals(SearchCache.key(request(null))));
+    }
+
+    @Test
+    public void shouldNotCacheUntilWrittenIndexIsRefreshed() throws Exception {
+        assertFalse(SearchCache.isRefreshPending("cache-pending"));
+
+        SearchCache.invalidate("cache-pending");
+        assertTrue(SearchCache.isRefreshPending("cache-pending"));
+        assertTrue(SearchCache.isRefreshPending("cache-other-pending,cache-pending"));
+        assertFalse(SearchCache.isRefreshPending("cache-other-pending"));
+
+        SearchCache.onExecuted(new Refresh.Builder().addIndex("cache-pending").build());
+        assertFalse(SearchCache.isRefreshPending("cache-pending"));
+    }
+}
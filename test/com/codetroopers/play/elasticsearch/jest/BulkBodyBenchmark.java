@@ -0,0 +1,64 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.codetroopers.play.elasticsearch.Benchmark;
+import com.google.gson.Gson;
+import io.searchbox.BulkableAction;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.Index;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Body of a bulk of 1000 documents : written by the Jest Bulk action (one String per source, then concatenated) and
+ * by {@link NdjsonBulk} (a single pass into one buffer)
+ */
+public class BulkBodyBenchmark {
+
+    private final Gson gson = JestRichResult.createGsonWithDateFormat();
+    private final List<BulkableAction> actions = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        Benchmark.assumeEnabled();
+        for (int i = 0; i < 1000; i++) {
+            final Map<String, Object> source = new LinkedHashMap<>();
+            source.put("name", "document name " + i);
+            source.put("category", "category " + (i % 20));
+            source.put("price", i * 1.5);
+            source.put("stock", i);
+            source.put("tags", Arrays.asList("tag1", "tag2", "tag3"));
+            actions.add(new Index.Builder(source).index("index1").type("type1").id(String.valueOf(i)).build());
+        }
+    }
+
+    @Test
+    public void bulkBody() throws Exception {
+        final Benchmark.Result jest = Benchmark.measure("bulk body 1000 docs, Jest Bulk", 200, 500, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                final Bulk.Builder builder = new Bulk.Builder();
+                for (BulkableAction action : actions) {
+                    builder.addAction(action);
+                }
+                return builder.build().getData(gson);
+            }
+        });
+        final Benchmark.Result ndjson = Benchmark.measure("bulk body 1000 docs, NdjsonBulk", 200, 500, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return new NdjsonBulk(actions, false).getData(gson);
+            }
+        });
+
+        assertTrue(ndjson.allocatesLessThan(jest));
+    }
+}
@@ -0,0 +1,68 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import io.searchbox.BulkableAction;
+import io.searchbox.core.Index;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BulkChunkerTest {
+
+    private static List<BulkableAction> actions(int count, final AtomicInteger written) {
+        final List<BulkableAction> actions = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            final String id = String.valueOf(i);
+            actions.add(new Index.Builder(new DeferredSource() {
+                @Override
+                public void writeTo(Appendable out) throws IOException {
+                    written.incrementAndGet();
+                    out.append("{\"id\":\"").append(id).append("\"}");
+                }
+            }).index("index1").type("type1").id(id).build());
+        }
+        return actions;
+    }
+
+    @Test
+    public void shouldSerializeOnlyTheChunkTaken() throws Exception {
+        final AtomicInteger written = new AtomicInteger();
+        final JestBulkRequestBuilder.Chunker chunker = new JestBulkRequestBuilder.Chunker(actions(5, written), 2, -1);
+
+        final JestBulkRequestBuilder.Chunk first = chunker.nextChunk();
+        assertEquals(0, first.position);
+        assertEquals(2, first.actions.size());
+        assertEquals(2, written.get());
+        assertEquals("{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"1\"}}\n{\"id\":\"1\"}\n" +
+                "{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"2\"}}\n{\"id\":\"2\"}\n", first.body.toString());
+
+        assertEquals(2, chunker.nextChunk().actions.size());
+        assertEquals(1, chunker.nextChunk().actions.size());
+        assertNull(chunker.nextChunk());
+        assertEquals(5, written.get());
+    }
+
+    @Test
+    public void shouldMoveTheActionExceedingTheSizeToTheNextChunk() throws Exception {
+        final AtomicInteger written = new AtomicInteger();
+        // each action is 66 chars long
+        final JestBulkRequestBuilder.Chunker chunker = new JestBulkRequestBuilder.Chunker(actions(3, written), -1, 150);
+
+        final JestBulkRequestBuilder.Chunk first = chunker.nextChunk();
+        assertEquals(2, first.actions.size());
+        assertEquals(3, written.get());
+
+        final JestBulkRequestBuilder.Chunk second = chunker.nextChunk();
+        assertEquals(1, second.position);
+        assertEquals(1, second.actions.size());
+        assertEquals("{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"3\"}}\n{\"id\":\"3\"}\n", second.body.toString());
+        assertNull(chunker.nextChunk());
+        // the overflowing action is not serialized twice
+        assertEquals(3, written.get());
+    }
+}
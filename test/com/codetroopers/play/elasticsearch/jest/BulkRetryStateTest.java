@@ -0,0 +1,98 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import io.searchbox.BulkableAction;
+import io.searchbox.core.Delete;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.codetroopers.play.elasticsearch.jest.JestRichResultTest.richResult;
+import static org.junit.Assert.*;
+
+public class BulkRetryStateTest {
+
+    private static final String REJECTED = "\"status\":429,\"error\":\"EsRejectedExecutionException[rejected execution]\"";
+
+    private static List<BulkableAction> actions(int count) {
+        final List<BulkableAction> actions = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            actions.add(new Delete.Builder(String.valueOf(i)).index("index1").type("type1").build());
+        }
+        return actions;
+    }
+
+    private static String item(String id, String outcome) {
+        return "{\"delete\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"" + id + "\"," + outcome + "}}";
+    }
+
+    @Test
+    public void shouldOnlyRetryRejectedItems() throws Exception {
+        final List<BulkableAction> actions = actions(3);
+        final JestBulkRequestBuilder.BulkRetryState state = new JestBulkRequestBuilder.BulkRetryState(richResult(
+                "{\"errors\":true,\"items\":[" + item("1", "\"status\":200") + "," + item("2", REJECTED) + ","
+                        + item("3", "\"status\":400,\"error\":\"MapperParsingException\"") + "]}"), actions);
+
+        assertTrue(state.hasRetryableItems());
+        assertEquals(1, state.retryableActions().size());
+        assertSame(actions.get(1), state.retryableActions().get(0));
+    }
+
+    @Test
+    public void shouldMergeRetriedItemsInActionsOrder() throws Exception {
+        final List<BulkableAction> actions = actions(3);
+        final JestBulkRequestBuilder.BulkRetryState state = new JestBulkRequestBuilder.BulkRetryState(richResult(
+                "{\"errors\":true,\"items\":[" + item("1", REJECTED) + "," + item("2", "\"status\":200") + ","
+                        + item("3", REJECTED) + "]}"), actions);
+        assertEquals(2, state.retryableActions().size());
+
+        state.merge(richResult("{\"errors\":true,\"items\":[" + item("1", "\"status\":200") + "," + item("3", REJECTED) + "]}"));
+        assertEquals(1, state.retryableActions().size());
+        assertSame(actions.get(2), state.retryableActions().get(0));
+
+        state.merge(richResult("{\"errors\":false,\"items\":[" + item("3", "\"status\":200") + "]}"));
+        assertFalse(state.hasRetryableItems());
+
+        final JestRichResult result = state.result();
+        final List<JestRichResult.BulkItem> items = result.getBulkItems();
+        assertEquals(3, items.size());
+        assertEquals("1", items.get(0).id());
+        assertEquals("3", items.get(2).id());
+        assertFalse(result.hasBulkFailures());
+        assertFalse(result.getJsonObject().get("errors").getAsBoolean());
+    }
+
+    @Test
+    public void shouldRetryEveryActionWhenRequestFailedAsAWhole() throws Exception {
+        final List<BulkableAction> actions = actions(2);
+        final JestBulkRequestBuilder.BulkRetryState state = new JestBulkRequestBuilder.BulkRetryState(new JestRichResult(null), actions);
+        assertEquals(2, state.retryableActions().size());
+
+        // a retry failing as a whole keeps every item retryable
+        state.merge(new JestRichResult(null));
+        assertEquals(2, state.retryableActions().size());
+
+        state.merge(richResult("{\"errors\":false,\"items\":[" + item("1", "\"status\":200") + "," + item("2", "\"status\":404,\"found\":false") + "]}"));
+        assertFalse(state.hasRetryableItems());
+        assertFalse(state.result().hasBulkFailures());
+    }
+
+    @Test
+    public void shouldKeepRetryingItemsMissingFromAResponse() throws Exception {
+        final List<BulkableAction> actions = actions(3);
+        final JestBulkRequestBuilder.BulkRetryState state = new JestBulkRequestBuilder.BulkRetryState(richResult(
+                "{\"errors\":true,\"items\":[" + item("1", REJECTED) + "," + item("2", REJECTED) + "]}"), actions);
+        // the third action has no outcome
+        assertEquals(3, state.retryableActions().size());
+
+        state.merge(richResult("{\"errors\":false,\"items\":[" + item("1", "\"status\":200") + "]}"));
+        assertEquals(2, state.retryableActions().size());
+        assertSame(actions.get(1), state.retryableActions().get(0));
+        assertSame(actions.get(2), state.retryableActions().get(1));
+
+        state.merge(richResult("{\"errors\":false,\"items\":[" + item("2", "\"status\":200") + "," + item("3", "\"status\":200") + "]}"));
+        assertFalse(state.hasRetryableItems());
+        assertEquals(3, state.result().getBulkItems().size());
+        assertFalse(state.result().hasBulkFailures());
+    }
+}
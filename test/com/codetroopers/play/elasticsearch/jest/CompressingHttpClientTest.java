@@ -0,0 +1,205 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.searchbox.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.client.http.JestHttpClient;
+import io.searchbox.core.Index;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the client against a stub HTTP server answering gzipped bodies when asked to
+ */
+public class CompressingHttpClientTest {
+
+    private HttpServer server;
+    private JestClient jestClient;
+
+    private volatile String receivedEncoding;
+    private volatile String receivedAcceptEncoding;
+    private volatile int receivedBytes;
+    private volatile String receivedBody;
+    private volatile int sentResponseBytes;
+    private String responseBody;
+
+    @Before
+    public void setUp() throws Exception {
+        final StringBuilder response = new StringBuilder("{\"took\":3,\"errors\":false,\"items\":[");
+        for (int i = 0; i < 200; i++) {
+            response.append(i == 0 ? "" : ",")
+                    .append("{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"").append(i)
+                    .append("\",\"_version\":1,\"status\":201}}");
+        }
+        responseBody = response.append("]}").toString();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                receivedAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                final byte[] raw = readFully(exchange.getRequestBody());
+                receivedBytes = raw.length;
+                receivedBody = new String("gzip".equals(receivedEncoding) ? gunzip(raw) : raw, "UTF-8");
+
+                byte[] body = responseBody.getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                if (receivedAcceptEncoding != null && receivedAcceptEncoding.contains("gzip")) {
+                    body = CompressingHttpClient.gzip(body);
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                sentResponseBytes = body.length;
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (jestClient != null) {
+            jestClient.shutdownClient();
+        }
+        server.stop(0);
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    private static NdjsonBulk bulk(int size) {
+        final List<BulkableAction> actions = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            final Map<String, Object> source = new LinkedHashMap<>();
+            source.put("name", "document name " + i);
+            source.put("category", "category " + (i % 5));
+            source.put("description", "a fairly repetitive description of the document, as most of our documents are");
+            actions.add(new Index.Builder(source).index("index1").type("type1").id(String.valueOf(i)).build());
+        }
+        return new NdjsonBulk(actions, false);
+    }
+
+    @Test
+    public void shouldCompressRequestAndDecompressResponse() throws Exception {
+        jestClient = JestClientWrapper.buildJestClient(Arrays.asList(url()), 1024);
+        final NdjsonBulk bulk = bulk(200);
+        final String expectedBody = (String) bulk.getData(JestRichResult.createGsonWithDateFormat());
+
+        final JestResult result = jestClient.execute(bulk);
+
+        assertEquals("gzip", receivedEncoding);
+        assertTrue(receivedAcceptEncoding.contains("gzip"));
+        assertEquals(expectedBody, receivedBody);
+        assertTrue(result.isSucceeded());
+        assertEquals(200, new JestRichResult(result).getBulkItems().size());
+
+        final CompressingHttpClient httpClient = (CompressingHttpClient) ((JestHttpClient) jestClient).getHttpClient();
+        assertEquals(expectedBody.getBytes("UTF-8").length, httpClient.getRequestBytes());
+        assertEquals(receivedBytes, httpClient.getSentBytes());
+
+        final int responseBytes = responseBody.getBytes("UTF-8").length;
+        assertTrue(httpClient.getSentBytes() < httpClient.getRequestBytes());
+        assertTrue(httpClient.getSentBytes() * 4 < httpClient.getRequestBytes());
+        assertTrue(sentResponseBytes * 4 < responseBytes);
+    }
+
+    @Test
+    public void shouldCompressAsynchronousRequests() throws Exception {
+        jestClient = JestClientWrapper.buildJestClient(Arrays.asList(url()), 1024);
+        final NdjsonBulk bulk = bulk(200);
+        final String expectedBody = (String) bulk.getData(JestRichResult.createGsonWithDateFormat());
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<JestResult> asyncResult = new AtomicReference<>();
+
+        jestClient.executeAsync(bulk, new JestResultHandler<JestResult>() {
+            @Override
+            public void completed(JestResult result) {
+                asyncResult.set(result);
+                latch.countDown();
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals("gzip", receivedEncoding);
+        assertTrue(receivedAcceptEncoding.contains("gzip"));
+        assertEquals(expectedBody, receivedBody);
+        assertTrue(asyncResult.get().isSucceeded());
+        assertEquals(200, new JestRichResult(asyncResult.get()).getBulkItems().size());
+
+        final CompressingHttpClient httpClient = (CompressingHttpClient) ((JestHttpClient) jestClient).getHttpClient();
+        assertEquals(receivedBytes, httpClient.getSentBytes());
+        assertTrue(httpClient.getSentBytes() < httpClient.getRequestBytes());
+    }
+
+    @Test
+    public void shouldSendSmallBodiesAsIs() throws Exception {
+        jestClient = JestClientWrapper.buildJestClient(Arrays.asList(url()), 1024 * 1024);
+        final NdjsonBulk bulk = bulk(2);
+
+        final JestResult result = jestClient.execute(bulk);
+
+        assertNull(receivedEncoding);
+        assertEquals(bulk.getData(JestRichResult.createGsonWithDateFormat()), receivedBody);
+        assertEquals(receivedBody.getBytes("UTF-8").length, receivedBytes);
+        // the response is still asked gzipped
+        assertTrue(receivedAcceptEncoding.contains("gzip"));
+        assertTrue(result.isSucceeded());
+    }
+
+    @Test
+    public void shouldNotCompressWhenDisabled() throws Exception {
+        jestClient = JestClientWrapper.buildJestClient(Arrays.asList(url()));
+
+        final JestResult result = jestClient.execute(bulk(200));
+
+        assertNull(receivedEncoding);
+        assertFalse(((JestHttpClient) jestClient).getHttpClient() instanceof CompressingHttpClient);
+        assertTrue(result.isSucceeded());
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        return readFully(new GZIPInputStream(new ByteArrayInputStream(body)));
+    }
+}
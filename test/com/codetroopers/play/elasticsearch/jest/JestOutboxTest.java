@@ -0,0 +1,252 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JestOutboxTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Cluster stub answering with the queued results and recording the bulk bodies
+     */
+    private static class StubSender implements JestOutbox.BulkSender {
+        private final LinkedList<JestRichResult> results = new LinkedList<>();
+        private final List<String> bodies = new ArrayList<>();
+
+        StubSender answer(JestRichResult... results) {
+            this.results.addAll(Arrays.asList(results));
+            return this;
+        }
+
+        @Override
+        public JestRichResult send(NdjsonBulk bulk) {
+            bodies.add((String) bulk.getData(null));
+            return results.isEmpty() ? new JestRichResult(null) : results.removeFirst();
+        }
+    }
+
+    private static String item(String id, int status) {
+        return "{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"" + id + "\",\"status\":" + status +
+                (status == 429 ? ",\"error\":\"EsRejectedExecutionException[rejected execution]\"" : "") + "}}";
+    }
+
+    private static JestRichResult bulkResult(String... items) {
+        final StringBuilder json = new StringBuilder("{\"took\":1,\"items\":[");
+        for (int i = 0; i < items.length; i++) {
+            json.append(i > 0 ? "," : "").append(items[i]);
+        }
+        return JestRichResultTest.richResult(json.append("]}").toString());
+    }
+
+    private static JestOutbox outbox(OutboxJournal journal, StubSender sender) {
+        // the background worker never fires, batches are drained by the test
+        return new JestOutbox(journal, 10, 3600 * 1000, sender);
+    }
+
+    private static Index index(String id) {
+        return new Index.Builder("{\"name\":\"name" + id + "\"}").index("index1").type("type1").id(id).build();
+    }
+
+    @Test
+    public void shouldReadEntriesAfterReopening() throws Exception {
+        final File directory = folder.newFolder("journal");
+        OutboxJournal journal = new OutboxJournal(directory, 64);
+        journal.append("entry 1");
+        journal.append("entry 2");
+        journal.commit(journal.read(1).getEnd());
+        journal.append("entry 3");
+        journal.close();
+
+        journal = new OutboxJournal(directory, 64);
+        final OutboxJournal.Batch batch = journal.read(10);
+        assertEquals(Arrays.asList("entry 2", "entry 3"), batch.getEntries());
+
+        journal.append("entry 4");
+        assertEquals(Arrays.asList("entry 2", "entry 3", "entry 4"), journal.read(10).getEntries());
+        journal.close();
+    }
+
+    @Test
+    public void shouldRollSegmentsAndDeleteConsumedOnes() throws Exception {
+        final File directory = folder.newFolder("journal");
+        final OutboxJournal journal = new OutboxJournal(directory, 32);
+        for (int i = 0; i < 5; i++) {
+            // 8 bytes of header + 16 bytes of content : one record per segment
+            journal.append("entry number " + i + "..");
+        }
+        assertEquals(5, directory.list().length);
+
+        final OutboxJournal.Batch batch = journal.read(3);
+        assertEquals(3, batch.getEntries().size());
+        journal.commit(batch.getEnd());
+        assertEquals(Arrays.asList("entry number 3..", "entry number 4.."), journal.read(10).getEntries());
+        // the checkpoint stays at the end of the third segment : 3 remaining segments and the checkpoint
+        assertEquals(4, directory.list().length);
+
+        journal.commit(journal.read(10).getEnd());
+        assertTrue(journal.isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void shouldIgnoreTornRecord() throws Exception {
+        final File directory = folder.newFolder("journal");
+        OutboxJournal journal = new OutboxJournal(directory, 64);
+        journal.append("entry 1");
+        journal.append("entry 2");
+        journal.close();
+
+        // corrupting the content of the second record, as if the process died while writing it
+        final File segment = directory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(8 + 7 + 8);
+            file.write('X');
+        }
+
+        journal = new OutboxJournal(directory, 64);
+        assertEquals(Arrays.asList("entry 1"), journal.read(10).getEntries());
+        journal.append("entry 3");
+        assertEquals(Arrays.asList("entry 1", "entry 3"), journal.read(10).getEntries());
+        journal.close();
+    }
+
+    @Test
+    public void shouldKeepOperationsWhileClusterIsUnreachable() throws Exception {
+        final File directory = folder.newFolder("journal");
+        final StubSender sender = new StubSender();
+        JestOutbox outbox = outbox(new OutboxJournal(directory, 1024), sender);
+        outbox.add(index("1"));
+        outbox.add(new Delete.Builder("2").index("index1").type("type1").build());
+        // the stub answers nothing : every attempt fails until the outbox is closed
+        final boolean[] committed = {true};
+        final JestOutbox unreachable = outbox;
+        final Thread drainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    committed[0] = unreachable.drain();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        drainer.start();
+        Thread.sleep(200);
+        outbox.close();
+        drainer.join();
+        assertFalse(committed[0]);
+        assertTrue(sender.bodies.size() >= 1);
+
+        final StubSender restarted = new StubSender().answer(bulkResult(item("1", 201), item("2", 200)));
+        outbox = outbox(new OutboxJournal(directory, 1024), restarted);
+        assertFalse(outbox.isDrained());
+        assertTrue(outbox.drain());
+        assertEquals(1, restarted.bodies.size());
+        assertEquals("{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"1\"}}\n" +
+                "{\"name\":\"name1\"}\n" +
+                "{\"delete\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"2\"}}\n", restarted.bodies.get(0));
+        assertTrue(outbox.isDrained());
+        assertFalse(outbox.drain());
+        outbox.close();
+    }
+
+    @Test
+    public void shouldRetryFailedBulksAndRejectedItemsOnly() throws Exception {
+        final StubSender sender = new StubSender().answer(
+                new JestRichResult(null),
+                bulkResult(item("1", 201), item("2", 429), item("3", 400)),
+                bulkResult(item("2", 201)));
+        final JestOutbox outbox = outbox(new OutboxJournal(folder.newFolder("journal"), 1024), sender);
+        outbox.add(index("1"));
+        outbox.add(index("2"));
+        outbox.add(index("3"));
+
+        assertTrue(outbox.drain());
+        assertEquals(3, sender.bodies.size());
+        assertEquals(sender.bodies.get(0), sender.bodies.get(1));
+        assertEquals("{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"2\"}}\n" +
+                "{\"name\":\"name2\"}\n", sender.bodies.get(2));
+        // the item failing for good (400) is dropped
+        assertTrue(outbox.isDrained());
+        outbox.close();
+    }
+
+    @Test
+    public void shouldRetryFailedBulksBeyondMaxRetries() throws Exception {
+        final StubSender sender = new StubSender().answer(
+                new JestRichResult(null),
+                new JestRichResult(null),
+                new JestRichResult(null),
+                new JestRichResult(null),
+                bulkResult(item("1", 201)));
+        final OutboxJournal deadLetters = new OutboxJournal(folder.newFolder("dead-letter"), 1024, true);
+        final JestOutbox outbox = new JestOutbox(new OutboxJournal(folder.newFolder("journal"), 1024, true), deadLetters,
+                10, 3600 * 1000, new BulkRetryPolicy(2, 1, 1), sender);
+        outbox.add(index("1"));
+
+        // the cluster is unreachable for more than the retries : the batch waits for it
+        assertTrue(outbox.drain());
+        assertEquals(5, sender.bodies.size());
+        assertTrue(outbox.isDrained());
+        assertFalse(outbox.hasDeadLetters());
+        outbox.close();
+    }
+
+    @Test
+    public void shouldMoveRejectedItemsToDeadLettersOnceRetriesAreExhausted() throws Exception {
+        final StubSender sender = new StubSender().answer(
+                bulkResult(item("1", 201), item("2", 429)),
+                new JestRichResult(null),
+                bulkResult(item("2", 429)),
+                bulkResult(item("2", 429)),
+                bulkResult(item("2", 201)));
+        final OutboxJournal deadLetters = new OutboxJournal(folder.newFolder("dead-letter"), 1024, true);
+        final JestOutbox outbox = new JestOutbox(new OutboxJournal(folder.newFolder("journal"), 1024, true), deadLetters,
+                10, 3600 * 1000, new BulkRetryPolicy(2, 1, 1), sender);
+        outbox.add(index("1"));
+        outbox.add(index("2"));
+
+        // rejected by the first send and 2 retries, the failed bulk in between does not count
+        assertTrue(outbox.drain());
+        assertEquals(4, sender.bodies.size());
+        assertTrue(outbox.isDrained());
+        assertTrue(outbox.hasDeadLetters());
+
+        assertEquals(1, outbox.replayDeadLetters());
+        assertFalse(outbox.hasDeadLetters());
+        assertTrue(outbox.drain());
+        assertEquals(5, sender.bodies.size());
+        assertEquals("{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"2\"}}\n" +
+                "{\"name\":\"name2\"}\n", sender.bodies.get(4));
+        assertTrue(outbox.isDrained());
+        outbox.close();
+    }
+
+    @Test
+    public void shouldAppendBatchOfEntries() throws Exception {
+        final File directory = folder.newFolder("journal");
+        OutboxJournal journal = new OutboxJournal(directory, 32, true);
+        journal.append(Arrays.asList("entry number 0..", "entry number 1..", "entry 2"));
+        journal.close();
+
+        journal = new OutboxJournal(directory, 32, true);
+        assertEquals(Arrays.asList("entry number 0..", "entry number 1..", "entry 2"), journal.read(10).getEntries());
+        journal.close();
+    }
+}
@@ -0,0 +1,71 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JestRequestLimiterTest {
+
+    private static Runnable counting(final AtomicInteger started) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void shouldClassifyReadActionsAsRead() throws Exception {
+        assertEquals(JestRequestLimiter.OperationClass.READ,
+                JestRequestLimiter.OperationClass.of(new MultiGetAction().add("index1", "doc", "1")));
+        assertEquals(JestRequestLimiter.OperationClass.READ,
+                JestRequestLimiter.OperationClass.of(new MultiSearchAction(Collections.<JestSearchRequestBuilder>emptyList())));
+        assertEquals(JestRequestLimiter.OperationClass.READ,
+                JestRequestLimiter.OperationClass.of(ScrollAction.next("scroll1", "1m")));
+    }
+
+    @Test
+    public void shouldQueueThenRejectOverTheLimit() throws Exception {
+        final JestRequestLimiter limiter = new JestRequestLimiter(JestRequestLimiter.OperationClass.READ, 2, 1);
+        final AtomicInteger started = new AtomicInteger();
+
+        limiter.submit(counting(started));
+        limiter.submit(counting(started));
+        limiter.submit(counting(started));
+        assertEquals(2, started.get());
+        assertEquals(2, limiter.inFlight());
+        assertEquals(1, limiter.queued());
+
+        try {
+            limiter.submit(counting(started));
+            fail("request over the limit should be rejected");
+        } catch (EsRejectedExecutionException e) {
+            // expected
+        }
+
+        limiter.release();
+        assertEquals(3, started.get());
+        assertEquals(2, limiter.inFlight());
+        assertEquals(0, limiter.queued());
+
+        limiter.release();
+        limiter.release();
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void shouldNotLimitWhenDisabled() throws Exception {
+        final JestRequestLimiter limiter = new JestRequestLimiter(JestRequestLimiter.OperationClass.WRITE, 0, 0);
+        final AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            limiter.submit(counting(started));
+        }
+        assertEquals(100, started.get());
+    }
+}
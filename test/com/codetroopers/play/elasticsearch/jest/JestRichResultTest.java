@@ -0,0 +1,131 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.codetroopers.play.elasticsearch.IndexSerializersTest;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.searchbox.client.JestResult;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JestRichResultTest {
+
+    static JestRichResult richResult(String json) {
+        final JestResult jestResult = new JestResult(JestRichResult.createGsonWithDateFormat());
+        jestResult.setJsonObject(new JsonParser().parse(json).getAsJsonObject());
+        jestResult.setSucceeded(true);
+        return new JestRichResult(jestResult);
+    }
+
+    @Test
+    public void shouldParseBulkItems() throws Exception {
+        final JestRichResult result = richResult("{\"took\":3,\"errors\":true,\"items\":[" +
+                "{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"1\",\"_version\":2,\"status\":200}}," +
+                "{\"delete\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"2\",\"_version\":3,\"status\":404,\"found\":false}}," +
+                "{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"3\",\"status\":429,\"error\":\"EsRejectedExecutionException[rejected execution]\"}}" +
+                "]}");
+
+        final List<JestRichResult.BulkItem> items = result.getBulkItems();
+        assertEquals(3, items.size());
+        assertTrue(result.hasBulkFailures());
+
+        assertEquals("index", items.get(0).operation());
+        assertEquals("1", items.get(0).id());
+        assertEquals(Long.valueOf(2), items.get(0).version());
+        assertFalse(items.get(0).isFailed());
+
+        assertEquals("delete", items.get(1).operation());
+        // deleting a missing document is not a failure
+        assertFalse(items.get(1).isFailed());
+        assertFalse(items.get(1).isRetryable());
+
+        assertEquals(429, items.get(2).status());
+        assertNull(items.get(2).version());
+        assertTrue(items.get(2).isRetryable());
+    }
+
+    @Test
+    public void shouldNotReportFailuresForSuccessfulBulk() throws Exception {
+        final JestRichResult result = richResult("{\"took\":3,\"errors\":false,\"items\":[" +
+                "{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"1\",\"_version\":1,\"status\":201}}" +
+                "]}");
+        assertFalse(result.hasBulkFailures());
+    }
+
+    @Test
+    public void retryDelayShouldStayWithinBounds() throws Exception {
+        final BulkRetryPolicy retryPolicy = new BulkRetryPolicy(10, 100, 1000);
+        for (int retry = 1; retry <= 10; retry++) {
+            final long exponential = Math.min(1000, 100L << (retry - 1));
+            final long delay = retryPolicy.delay(retry);
+            assertTrue(delay >= exponential / 2);
+            assertTrue(delay <= exponential);
+        }
+    }
+
+    private static final String SEARCH_RESPONSE = "{\"took\":2,\"timed_out\":false," +
+            "\"hits\":{\"total\":42,\"max_score\":1.0,\"hits\":[" +
+            "{\"_index\":\"index1\",\"_type\":\"product\",\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"name\":\"chair\",\"quantity\":3}}," +
+            "{\"_source\":{\"name\":\"table\",\"tags\":[\"wood\"]},\"_index\":\"index1\",\"_type\":\"product\",\"_id\":\"2\",\"_score\":null}" +
+            "]}," +
+            "\"facets\":{\"names\":{\"_type\":\"terms\",\"missing\":0,\"total\":2,\"other\":0,\"terms\":[{\"term\":\"chair\",\"count\":1}]}}}";
+
+    @Test
+    public void shouldReadHitsWithSerializer() throws Exception {
+        final JestRichResult.Hits<IndexSerializersTest.Product> hits = richResult(SEARCH_RESPONSE)
+                .readHits(IndexSerializersTest.Product.class, false);
+
+        assertEquals(42, hits.getTotal());
+        assertEquals(1, hits.getFacets().size());
+        assertNull(hits.getResults());
+        assertEquals(2, hits.getObjects().size());
+        assertEquals("1", hits.getObjects().get(0).id);
+        assertEquals("chair", hits.getObjects().get(0).name);
+        assertEquals(3, hits.getObjects().get(0).quantity);
+        assertEquals("2", hits.getObjects().get(1).id);
+        assertEquals("table", hits.getObjects().get(1).name);
+    }
+
+    @Test
+    public void shouldNotParseResponseBodyAgain() throws Exception {
+        final JestResult jestResult = new JestResult(JestRichResult.createGsonWithDateFormat());
+        // the hits are read from the tree parsed by the client
+        jestResult.setJsonString("{ not read again");
+        jestResult.setJsonObject(new JsonParser().parse(SEARCH_RESPONSE).getAsJsonObject());
+        jestResult.setSucceeded(true);
+
+        final JestRichResult.Hits<IndexSerializersTest.MapDocument> hits = new JestRichResult(jestResult)
+                .readHits(IndexSerializersTest.MapDocument.class, false);
+        assertEquals(42, hits.getTotal());
+        assertEquals("chair", hits.getObjects().get(0).name);
+        assertEquals("table", hits.getObjects().get(1).name);
+        assertEquals("2", hits.getObjects().get(1).id);
+    }
+
+    @Test
+    public void shouldKeepHitsTreeOnRequest() throws Exception {
+        final JestRichResult.Hits<IndexSerializersTest.MapDocument> hits = richResult(SEARCH_RESPONSE)
+                .readHits(IndexSerializersTest.MapDocument.class, true);
+
+        assertEquals(2, hits.getResults().size());
+        assertEquals("wood", hits.getResults().get(1).source().get("tags").getAsJsonArray().get(0).getAsString());
+        assertEquals("table", hits.getObjects().get(1).name);
+    }
+
+    @Test
+    public void shouldHydrateHitsFromFieldsWithoutSource() throws Exception {
+        final String response = "{\"hits\":{\"total\":1,\"hits\":[" +
+                "{\"_index\":\"index1\",\"_type\":\"doc\",\"_id\":\"1\",\"_score\":1.0,\"fields\":{\"name\":[\"chair\"]}}]}}";
+
+        final IndexSerializersTest.MapDocument streamed = richResult(response)
+                .readHits(IndexSerializersTest.MapDocument.class, false).getObjects().get(0);
+        assertEquals("1", streamed.id);
+        assertEquals("chair", streamed.name);
+
+        final JestRichResult.Result hit = richResult(response).getHits().get(0);
+        assertEquals("chair", hit.fields().get("name").getAsString());
+        assertEquals("chair", hit.getObject(IndexSerializersTest.MapDocument.class).name);
+    }
+}
@@ -0,0 +1,36 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.gson.JsonParser;
+import io.searchbox.params.SearchType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class MultiSearchActionTest {
+
+    @Test
+    public void shouldWriteHeaderAndSourceLines() throws Exception {
+        final JestSearchRequestBuilder first = new JestSearchRequestBuilder()
+                .setIndices("index1")
+                .setTypes("type1")
+                .setSearchType(SearchType.QUERY_THEN_FETCH)
+                .setQuery(QueryBuilders.termQuery("name", "name1"))
+                .setSize(5);
+        final JestSearchRequestBuilder second = new JestSearchRequestBuilder()
+                .setIndices("index2")
+                .setQuery(QueryBuilders.matchAllQuery());
+
+        final MultiSearchAction action = new MultiSearchAction(Arrays.asList(first, second));
+        final String[] lines = ((String) action.getData(JestRichResult.createGsonWithDateFormat())).split("\n");
+
+        assertEquals(4, lines.length);
+        assertEquals("{\"index\":\"index1\",\"type\":\"type1\",\"search_type\":\"query_then_fetch\"}", lines[0]);
+        assertEquals(new JsonParser().parse("{\"size\":5,\"query\":{\"term\":{\"name\":\"name1\"}}}"), new JsonParser().parse(lines[1]));
+        assertEquals("{\"index\":\"index2\"}", lines[2]);
+        assertEquals(new JsonParser().parse("{\"query\":{\"match_all\":{}}}"), new JsonParser().parse(lines[3]));
+        assertEquals("_msearch", action.getURI());
+    }
+}
@@ -0,0 +1,79 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.gson.JsonParser;
+import io.searchbox.BulkableAction;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NdjsonBulkTest {
+
+    @Test
+    public void shouldWriteHeaderAndSourceLines() throws Exception {
+        Map<String, Object> source = new LinkedHashMap<>();
+        source.put("name", "name \"1\"");
+        source.put("count", 2);
+
+        final NdjsonBulk bulk = new NdjsonBulk(Arrays.<BulkableAction>asList(
+                new Index.Builder(source).index("index1").type("type1").id("1").build(),
+                new Index.Builder("{\"name\":\"name2\"}").index("index1").type("type1").id("2").build(),
+                new Delete.Builder("3").index("index1").type("type1").build()
+        ), false);
+
+        assertEquals("{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"1\"}}\n" +
+                        "{\"name\":\"name \\\"1\\\"\",\"count\":2}\n" +
+                        "{\"index\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"2\"}}\n" +
+                        "{\"name\":\"name2\"}\n" +
+                        "{\"delete\":{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"3\"}}\n",
+                bulk.getData(JestRichResult.createGsonWithDateFormat()));
+        assertEquals("_bulk", bulk.getURI());
+    }
+
+    @Test
+    public void shouldAskForRefresh() throws Exception {
+        final NdjsonBulk bulk = new NdjsonBulk(Arrays.<BulkableAction>asList(), true);
+        assertEquals("_bulk?refresh=true", bulk.getURI());
+    }
+
+    @Test
+    public void shouldFailWhenAnItemFailed() throws Exception {
+        final NdjsonBulk bulk = new NdjsonBulk(Arrays.<BulkableAction>asList(), false);
+        assertTrue(bulk.isOperationSucceed(new JsonParser().parse("{\"took\":1,\"errors\":false,\"items\":[]}").getAsJsonObject()));
+        assertFalse(bulk.isOperationSucceed(new JsonParser().parse("{\"took\":1,\"errors\":true,\"items\":[]}").getAsJsonObject()));
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("errors", true);
+        assertFalse(bulk.isOperationSucceed(result));
+    }
+
+    @Test
+    public void shouldKeepPlainJestBulkOfTheBuilder() throws Exception {
+        final DeferredSource deferred = new DeferredSource() {
+            @Override
+            public void writeTo(Appendable out) throws IOException {
+                out.append("{\"name\":\"name1\"}");
+            }
+        };
+        final JestBulkRequestBuilder builder = new JestBulkRequestBuilder()
+                .add(new Index.Builder(deferred).index("index1").type("type1").id("1").build())
+                .add(new Delete.Builder("2").index("index1").type("type1").build());
+
+        final Bulk bulk = builder.getAction();
+        final String[] jestLines = ((String) bulk.getData(JestRichResult.createGsonWithDateFormat())).split("\n");
+        final String[] ndjsonLines = ((String) builder.getNdjsonAction().getData(JestRichResult.createGsonWithDateFormat())).split("\n");
+        assertEquals(ndjsonLines.length, jestLines.length);
+        for (int i = 0; i < jestLines.length; i++) {
+            assertEquals(new JsonParser().parse(ndjsonLines[i]), new JsonParser().parse(jestLines[i]));
+        }
+    }
+}
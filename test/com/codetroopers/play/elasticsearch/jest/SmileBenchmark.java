@@ -0,0 +1,92 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.codetroopers.play.elasticsearch.Benchmark;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import io.searchbox.BulkableAction;
+import io.searchbox.core.Index;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Bulk bodies written as JSON and as SMILE, and search responses read from JSON and from SMILE
+ */
+public class SmileBenchmark {
+
+    private final Gson gson = JestRichResult.createGsonWithDateFormat();
+    private final List<BulkableAction> actions = new ArrayList<>();
+    private String jsonResponse;
+    private byte[] smileResponse;
+
+    @Before
+    public void setUp() throws Exception {
+        Benchmark.assumeEnabled();
+        for (int i = 0; i < 1000; i++) {
+            actions.add(new Index.Builder(document(i)).index("index1").type("type1").id(String.valueOf(i)).build());
+        }
+
+        final XContentBuilder json = XContentFactory.jsonBuilder();
+        final XContentBuilder smile = XContentFactory.smileBuilder();
+        for (XContentBuilder response : Arrays.asList(json, smile)) {
+            response.startObject().field("took", 3).startObject("hits").field("total", 100).startArray("hits");
+            for (int i = 0; i < 100; i++) {
+                response.startObject().field("_index", "index1").field("_type", "type1").field("_id", String.valueOf(i))
+                        .field("_score", 1.0).field("_source", document(i)).endObject();
+            }
+            response.endArray().endObject().endObject();
+        }
+        jsonResponse = json.string();
+        smileResponse = smile.bytes().toBytes();
+    }
+
+    private static Map<String, Object> document(int i) {
+        final Map<String, Object> source = new LinkedHashMap<>();
+        source.put("name", "document name " + i);
+        source.put("category", "category " + (i % 20));
+        source.put("price", i * 1.5);
+        source.put("stock", i);
+        source.put("tags", Arrays.asList("tag1", "tag2", "tag3"));
+        return source;
+    }
+
+    @Test
+    public void bulkBody() throws Exception {
+        Benchmark.measure("bulk body 1000 docs, JSON", 200, 500, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return ((String) new NdjsonBulk(actions, false).getData(gson)).getBytes("UTF-8");
+            }
+        });
+        Benchmark.measure("bulk body 1000 docs, SMILE", 200, 500, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return SmileTransport.encode(new NdjsonBulk(actions, false));
+            }
+        });
+    }
+
+    @Test
+    public void searchResponse() throws Exception {
+        Benchmark.measure("search response 100 hits, JSON", 2000, 5000, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return new JsonParser().parse(jsonResponse);
+            }
+        });
+        Benchmark.measure("search response 100 hits, SMILE", 2000, 5000, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return SmileTransport.decode(smileResponse);
+            }
+        });
+    }
+}
@@ -0,0 +1,240 @@
+package com.codetroopers.play.elasticsearch.jest;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.searchbox.BulkableAction;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+import io.searchbox.core.Search;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SmileTransportTest {
+
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+
+    private volatile String receivedContentType;
+    private volatile byte[] receivedBody;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedContentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                receivedBody = readFully(exchange.getRequestBody());
+
+                // answers in the content type of the request, as elasticsearch does
+                final XContentBuilder response = XContentFactory.smileBuilder()
+                        .startObject()
+                        .field("took", 3)
+                        .field("errors", false)
+                        .startArray("items")
+                        .startObject().startObject("index").field("_index", "index1").field("_type", "type1")
+                        .field("_id", "1").field("_version", 1).field("status", 201).endObject().endObject()
+                        .endArray()
+                        .endObject();
+                final byte[] body = response.bytes().toBytes();
+                exchange.getResponseHeaders().set("Content-Type", SmileTransport.CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        httpClient = HttpClients.createDefault();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    private static Map<String, Object> document(int i) {
+        final Map<String, Object> source = new LinkedHashMap<>();
+        source.put("name", "document name " + i);
+        source.put("category", "category " + (i % 5));
+        source.put("price", i * 1.5);
+        source.put("tags", Arrays.asList("tag1", "tag2"));
+        return source;
+    }
+
+    @Test
+    public void shouldRoundTripDocuments() throws Exception {
+        final Index index = new Index.Builder(document(1)).index("index1").type("type1").id("1").build();
+
+        final JsonElement decoded = SmileTransport.decode(SmileTransport.encode(index));
+
+        assertEquals(new JsonParser().parse("{\"name\":\"document name 1\",\"category\":\"category 1\",\"price\":1.5,\"tags\":[\"tag1\",\"tag2\"]}"), decoded);
+    }
+
+    @Test
+    public void shouldWriteDatesAsTheirJsonForm() throws Exception {
+        final Map<String, Object> source = document(1);
+        source.put("dateCreate", new Date(1400000000000L));
+        final Index index = new Index.Builder(source).index("index1").type("type1").id("1").build();
+
+        assertEquals(new JsonParser().parse(JestRichResult.createGsonWithDateFormat().toJson(source)),
+                SmileTransport.decode(SmileTransport.encode(index)));
+    }
+
+    public static class Product {
+        public String name = "chair";
+        public int quantity = 3;
+        public String color = null;
+    }
+
+    @Test
+    public void shouldWriteObjectsAndDocumentTokensWithoutJson() throws Exception {
+        final Index pojo = new Index.Builder(new Product()).index("index1").type("type1").id("1").build();
+        assertEquals(new JsonParser().parse("{\"name\":\"chair\",\"quantity\":3}"), SmileTransport.decode(SmileTransport.encode(pojo)));
+
+        final DeferredSource source = new DeferredSource() {
+            @Override
+            public void writeTo(Appendable out) throws IOException {
+                throw new AssertionError("the document should not be written as JSON");
+            }
+
+            @Override
+            public void writeTo(JsonWriter writer) throws IOException {
+                writer.beginObject().name("name").value("chair").name("tags").beginArray().value("a").value(2).endArray()
+                        .name("price").value(1.5).name("color").nullValue().endObject();
+            }
+        };
+        final Index document = new Index.Builder(source).index("index1").type("type1").id("1").build();
+        assertEquals(new JsonParser().parse("{\"name\":\"chair\",\"tags\":[\"a\",2],\"price\":1.5,\"color\":null}"),
+                SmileTransport.decode(SmileTransport.encode(document)));
+    }
+
+    @Test
+    public void shouldSendAsynchronousRequestsAsSmile() throws Exception {
+        final CloseableHttpAsyncClient asyncClient = HttpAsyncClients.createDefault();
+        try {
+            final SmileTransport transport = new SmileTransport(httpClient, asyncClient,
+                    Arrays.asList("http://localhost:" + server.getAddress().getPort()), EnumSet.of(SmileTransport.RequestType.BULK));
+            final NdjsonBulk bulk = new NdjsonBulk(Arrays.<BulkableAction>asList(
+                    new Index.Builder(document(1)).index("index1").type("type1").id("1").build()), false);
+            assertTrue(transport.supportsAsync(bulk));
+            assertTrue(transport.handlesAll(SmileTransport.RequestType.BULK));
+
+            final CountDownLatch done = new CountDownLatch(1);
+            final AtomicReference<JestResult> result = new AtomicReference<>();
+            transport.executeAsync(bulk, new JestResultHandler<JestResult>() {
+                @Override
+                public void completed(JestResult jestResult) {
+                    result.set(jestResult);
+                    done.countDown();
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    done.countDown();
+                }
+            });
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(SmileTransport.CONTENT_TYPE, receivedContentType);
+            assertTrue(result.get().isSucceeded());
+            assertEquals("1", new JestRichResult(result.get()).getBulkItems().get(0).id());
+        } finally {
+            asyncClient.close();
+        }
+    }
+
+    @Test
+    public void shouldConvertJsonSources() throws Exception {
+        final String query = "{\"query\":{\"term\":{\"name\":\"value\"}},\"size\":10}";
+        final Search search = new Search.Builder(query).addIndex("index1").build();
+
+        assertEquals(new JsonParser().parse(query), SmileTransport.decode(SmileTransport.encode(search)));
+    }
+
+    @Test
+    public void shouldSelectRequestTypes() throws Exception {
+        final SmileTransport transport = new SmileTransport(httpClient, Arrays.asList("http://localhost:9200"),
+                SmileTransport.RequestType.parse("bulk, search"));
+
+        assertTrue(transport.supports(new NdjsonBulk(new ArrayList<BulkableAction>(), false)));
+        assertTrue(transport.supports(new Search.Builder("{}").build()));
+        assertFalse(transport.supports(new Index.Builder(document(1)).index("index1").type("type1").build()));
+        assertFalse(transport.supports(new Delete.Builder("1").index("index1").type("type1").build()));
+    }
+
+    @Test
+    public void shouldSendBulkAsSmile() throws Exception {
+        final List<BulkableAction> actions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            actions.add(new Index.Builder(document(i)).index("index1").type("type1").id(String.valueOf(i)).build());
+        }
+        actions.add(new Delete.Builder("1000").index("index1").type("type1").build());
+        final NdjsonBulk bulk = new NdjsonBulk(actions, false);
+        final SmileTransport transport = new SmileTransport(httpClient,
+                Arrays.asList("http://localhost:" + server.getAddress().getPort()), EnumSet.of(SmileTransport.RequestType.BULK));
+
+        final JestResult result = transport.execute(bulk);
+
+        assertEquals(SmileTransport.CONTENT_TYPE, receivedContentType);
+        // one SMILE document per line : 100 headers, 100 sources and the delete header
+        int separators = 0;
+        for (byte b : receivedBody) {
+            if (b == (byte) 0xFF) {
+                separators++;
+            }
+        }
+        assertEquals(201, separators);
+
+        assertTrue(result.isSucceeded());
+        assertNull(result.getJsonString());
+        final JestRichResult richResult = new JestRichResult(result);
+        assertEquals(1, richResult.getBulkItems().size());
+        assertEquals("1", richResult.getBulkItems().get(0).id());
+
+        final int jsonSize = ((String) bulk.getData(JestRichResult.createGsonWithDateFormat())).getBytes("UTF-8").length;
+        assertTrue(receivedBody.length < jsonSize);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,106 @@
+package com.codetroopers.play.elasticsearch.json;
+
+import com.codetroopers.play.elasticsearch.Benchmark;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Throughput and allocations of the Gson and Jackson codecs on index, get and search payloads
+ */
+public class JsonCodecBenchmark {
+
+    private final JsonCodec gson = new GsonJsonCodec();
+    private final JsonCodec jackson = new JacksonJsonCodec();
+
+    private final Map<String, Object> document = new LinkedHashMap<>();
+    private String getResponse;
+    private String searchResponse;
+    private JsonObject source;
+
+    @Before
+    public void setUp() throws Exception {
+        Benchmark.assumeEnabled();
+        document.put("name", "document name");
+        document.put("description", "a longer description of the document, as found in a catalog");
+        document.put("price", 12.5);
+        document.put("stock", 42);
+        document.put("created", new Date(1400000000000L));
+        document.put("tags", Arrays.asList("tag1", "tag2", "tag3"));
+
+        final String documentJson = gson.toJson(document);
+        getResponse = "{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"1\",\"_version\":1,\"found\":true,\"_source\":" + documentJson + "}";
+        final StringBuilder hits = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            hits.append(i == 0 ? "" : ",").append("{\"_index\":\"index1\",\"_type\":\"type1\",\"_id\":\"").append(i)
+                    .append("\",\"_score\":1.0,\"_source\":").append(documentJson).append("}");
+        }
+        searchResponse = "{\"took\":3,\"timed_out\":false,\"hits\":{\"total\":20,\"max_score\":1.0,\"hits\":[" + hits + "]}}";
+        source = new JsonParser().parse(documentJson).getAsJsonObject();
+    }
+
+    private void measure(String payload, final JsonCodec codec, final Operation operation) throws Exception {
+        Benchmark.measure(payload + ", " + codec.getClass().getSimpleName(), new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return operation.run(codec);
+            }
+        });
+    }
+
+    private interface Operation {
+        Object run(JsonCodec codec) throws Exception;
+    }
+
+    @Test
+    public void index() throws Exception {
+        final Operation toJson = new Operation() {
+            @Override
+            public Object run(JsonCodec codec) {
+                return codec.toJson(document);
+            }
+        };
+        measure("index source", gson, toJson);
+        measure("index source", jackson, toJson);
+    }
+
+    @Test
+    public void get() throws Exception {
+        final Operation readMap = new Operation() {
+            @Override
+            public Object run(JsonCodec codec) {
+                return codec.readMap(getResponse);
+            }
+        };
+        measure("get response", gson, readMap);
+        measure("get response", jackson, readMap);
+    }
+
+    @Test
+    public void search() throws Exception {
+        final Operation readMap = new Operation() {
+            @Override
+            public Object run(JsonCodec codec) {
+                return codec.readMap(searchResponse);
+            }
+        };
+        measure("search response, 20 hits", gson, readMap);
+        measure("search response, 20 hits", jackson, readMap);
+
+        final Operation toMap = new Operation() {
+            @Override
+            public Object run(JsonCodec codec) {
+                return codec.toMap(source);
+            }
+        };
+        measure("hit source tree", gson, toMap);
+        measure("hit source tree", jackson, toMap);
+    }
+}
@@ -0,0 +1,123 @@
+package com.codetroopers.play.elasticsearch.json;
+
+import com.codetroopers.play.elasticsearch.IndexUtils;
+import com.codetroopers.play.elasticsearch.jest.JestUpdateRequestBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class JsonCodecTest {
+
+    private static Map<String, Object> document() {
+        final Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("lat", 48.85);
+        nested.put("lon", 2.35);
+        final Map<String, Object> document = new LinkedHashMap<>();
+        document.put("name", "name \"1\"");
+        document.put("count", 2);
+        document.put("tags", Arrays.asList("a", "b"));
+        document.put("location", nested);
+        document.put("active", true);
+        document.put("missing", null);
+        return document;
+    }
+
+    @Test
+    public void shouldWriteSameJsonAsGson() throws Exception {
+        final Map<String, Object> document = document();
+        // Gson drops null values of Maps by default
+        document.remove("missing");
+        document.put("dateCreate", new Date(1400000000000L));
+
+        final String gson = new GsonJsonCodec().toJson(document);
+        final String jackson = new JacksonJsonCodec().toJson(document);
+        assertEquals(gson, jackson);
+
+        final StringBuilder body = new StringBuilder("prefix");
+        new JacksonJsonCodec().write(document, body);
+        assertEquals("prefix" + gson, body.toString());
+    }
+
+    @Test
+    public void shouldReadMapWithJackson() throws Exception {
+        final Map<String, Object> map = new JacksonJsonCodec().readMap(
+                "{\"name\":\"name1\",\"count\":2,\"big\":12345678901,\"ratio\":0.5,\"tags\":[\"a\",{\"b\":null}],\"active\":false}");
+
+        assertEquals("name1", map.get("name"));
+        assertEquals(2, map.get("count"));
+        assertEquals(12345678901L, map.get("big"));
+        assertEquals(0.5, map.get("ratio"));
+        assertEquals(false, map.get("active"));
+        final List<?> tags = (List<?>) map.get("tags");
+        assertEquals("a", tags.get(0));
+        assertTrue(((Map<?, ?>) tags.get(1)).containsKey("b"));
+        assertNull(new JacksonJsonCodec().readMap("null"));
+    }
+
+    @Test
+    public void shouldRoundTripDatesOutsideOfUtc() throws Exception {
+        final TimeZone defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+        try {
+            final Date date = new Date(1400000000000L);
+            final Map<String, Object> document = new LinkedHashMap<>();
+            document.put("dateCreate", date);
+
+            // the encoding of the documents already indexed : default time zone, literal 'Z'
+            assertEquals("{\"dateCreate\":\"2014-05-13T18:53:20Z\"}", new GsonJsonCodec().toJson(document));
+            assertEquals("{\"dateCreate\":\"2014-05-13T18:53:20Z\"}", new JacksonJsonCodec().toJson(document));
+
+            for (JsonCodec codec : Arrays.asList(new GsonJsonCodec(), new JacksonJsonCodec())) {
+                final Map<String, Object> read = codec.readMap(codec.toJson(document));
+                assertEquals(date, IndexUtils.convertValue(read.get("dateCreate"), Date.class));
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void shouldConvertResponseTreeWithSameTypesAsReadMap() throws Exception {
+        final String json = "{\"name\":\"name1\",\"count\":2,\"big\":12345678901,\"ratio\":0.5,\"tags\":[\"a\",{\"b\":null}],\"active\":false}";
+        final JsonObject tree = new JsonParser().parse(json).getAsJsonObject();
+
+        assertEquals(new JacksonJsonCodec().readMap(json), new JacksonJsonCodec().toMap(tree));
+        assertEquals(new GsonJsonCodec().readMap(json), new GsonJsonCodec().toMap(tree));
+    }
+
+    @Test
+    public void shouldKeepEpochMillisInUpdateScriptParams() throws Exception {
+        final Map<String, Object> params = new LinkedHashMap<>();
+        params.put("date", new Date(1400000000000L));
+        final JestUpdateRequestBuilder update = new JestUpdateRequestBuilder("index1", "type1", "1")
+                .setScript("ctx._source.date = date")
+                .setScriptParams(params);
+
+        assertEquals("{\"script\":\"ctx._source.date = date\",\"params\":{\"date\":1400000000000}}",
+                update.getAction().getData(null));
+    }
+
+    @Test
+    public void shouldReadMapWithGson() throws Exception {
+        final Map<String, Object> map = new GsonJsonCodec().readMap("{\"name\":\"name1\",\"count\":2}");
+        assertEquals("name1", map.get("name"));
+        assertEquals(2.0, map.get("count"));
+    }
+
+    @Test
+    public void shouldResolveCodecByName() throws Exception {
+        final ClassLoader classLoader = getClass().getClassLoader();
+        assertTrue(JsonCodecs.forName(null, classLoader) instanceof GsonJsonCodec);
+        assertTrue(JsonCodecs.forName("jackson", classLoader) instanceof JacksonJsonCodec);
+        assertTrue(JsonCodecs.forName(JacksonJsonCodec.class.getName(), classLoader) instanceof JacksonJsonCodec);
+    }
+}